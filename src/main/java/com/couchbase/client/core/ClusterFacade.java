@@ -25,6 +25,8 @@ import com.couchbase.client.core.message.CouchbaseRequest;
 import com.couchbase.client.core.message.CouchbaseResponse;
 import rx.Observable;
 
+import java.util.List;
+
 /**
  * Represents a Couchbase Cluster.
  *
@@ -42,4 +44,16 @@ public interface ClusterFacade {
      * @return the {@link CouchbaseResponse} wrapped into a {@link Observable}.
      */
     <R extends CouchbaseResponse> Observable<R> send(CouchbaseRequest request);
+
+    /**
+     * Sends a batch of {@link CouchbaseRequest}s into the cluster and eventually returns their
+     * {@link CouchbaseResponse}s.
+     *
+     * This behaves like sending every request on its own, but the requests are published together so that they are
+     * dispatched and flushed in one go. Backpressure is still reported per request through its {@link Observable}.
+     *
+     * @param requests the requests to send.
+     * @return the {@link CouchbaseResponse}s wrapped into {@link Observable}s, in the order of the requests.
+     */
+    <R extends CouchbaseResponse> List<Observable<R>> send(List<? extends CouchbaseRequest> requests);
 }
@@ -28,7 +28,10 @@ import com.couchbase.client.core.env.CouchbaseEnvironment;
 import com.couchbase.client.core.env.Environment;
 import com.couchbase.client.core.message.CouchbaseRequest;
 import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.PriorityRequest;
 import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.message.binary.AbstractKeyAwareBinaryRequest;
+import com.couchbase.client.core.message.binary.GetRequest;
 import com.couchbase.client.core.message.cluster.ClusterRequest;
 import com.couchbase.client.core.message.cluster.DisconnectRequest;
 import com.couchbase.client.core.message.cluster.DisconnectResponse;
@@ -45,14 +48,21 @@ import com.couchbase.client.core.message.internal.RemoveNodeRequest;
 import com.couchbase.client.core.message.internal.RemoveNodeResponse;
 import com.couchbase.client.core.message.internal.RemoveServiceRequest;
 import com.couchbase.client.core.message.internal.RemoveServiceResponse;
+import com.couchbase.client.core.node.locate.NodeLocality;
 import com.couchbase.client.core.service.Service;
 import com.couchbase.client.core.state.LifecycleState;
 import com.lmax.disruptor.EventTranslatorOneArg;
+import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
 import rx.Observable;
+import rx.functions.Action1;
 import rx.functions.Func1;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -81,9 +91,19 @@ public class CouchbaseCore implements ClusterFacade {
     private static final BackpressureException BACKPRESSURE_EXCEPTION = new BackpressureException();
 
     /**
-     * The {@link RequestEvent} {@link RingBuffer}.
+     * The size of the {@link RingBuffer} for {@link PriorityRequest}s, which only carry occasional config traffic.
      */
-    private final RingBuffer<RequestEvent> requestRingBuffer;
+    private static final int PRIORITY_REQUEST_BUFFER_SIZE = 1024;
+
+    /**
+     * The {@link RequestEvent} {@link RingBuffer}s, one per shard.
+     */
+    private final List<RingBuffer<RequestEvent>> requestRingBuffers;
+
+    /**
+     * The {@link RequestEvent} {@link RingBuffer} for {@link PriorityRequest}s.
+     */
+    private final RingBuffer<RequestEvent> priorityRingBuffer;
 
     /**
      * The handler for all cluster nodes.
@@ -95,9 +115,25 @@ public class CouchbaseCore implements ClusterFacade {
      */
     private final ConfigurationProvider configProvider;
 
+    /**
+     * Tracks the timeouts of all outstanding requests.
+     */
+    private final TimeoutTracker timeoutTracker;
+
+    /**
+     * Coalesces concurrent gets of the same document, null if disabled.
+     */
+    private final GetCoalescer getCoalescer;
+
+    /**
+     * Hedges idempotent requests, null if hedging is disabled.
+     */
+    private final Hedger hedger;
+
     private final Environment environment;
 
-    private final Disruptor<RequestEvent> requestDisruptor;
+    private final List<Disruptor<RequestEvent>> requestDisruptors;
+    private final Disruptor<RequestEvent> priorityDisruptor;
     private final Disruptor<ResponseEvent> responseDisruptor;
     private final ExecutorService disruptorExecutor;
 
@@ -120,30 +156,77 @@ public class CouchbaseCore implements ClusterFacade {
 
     /**
      * Creates a new {@link CouchbaseCore}.
+     *
+     * If more than one request buffer shard is configured, every shard gets its own {@link RingBuffer} and its own
+     * consumer thread, all dispatching through the same {@link RequestHandler}. Every shard is drained by the
+     * configured number of {@link RequestWorker}s, each tracking the nodes it has to flush on its own.
+     *
+     * {@link PriorityRequest}s get their own {@link RingBuffer} and consumer, so that config traffic never queues up
+     * behind data operations.
+     *
+     * All {@link RingBuffer}s are multi producer. Requests are published from user threads as well as the retry and
+     * hedge timers, responses from the IO threads, the encoding pool, the request workers and the timeout and retry
+     * timers.
      */
+    @SuppressWarnings("unchecked")
     public CouchbaseCore(Environment environment) {
         this.environment = environment;
         configProvider = new DefaultConfigurationProvider(this, environment);
-        disruptorExecutor = Executors.newFixedThreadPool(2);
+        timeoutTracker = new TimeoutTracker(environment);
+        getCoalescer = environment.coalesceGets() ? new GetCoalescer(timeoutTracker) : null;
+        hedger = environment.hedgingEnabled() ? new Hedger(environment, configProvider.configs(),
+            new Action1<CouchbaseRequest>() {
+                @Override
+                public void call(final CouchbaseRequest copy) {
+                    trackTimeout(copy);
+                    if (!ringBufferFor(copy).tryPublishEvent(REQUEST_TRANSLATOR, copy)) {
+                        reject(copy);
+                    }
+                }
+            }) : null;
+        int shards = environment.requestBufferShards();
+        int workers = environment.requestWorkers();
+        disruptorExecutor = Executors.newFixedThreadPool(shards * workers + 2);
 
         responseDisruptor = new Disruptor<ResponseEvent>(
             new ResponseEventFactory(),
             environment.responseBufferSize(),
-            disruptorExecutor
+            disruptorExecutor,
+            ProducerType.MULTI,
+            environment.responseWaitStrategy()
         );
-        responseDisruptor.handleEventsWith(new ResponseHandler(this, configProvider));
+        responseDisruptor.handleEventsWith(new ResponseHandler(environment, this, configProvider));
         responseDisruptor.start();
         RingBuffer<ResponseEvent> responseRingBuffer = responseDisruptor.getRingBuffer();
 
-        requestDisruptor = new Disruptor<RequestEvent>(
+        requestHandler = new RequestHandler(environment, configProvider.configs(), responseRingBuffer,
+            timeoutTracker);
+        requestDisruptors = new ArrayList<Disruptor<RequestEvent>>(shards);
+        requestRingBuffers = new ArrayList<RingBuffer<RequestEvent>>(shards);
+        for (int i = 0; i < shards; i++) {
+            Disruptor<RequestEvent> requestDisruptor = new Disruptor<RequestEvent>(
+                new RequestEventFactory(),
+                environment.requestBufferSize(),
+                disruptorExecutor,
+                ProducerType.MULTI,
+                environment.requestWaitStrategy()
+            );
+            requestDisruptor.handleEventsWith(RequestWorker.create(requestHandler, workers));
+            requestDisruptor.start();
+            requestDisruptors.add(requestDisruptor);
+            requestRingBuffers.add(requestDisruptor.getRingBuffer());
+        }
+
+        priorityDisruptor = new Disruptor<RequestEvent>(
             new RequestEventFactory(),
-            environment.requestBufferSize(),
-            disruptorExecutor
+            PRIORITY_REQUEST_BUFFER_SIZE,
+            disruptorExecutor,
+            ProducerType.MULTI,
+            environment.requestWaitStrategy()
         );
-        requestHandler = new RequestHandler(environment, configProvider.configs(), responseRingBuffer);
-        requestDisruptor.handleEventsWith(requestHandler);
-        requestDisruptor.start();
-        requestRingBuffer = requestDisruptor.getRingBuffer();
+        priorityDisruptor.handleEventsWith(RequestWorker.create(requestHandler, 1));
+        priorityDisruptor.start();
+        priorityRingBuffer = priorityDisruptor.getRingBuffer();
     }
 
     @Override
@@ -154,15 +237,210 @@ public class CouchbaseCore implements ClusterFacade {
         } else if (request instanceof ClusterRequest) {
             handleClusterRequest(request);
         } else {
-            boolean published = requestRingBuffer.tryPublishEvent(REQUEST_TRANSLATOR, request);
-            if (!published) {
-                request.observable().onError(BACKPRESSURE_EXCEPTION);
+            trackTimeout(request);
+            CouchbaseRequest wire = hedge(coalesce(request));
+            if (wire != null && !ringBufferFor(wire).tryPublishEvent(REQUEST_TRANSLATOR, wire)) {
+                reject(wire);
             }
         }
 
         return (Observable<R>) request.observable();
     }
 
+    /**
+     * Sends the batch of requests, claiming one contiguous range per request {@link RingBuffer} shard.
+     *
+     * Internal, cluster and priority requests are handled one by one as usual.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R extends CouchbaseResponse> List<Observable<R>> send(List<? extends CouchbaseRequest> requests) {
+        List<Observable<R>> responses = new ArrayList<Observable<R>>(requests.size());
+        List<List<CouchbaseRequest>> batches = new ArrayList<List<CouchbaseRequest>>(requestRingBuffers.size());
+        for (int i = 0; i < requestRingBuffers.size(); i++) {
+            batches.add(null);
+        }
+        for (CouchbaseRequest request : requests) {
+            if (request instanceof InternalRequest || request instanceof ClusterRequest
+                || request instanceof PriorityRequest) {
+                send(request);
+            } else {
+                trackTimeout(request);
+                CouchbaseRequest wire = hedge(coalesce(request));
+                if (wire != null) {
+                    int shard = shardFor(wire);
+                    List<CouchbaseRequest> batch = batches.get(shard);
+                    if (batch == null) {
+                        batch = new ArrayList<CouchbaseRequest>(requests.size());
+                        batches.set(shard, batch);
+                    }
+                    batch.add(wire);
+                }
+            }
+            responses.add((Observable<R>) request.observable());
+        }
+
+        for (int i = 0; i < batches.size(); i++) {
+            List<CouchbaseRequest> batch = batches.get(i);
+            if (batch != null) {
+                publishBatch(requestRingBuffers.get(i), batch);
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Publishes the batch into the given {@link RingBuffer} with as few sequence claims as possible.
+     *
+     * The whole batch is claimed at once. If the ringbuffer does not have enough capacity left, the claim is halved
+     * until it fits, so that as many requests as possible are published in order. Everything which does not fit is
+     * failed with a {@link BackpressureException}.
+     *
+     * @param ringBuffer the ringbuffer to publish into.
+     * @param batch the requests to publish.
+     */
+    static void publishBatch(final RingBuffer<RequestEvent> ringBuffer, final List<CouchbaseRequest> batch) {
+        int size = batch.size();
+        int offset = 0;
+        int claim = size;
+        while (offset < size && claim > 0) {
+            claim = Math.min(claim, size - offset);
+            long hi;
+            try {
+                hi = ringBuffer.tryNext(claim);
+            } catch (InsufficientCapacityException ex) {
+                claim >>= 1;
+                continue;
+            }
+            long lo = hi - claim + 1;
+            for (long sequence = lo; sequence <= hi; sequence++) {
+                ringBuffer.get(sequence).setRequest(batch.get(offset++));
+            }
+            ringBuffer.publish(lo, hi);
+        }
+
+        while (offset < size) {
+            reject(batch.get(offset++));
+        }
+    }
+
+    /**
+     * Arms the timeout of the request, unless it already has been armed when the request has been sent first.
+     *
+     * @param request the request to track.
+     */
+    private void trackTimeout(final CouchbaseRequest request) {
+        if (request.retryCount() == 0) {
+            timeoutTracker.track(request);
+        }
+    }
+
+    /**
+     * Coalesces the request with concurrent gets of the same document, if enabled.
+     *
+     * Retried requests are never coalesced, since they already are on their way.
+     *
+     * @param request the request to send.
+     * @return the request to publish, or null if it joined a get already on the wire.
+     */
+    private CouchbaseRequest coalesce(final CouchbaseRequest request) {
+        if (getCoalescer == null || !(request instanceof GetRequest) || request.retryCount() > 0) {
+            return request;
+        }
+        return getCoalescer.coalesce((GetRequest) request);
+    }
+
+    /**
+     * Returns the number of gets which did not go over the wire because a concurrent get of the same document
+     * already did.
+     *
+     * @return the number of coalesced gets, 0 if coalescing is disabled.
+     */
+    public long coalescedGets() {
+        return getCoalescer == null ? 0 : getCoalescer.hits();
+    }
+
+    /**
+     * Replaces the request with its primary copy if it gets hedged, arming the timeout of the copy.
+     *
+     * @param request the request to send, may be null.
+     * @return the request to publish, or null if there is nothing to publish.
+     */
+    private CouchbaseRequest hedge(final CouchbaseRequest request) {
+        if (hedger == null || request == null) {
+            return request;
+        }
+        CouchbaseRequest wire = hedger.hedge(request);
+        if (wire != request) {
+            trackTimeout(wire);
+        }
+        return wire;
+    }
+
+    /**
+     * Returns the {@link Hedger} with the per service hedging metrics.
+     *
+     * @return the hedger, or null if hedging is disabled.
+     */
+    public Hedger hedger() {
+        return hedger;
+    }
+
+    /**
+     * Returns the locality groups of the nodes with the per group traffic counters.
+     *
+     * @return the node locality.
+     */
+    public NodeLocality locality() {
+        return requestHandler.locality();
+    }
+
+    /**
+     * Fails a request which did not fit into the request {@link RingBuffer}.
+     *
+     * @param request the request to fail.
+     */
+    private static void reject(final CouchbaseRequest request) {
+        request.cancelTimeout();
+        request.observable().onError(BACKPRESSURE_EXCEPTION);
+    }
+
+    /**
+     * Selects the request {@link RingBuffer} for the given request.
+     *
+     * @param request the request to publish.
+     * @return the priority ringbuffer for {@link PriorityRequest}s, the shard of the request otherwise.
+     */
+    private RingBuffer<RequestEvent> ringBufferFor(final CouchbaseRequest request) {
+        if (request instanceof PriorityRequest) {
+            return priorityRingBuffer;
+        }
+        return requestRingBuffers.get(shardFor(request));
+    }
+
+    /**
+     * Selects the request {@link RingBuffer} shard for the given request.
+     *
+     * Key-aware requests are partitioned by their key so that all operations on one document stay in order, every
+     * other request sticks to the shard of the publishing thread.
+     *
+     * @param request the request to publish.
+     * @return the index of the ringbuffer to publish the request into.
+     */
+    private int shardFor(final CouchbaseRequest request) {
+        if (requestRingBuffers.size() == 1) {
+            return 0;
+        }
+
+        int hash;
+        if (request instanceof AbstractKeyAwareBinaryRequest) {
+            hash = Arrays.hashCode(((AbstractKeyAwareBinaryRequest) request).keyBytes());
+        } else {
+            hash = (int) Thread.currentThread().getId();
+        }
+        return (hash & Integer.MAX_VALUE) % requestRingBuffers.size();
+    }
+
     /**
      * Helper method to handle the cluster requests.
      *
@@ -204,9 +482,16 @@ public class CouchbaseCore implements ClusterFacade {
                 }).map(new Func1<Boolean, Boolean>() {
                 @Override
                 public Boolean call(Boolean success) {
-                    requestDisruptor.shutdown();
+                    for (Disruptor<RequestEvent> requestDisruptor : requestDisruptors) {
+                        requestDisruptor.shutdown();
+                    }
+                    priorityDisruptor.shutdown();
                     responseDisruptor.shutdown();
                     disruptorExecutor.shutdownNow();
+                    timeoutTracker.shutdown();
+                    if (hedger != null) {
+                        hedger.shutdown();
+                    }
                     return success;
                 }
             })
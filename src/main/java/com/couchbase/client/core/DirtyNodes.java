@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.message.internal.SignalFlush;
+import com.couchbase.client.core.node.Node;
+
+import java.util.Arrays;
+
+/**
+ * Collects the {@link Node}s written to during a batch of request events, so that every one of them is flushed
+ * exactly once when the batch ends.
+ *
+ * Nodes which have not been written to are never signalled, and since every endpoint only flushes if something has
+ * been written to it, the flush only reaches the endpoints which actually have pending writes. This class is not
+ * thread safe, every request consumer needs its own instance.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+final class DirtyNodes {
+
+    /**
+     * The initial capacity, will expand automatically if more nodes are written during one batch.
+     */
+    private static final int INITIAL_SIZE = 8;
+
+    /**
+     * The nodes written to since the last flush.
+     */
+    private Node[] nodes = new Node[INITIAL_SIZE];
+
+    /**
+     * The number of nodes written to since the last flush.
+     */
+    private int size;
+
+    /**
+     * Marks the given nodes as written to, ignoring those which already are.
+     *
+     * @param written the nodes a request has been written to.
+     */
+    void add(final Node[] written) {
+        outer:
+        for (int i = 0; i < written.length; i++) {
+            Node node = written[i];
+            for (int j = 0; j < size; j++) {
+                if (nodes[j] == node) {
+                    continue outer;
+                }
+            }
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size << 1);
+            }
+            nodes[size++] = node;
+        }
+    }
+
+    /**
+     * Signals every node written to since the last flush to flush, and forgets about them.
+     */
+    void flush() {
+        for (int i = 0; i < size; i++) {
+            nodes[i].send(SignalFlush.INSTANCE);
+            nodes[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Checks if no node has been written to since the last flush.
+     *
+     * @return true if there is nothing to flush.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+}
@@ -0,0 +1,280 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.binary.GetRequest;
+import com.couchbase.client.core.message.binary.GetResponse;
+import com.couchbase.client.core.message.document.CoreDocument;
+import io.netty.buffer.ByteBuf;
+import rx.Observer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets concurrent {@link GetRequest}s for the same document share one request on the wire.
+ *
+ * The first get for a document starts a flight, which sends its own {@link GetRequest} into the cluster. Every get
+ * for the same bucket and key arriving while the flight is in progress joins it instead of going over the wire. Once
+ * the response arrives, the flight is closed and every waiting request gets its own {@link GetResponse}. The content
+ * buffer is shared: every waiter gets a duplicate with its own reference, so each of them has to release its
+ * content exactly once, as usual.
+ *
+ * The request on the wire carries the encoded key and the password of the request which started the flight. Its
+ * timeout is armed by the coalescer and pushed out whenever a request joins which would time out later, so that the
+ * flight never fails a waiter before its own timeout has passed.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+public class GetCoalescer {
+
+    /**
+     * The flights in progress, per bucket and key.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, Flight>> flights =
+        new ConcurrentHashMap<String, ConcurrentMap<String, Flight>>();
+
+    /**
+     * The number of requests which joined a flight in progress.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Arms the timeouts of the requests on the wire.
+     */
+    private final TimeoutTracker timeoutTracker;
+
+    /**
+     * Creates a new {@link GetCoalescer}.
+     *
+     * @param timeoutTracker arms the timeouts of the requests on the wire.
+     */
+    public GetCoalescer(final TimeoutTracker timeoutTracker) {
+        this.timeoutTracker = timeoutTracker;
+    }
+
+    /**
+     * Coalesces the given request with a flight in progress, or starts a new flight for it.
+     *
+     * @param request the get request to coalesce.
+     * @return the request to send over the wire for the new flight with its timeout armed, or null if the request
+     *         joined a flight.
+     */
+    public CouchbaseRequest coalesce(final GetRequest request) {
+        ConcurrentMap<String, Flight> bucketFlights = flightsFor(request.bucket());
+        while (true) {
+            Flight flight = bucketFlights.get(request.key());
+            if (flight == null) {
+                Flight created = new Flight(bucketFlights, request, timeoutTracker);
+                flight = bucketFlights.putIfAbsent(request.key(), created);
+                if (flight == null) {
+                    return created.start();
+                }
+            }
+            if (flight.join(request)) {
+                hits.incrementAndGet();
+                return null;
+            }
+            bucketFlights.remove(request.key(), flight);
+        }
+    }
+
+    /**
+     * Returns the number of requests which did not go over the wire because they joined a flight in progress.
+     *
+     * @return the number of coalesced requests.
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    private ConcurrentMap<String, Flight> flightsFor(final String bucket) {
+        ConcurrentMap<String, Flight> bucketFlights = flights.get(bucket);
+        if (bucketFlights == null) {
+            bucketFlights = new ConcurrentHashMap<String, Flight>();
+            ConcurrentMap<String, Flight> existing = flights.putIfAbsent(bucket, bucketFlights);
+            if (existing != null) {
+                bucketFlights = existing;
+            }
+        }
+        return bucketFlights;
+    }
+
+    /**
+     * A get on the wire, together with every request waiting for its response.
+     */
+    private static final class Flight implements Observer<CouchbaseResponse> {
+
+        private final ConcurrentMap<String, Flight> bucketFlights;
+        private final String key;
+        private final String bucket;
+        private final TimeoutTracker timeoutTracker;
+        private final GetRequest wire;
+        private final List<GetRequest> waiters = new ArrayList<GetRequest>();
+        private boolean closed;
+        private boolean armed;
+
+        /**
+         * The point in time the request on the wire times out, in nanoseconds, Long.MAX_VALUE if never.
+         */
+        private long deadline;
+
+        Flight(final ConcurrentMap<String, Flight> bucketFlights, final GetRequest first,
+            final TimeoutTracker timeoutTracker) {
+            this.bucketFlights = bucketFlights;
+            this.key = first.key();
+            this.bucket = first.bucket();
+            this.timeoutTracker = timeoutTracker;
+            long timeout = timeoutTracker.timeoutFor(first);
+            wire = new GetRequest(first.keyBytes(), bucket, first.password());
+            wire.timeout(timeout);
+            deadline = deadline(timeout);
+            waiters.add(first);
+        }
+
+        /**
+         * Arms the timeout of the request which goes over the wire for this flight.
+         *
+         * @return the request to send.
+         */
+        synchronized CouchbaseRequest start() {
+            wire.observable().subscribe(this);
+            armed = true;
+            timeoutTracker.track(wire);
+            return wire;
+        }
+
+        /**
+         * Adds the request to the waiters, unless the flight has already been closed or timed out.
+         *
+         * If the request would time out after the request on the wire, the timeout on the wire is armed again with
+         * the timeout of the joining request.
+         *
+         * @param request the request to add.
+         * @return true if the request joined, false if the flight is closed.
+         */
+        synchronized boolean join(final GetRequest request) {
+            if (closed || wire.timedOut()) {
+                return false;
+            }
+            waiters.add(request);
+            long timeout = timeoutTracker.timeoutFor(request);
+            long joined = deadline(timeout);
+            if (joined > deadline) {
+                deadline = joined;
+                wire.timeout(timeout);
+                if (armed) {
+                    wire.cancelTimeout();
+                    timeoutTracker.track(wire);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the point in time a request with the given timeout started now times out.
+         *
+         * @param timeout the timeout in milliseconds, 0 if the request never times out.
+         * @return the deadline in nanoseconds, Long.MAX_VALUE if never.
+         */
+        private static long deadline(final long timeout) {
+            return timeout == 0 ? Long.MAX_VALUE : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        }
+
+        /**
+         * Closes the flight, so no more requests can join.
+         *
+         * @return the requests waiting for the response.
+         */
+        private List<GetRequest> close() {
+            synchronized (this) {
+                closed = true;
+            }
+            bucketFlights.remove(key, this);
+            return waiters;
+        }
+
+        @Override
+        public void onNext(final CouchbaseResponse response) {
+            List<GetRequest> waiting = close();
+            if (!(response instanceof GetResponse)) {
+                for (int i = 0; i < waiting.size(); i++) {
+                    complete(waiting.get(i), response);
+                }
+                return;
+            }
+
+            CoreDocument document = ((GetResponse) response).document();
+            ByteBuf content = document.content();
+            int last = waiting.size() - 1;
+            for (int i = 0; i < last; i++) {
+                GetRequest waiter = waiting.get(i);
+                if (waiter.timedOut()) {
+                    continue;
+                }
+                ByteBuf shared = content == null ? null : content.duplicate().retain();
+                complete(waiter, new GetResponse(copy(document, shared), bucket, waiter));
+            }
+
+            GetRequest waiter = waiting.get(last);
+            if (waiter.timedOut()) {
+                if (content != null) {
+                    content.release();
+                }
+            } else {
+                complete(waiter, new GetResponse(copy(document, content), bucket, waiter));
+            }
+        }
+
+        @Override
+        public void onError(final Throwable e) {
+            List<GetRequest> waiting = close();
+            for (int i = 0; i < waiting.size(); i++) {
+                waiting.get(i).observable().onError(e);
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            // every waiter is completed as part of onNext already
+        }
+
+        private static void complete(final CouchbaseRequest waiter, final CouchbaseResponse response) {
+            waiter.cancelTimeout();
+            waiter.observable().onNext(response);
+            waiter.observable().onCompleted();
+        }
+
+        private static CoreDocument copy(final CoreDocument document, final ByteBuf content) {
+            return new CoreDocument(document.id(), content, document.flags(), document.expiration(), document.cas(),
+                document.isJson(), document.status());
+        }
+    }
+
+}
@@ -0,0 +1,421 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.config.BucketConfig;
+import com.couchbase.client.core.config.ClusterConfig;
+import com.couchbase.client.core.config.CouchbaseBucketConfig;
+import com.couchbase.client.core.env.Environment;
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.message.binary.GetRequest;
+import com.couchbase.client.core.message.binary.GetResponse;
+import com.couchbase.client.core.message.binary.ReplicaGetRequest;
+import com.couchbase.client.core.message.binary.ReplicaMode;
+import com.couchbase.client.core.message.view.ViewQueryRequest;
+import com.couchbase.client.core.message.view.ViewQueryResponse;
+import com.couchbase.client.core.service.ServiceType;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import rx.Observable;
+import rx.Observer;
+import rx.functions.Action1;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hedges idempotent requests against tail latency.
+ *
+ * Gets and view queries are not sent themselves, but as a primary copy. If the primary did not answer once the
+ * configured percentile of recent primary latencies has passed, a hedge copy is sent as well: gets go to a connected
+ * replica (preferring the locality group of the client), view queries are balanced onto a node again. Gets against
+ * buckets without replicas, like memcache buckets, are never hedged. Whichever copy answers first completes the
+ * original request and the other one is cancelled, so it is not retried anymore and its response buffers are released
+ * if they arrive anyway. A hedge only wins with a successful response, so a replica which does not have the document
+ * (yet) never shadows the master.
+ *
+ * Until enough latencies have been recorded to estimate the percentile, requests are sent without hedging.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+public class Hedger {
+
+    /**
+     * The number of primary latencies per estimation window.
+     */
+    private static final int WINDOW = 1024;
+
+    private static final int TYPES = ServiceType.values().length;
+
+    private final HashedWheelTimer timer = new HashedWheelTimer(new DefaultThreadFactory("cb-hedge", true), 1,
+        TimeUnit.MILLISECONDS);
+    private final Action1<CouchbaseRequest> publisher;
+    private final long minDelay;
+    private final LatencyHistogram[] latencies = new LatencyHistogram[TYPES];
+    private final AtomicLongArray candidates = new AtomicLongArray(TYPES);
+    private final AtomicLongArray hedged = new AtomicLongArray(TYPES);
+    private final AtomicLongArray wins = new AtomicLongArray(TYPES);
+
+    /**
+     * The current cluster configuration, to tell which buckets have replicas to hedge gets on.
+     */
+    private volatile ClusterConfig config;
+
+    /**
+     * Creates a new {@link Hedger}.
+     *
+     * @param environment the environment with the hedging settings.
+     * @param configs the cluster configurations.
+     * @param publisher publishes the copies into the request ringbuffer, arming their timeouts.
+     */
+    public Hedger(final Environment environment, final Observable<ClusterConfig> configs,
+        final Action1<CouchbaseRequest> publisher) {
+        this.publisher = publisher;
+        configs.subscribe(new Action1<ClusterConfig>() {
+            @Override
+            public void call(final ClusterConfig clusterConfig) {
+                config = clusterConfig;
+            }
+        });
+        this.minDelay = TimeUnit.MILLISECONDS.toMicros(environment.hedgingMinDelay());
+        int percentile = environment.hedgingPercentile();
+        for (int i = 0; i < TYPES; i++) {
+            latencies[i] = new LatencyHistogram(WINDOW, percentile);
+        }
+    }
+
+    /**
+     * Prepares the request for hedging, if it is idempotent and latencies are known for its type.
+     *
+     * @param request the request to send.
+     * @return the request to publish, either the request itself or its primary copy, which still needs its timeout
+     *         armed.
+     */
+    public CouchbaseRequest hedge(final CouchbaseRequest request) {
+        if (!(request instanceof GetRequest || request instanceof ViewQueryRequest) || request.retryCount() > 0) {
+            return request;
+        }
+        if (request instanceof GetRequest && !hasReplicas(request.bucket())) {
+            return request;
+        }
+
+        int type = ServiceType.forRequest(request).ordinal();
+        candidates.incrementAndGet(type);
+        long estimate = latencies[type].estimate();
+        if (estimate < 0) {
+            request.observable().subscribe(new Sample(type, System.nanoTime()));
+            return request;
+        }
+        return new Race(request, type).start(Math.max(estimate, minDelay));
+    }
+
+    /**
+     * Returns the number of requests of the given type which have been considered for hedging.
+     *
+     * @param type the service type.
+     * @return the number of idempotent requests sent.
+     */
+    public long candidates(final ServiceType type) {
+        return candidates.get(type.ordinal());
+    }
+
+    /**
+     * Returns the number of hedge copies sent for requests of the given type.
+     *
+     * @param type the service type.
+     * @return the number of hedges.
+     */
+    public long hedged(final ServiceType type) {
+        return hedged.get(type.ordinal());
+    }
+
+    /**
+     * Returns the number of hedge copies which answered before their primary.
+     *
+     * @param type the service type.
+     * @return the number of hedges which won.
+     */
+    public long wins(final ServiceType type) {
+        return wins.get(type.ordinal());
+    }
+
+    /**
+     * Returns the share of requests of the given type which needed a hedge.
+     *
+     * @param type the service type.
+     * @return the hedge rate between 0 and 1.
+     */
+    public double hedgeRate(final ServiceType type) {
+        long considered = candidates(type);
+        return considered == 0 ? 0 : (double) hedged(type) / considered;
+    }
+
+    /**
+     * Returns the current hedge delay for the given type.
+     *
+     * @param type the service type.
+     * @return the delay in microseconds, -1 if requests of this type are not hedged yet.
+     */
+    public long hedgeDelay(final ServiceType type) {
+        long estimate = latencies[type.ordinal()].estimate();
+        return estimate < 0 ? -1 : Math.max(estimate, minDelay);
+    }
+
+    /**
+     * Stops the timer, pending hedges are not sent anymore.
+     */
+    public void shutdown() {
+        timer.stop();
+    }
+
+    /**
+     * Checks if the given bucket has replicas a get could be hedged on.
+     *
+     * @param bucket the name of the bucket.
+     * @return true if it is a couchbase bucket with at least one replica configured.
+     */
+    private boolean hasReplicas(final String bucket) {
+        ClusterConfig cluster = config;
+        BucketConfig bucketConfig = cluster == null ? null : cluster.bucketConfig(bucket);
+        return bucketConfig instanceof CouchbaseBucketConfig
+            && ((CouchbaseBucketConfig) bucketConfig).numberOfReplicas() > 0;
+    }
+
+    private void record(final int type, final long start) {
+        latencies[type].record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+
+    /**
+     * Creates the copy of the request to send, a replica read for gets.
+     *
+     * The copy keeps the password and the custom timeout of the original request.
+     */
+    private static CouchbaseRequest copy(final CouchbaseRequest request, final boolean hedge) {
+        CouchbaseRequest copy;
+        if (request instanceof GetRequest) {
+            GetRequest get = (GetRequest) request;
+            copy = hedge ? new ReplicaGetRequest(get.keyBytes(), get.bucket(), get.password(), ReplicaMode.ANY)
+                : new GetRequest(get.keyBytes(), get.bucket(), get.password());
+        } else {
+            ViewQueryRequest view = (ViewQueryRequest) request;
+            copy = new ViewQueryRequest(view.design(), view.view(), view.development(), view.query(), view.bucket(),
+                view.password());
+        }
+        return copy.timeout(request.timeout());
+    }
+
+    private static void release(final CouchbaseResponse response) {
+        ByteBuf content = null;
+        if (response instanceof GetResponse) {
+            content = ((GetResponse) response).document().content();
+        } else if (response instanceof ViewQueryResponse) {
+            content = ((ViewQueryResponse) response).content();
+        }
+        if (content != null && content.refCnt() > 0) {
+            content.release();
+        }
+    }
+
+    /**
+     * Records the latency of a request sent without hedging, until the first window is full.
+     */
+    private final class Sample implements Observer<CouchbaseResponse> {
+
+        private final int type;
+        private final long start;
+        private boolean recorded;
+
+        Sample(final int type, final long start) {
+            this.type = type;
+            this.start = start;
+        }
+
+        @Override
+        public void onNext(final CouchbaseResponse response) {
+            if (!recorded) {
+                recorded = true;
+                record(type, start);
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+
+        @Override
+        public void onError(final Throwable e) {
+        }
+    }
+
+    /**
+     * The primary and (eventually) the hedge copy of one request, racing to complete it.
+     */
+    private final class Race implements TimerTask {
+
+        private final CouchbaseRequest original;
+        private final int type;
+        private final Copy primary = new Copy(false);
+        private Copy hedge;
+        private CouchbaseRequest primaryRequest;
+        private CouchbaseRequest hedgeRequest;
+        private volatile Copy winner;
+        private int running;
+        private Throwable error;
+        private volatile Timeout timeout;
+        private long start;
+
+        Race(final CouchbaseRequest original, final int type) {
+            this.original = original;
+            this.type = type;
+        }
+
+        /**
+         * Arms the hedge and returns the primary copy to send.
+         */
+        CouchbaseRequest start(final long delay) {
+            CouchbaseRequest request = copy(original, false);
+            primaryRequest = request;
+            running = 1;
+            request.observable().subscribe(primary);
+            start = System.nanoTime();
+            timeout = timer.newTimeout(this, delay, TimeUnit.MICROSECONDS);
+            return request;
+        }
+
+        @Override
+        public void run(final Timeout timeout) throws Exception {
+            CouchbaseRequest request;
+            synchronized (this) {
+                if (winner != null || running == 0 || original.timedOut()) {
+                    return;
+                }
+                request = copy(original, true);
+                hedgeRequest = request;
+                hedge = new Copy(true);
+                running++;
+            }
+            hedged.incrementAndGet(type);
+            request.observable().subscribe(hedge);
+            publisher.call(request);
+        }
+
+        /**
+         * Decides if the response of the given copy completes the original request, cancelling the other copy once
+         * there is a winner.
+         */
+        private synchronized boolean claim(final Copy copy, final CouchbaseResponse response) {
+            if (winner == null) {
+                ResponseStatus status = response.status();
+                if (copy.hedge && status != ResponseStatus.SUCCESS && status != ResponseStatus.CHUNKED) {
+                    return false;
+                }
+                winner = copy;
+                timeout.cancel();
+                CouchbaseRequest loser = copy.hedge ? primaryRequest : hedgeRequest;
+                if (loser != null) {
+                    loser.cancel();
+                }
+                if (copy.hedge) {
+                    wins.incrementAndGet(type);
+                }
+            }
+            return winner == copy && !original.timedOut();
+        }
+
+        /**
+         * Handles a copy which terminated without winning, returns true if the original request should fail since
+         * no copy is left running.
+         */
+        private synchronized boolean terminate(final Throwable e) {
+            running--;
+            if (e != null) {
+                error = e;
+            }
+            if (winner != null || running > 0) {
+                return false;
+            }
+            timeout.cancel();
+            return !original.timedOut();
+        }
+
+        /**
+         * One copy of the request, forwarding its responses to the original request if it won.
+         */
+        private final class Copy implements Observer<CouchbaseResponse> {
+
+            private final boolean hedge;
+            private boolean answered;
+
+            Copy(final boolean hedge) {
+                this.hedge = hedge;
+            }
+
+            @Override
+            public void onNext(final CouchbaseResponse response) {
+                if (!answered) {
+                    answered = true;
+                    if (!hedge) {
+                        record(type, start);
+                    }
+                }
+                if (claim(this, response)) {
+                    original.observable().onNext(response);
+                } else {
+                    release(response);
+                }
+            }
+
+            @Override
+            public void onCompleted() {
+                if (winner == this) {
+                    original.cancelTimeout();
+                    original.observable().onCompleted();
+                } else if (terminate(null)) {
+                    failOriginal();
+                }
+            }
+
+            @Override
+            public void onError(final Throwable e) {
+                if (winner == this) {
+                    original.cancelTimeout();
+                    original.observable().onError(e);
+                } else if (terminate(e)) {
+                    failOriginal();
+                }
+            }
+
+            private void failOriginal() {
+                original.cancelTimeout();
+                original.observable().onError(error != null ? error
+                    : new CouchbaseException("No copy of the hedged request answered successfully."));
+            }
+        }
+    }
+
+}
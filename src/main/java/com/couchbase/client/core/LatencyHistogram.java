@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Estimates a latency percentile over windows of recorded samples.
+ *
+ * Samples go into logarithmic buckets with four sub-buckets per power of two, so the estimate is accurate to about
+ * 25%. Once a window is full, the percentile is computed from it and the counts start over, so the estimate follows
+ * changes in latency without keeping old samples around. Recording and estimating never block, concurrent windows
+ * may overlap slightly, which is fine for an estimate.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+final class LatencyHistogram {
+
+    private static final int BUCKETS = 256;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong samples = new AtomicLong();
+    private final int window;
+    private final int percentile;
+
+    /**
+     * The percentile computed from the last full window, -1 until the first window is full.
+     */
+    private volatile long estimate = -1;
+
+    /**
+     * Creates a new {@link LatencyHistogram}.
+     *
+     * @param window the number of samples per window.
+     * @param percentile the percentile to estimate, between 1 and 99.
+     */
+    LatencyHistogram(final int window, final int percentile) {
+        this.window = window;
+        this.percentile = percentile;
+    }
+
+    /**
+     * Records a latency sample.
+     *
+     * @param latency the latency, in any unit.
+     */
+    void record(final long latency) {
+        counts.incrementAndGet(bucket(latency));
+        if (samples.incrementAndGet() % window == 0) {
+            estimate = drain();
+        }
+    }
+
+    /**
+     * Returns the percentile of the last full window.
+     *
+     * @return the estimated latency, -1 if no window is full yet.
+     */
+    long estimate() {
+        return estimate;
+    }
+
+    /**
+     * Computes the percentile from the current counts and resets them.
+     */
+    private long drain() {
+        long[] drained = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            drained[i] = counts.getAndSet(i, 0);
+            total += drained[i];
+        }
+        long target = (total * percentile + 99) / 100;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += drained[i];
+            if (seen >= target && drained[i] > 0) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    static int bucket(final long value) {
+        if (value < 4) {
+            return value < 0 ? 0 : (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (msb - 2)) & 3;
+        return 4 + ((msb - 2) << 2) + sub;
+    }
+
+    static long upperBound(final int bucket) {
+        if (bucket < 4) {
+            return bucket;
+        }
+        int shift = (bucket - 4) >>> 2;
+        long mantissa = 4 + ((bucket - 4) & 3);
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.message.binary.GetRequest;
+import com.couchbase.client.core.message.binary.GetResponse;
+import com.couchbase.client.core.message.binary.ReplicaGetRequest;
+import com.couchbase.client.core.message.binary.ReplicaMode;
+import io.netty.buffer.ByteBuf;
+import rx.Observer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Splits a {@link ReplicaGetRequest} which reads from more than one copy into one request per copy.
+ *
+ * The copies carry the password and the custom timeout of the original request and are sent on their own. The first
+ * successful {@link GetResponse} completes the original request and cancels the copies still outstanding, so they
+ * are neither retried nor kept waiting for a replica which is not available. Every other response is discarded and
+ * its content released. If no copy succeeds, the original request is completed with the last unsuccessful
+ * response, or fails with the last error if none of the copies responded.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+final class ReplicaFanOut implements Observer<CouchbaseResponse> {
+
+    /**
+     * The modes to read a single replica, indexed by replica number starting at 0.
+     */
+    private static final ReplicaMode[] SINGLE_REPLICAS = { ReplicaMode.FIRST, ReplicaMode.SECOND, ReplicaMode.THIRD };
+
+    private final ReplicaGetRequest original;
+    private final List<CouchbaseRequest> copies;
+    private final AtomicInteger pending;
+    private final AtomicBoolean done = new AtomicBoolean();
+    private final AtomicReference<CouchbaseResponse> fallback = new AtomicReference<CouchbaseResponse>();
+    private volatile Throwable error;
+
+    private ReplicaFanOut(final ReplicaGetRequest original, final int copies) {
+        this.original = original;
+        this.copies = new ArrayList<CouchbaseRequest>(copies);
+        this.pending = new AtomicInteger(copies);
+    }
+
+    /**
+     * Creates one request per copy the original request reads from.
+     *
+     * If there is no copy to read from, the original request fails right away.
+     *
+     * @param original the request to split up.
+     * @param replicas the number of replicas configured for the bucket.
+     * @return the requests to send, one per copy, their timeouts still need to be tracked.
+     */
+    static List<CouchbaseRequest> split(final ReplicaGetRequest original, final int replicas) {
+        int replicaCopies = Math.min(replicas, SINGLE_REPLICAS.length);
+        boolean master = original.mode() == ReplicaMode.MASTER_AND_ALL;
+        int copies = replicaCopies + (master ? 1 : 0);
+        if (copies == 0) {
+            original.cancelTimeout();
+            original.observable().onError(
+                new CouchbaseException("No replicas configured for bucket " + original.bucket()));
+            return Collections.emptyList();
+        }
+
+        ReplicaFanOut fanOut = new ReplicaFanOut(original, copies);
+        List<CouchbaseRequest> requests = fanOut.copies;
+        byte[] key = original.keyBytes();
+        if (master) {
+            requests.add(new GetRequest(key, original.bucket(), original.password()).timeout(original.timeout()));
+        }
+        for (int i = 0; i < replicaCopies; i++) {
+            requests.add(new ReplicaGetRequest(key, original.bucket(), original.password(), SINGLE_REPLICAS[i])
+                .timeout(original.timeout()));
+        }
+        for (int i = 0; i < copies; i++) {
+            requests.get(i).observable().subscribe(fanOut);
+        }
+        return Collections.unmodifiableList(requests);
+    }
+
+    @Override
+    public void onNext(final CouchbaseResponse response) {
+        if (response.status() == ResponseStatus.SUCCESS && done.compareAndSet(false, true)) {
+            complete(response);
+            release(fallback.getAndSet(null));
+            for (int i = 0; i < copies.size(); i++) {
+                copies.get(i).cancel();
+            }
+            return;
+        }
+        if (done.get()) {
+            release(response);
+            return;
+        }
+        release(fallback.getAndSet(response));
+        if (done.get()) {
+            release(fallback.getAndSet(null));
+        }
+    }
+
+    @Override
+    public void onError(final Throwable e) {
+        error = e;
+        terminated();
+    }
+
+    @Override
+    public void onCompleted() {
+        terminated();
+    }
+
+    /**
+     * Completes the original request with the fallback once every copy terminated without a successful response.
+     */
+    private void terminated() {
+        if (pending.decrementAndGet() > 0 || !done.compareAndSet(false, true)) {
+            return;
+        }
+        CouchbaseResponse response = fallback.getAndSet(null);
+        if (response != null) {
+            complete(response);
+        } else if (!original.timedOut()) {
+            original.cancelTimeout();
+            original.observable().onError(error);
+        }
+    }
+
+    private void complete(final CouchbaseResponse response) {
+        if (original.timedOut()) {
+            release(response);
+            return;
+        }
+        original.cancelTimeout();
+        original.observable().onNext(response);
+        original.observable().onCompleted();
+    }
+
+    private static void release(final CouchbaseResponse response) {
+        if (response instanceof GetResponse) {
+            ByteBuf content = ((GetResponse) response).document().content();
+            if (content != null && content.refCnt() > 0) {
+                content.release();
+            }
+        }
+    }
+
+}
@@ -23,21 +23,20 @@ package com.couchbase.client.core;
 
 import com.couchbase.client.core.config.BucketConfig;
 import com.couchbase.client.core.config.ClusterConfig;
+import com.couchbase.client.core.config.CouchbaseBucketConfig;
 import com.couchbase.client.core.config.NodeInfo;
 import com.couchbase.client.core.env.Environment;
 import com.couchbase.client.core.message.CouchbaseRequest;
-import com.couchbase.client.core.message.binary.BinaryRequest;
-import com.couchbase.client.core.message.config.ConfigRequest;
+import com.couchbase.client.core.message.RequestType;
+import com.couchbase.client.core.message.binary.ReplicaGetRequest;
 import com.couchbase.client.core.message.internal.AddServiceRequest;
 import com.couchbase.client.core.message.internal.RemoveServiceRequest;
-import com.couchbase.client.core.message.internal.SignalFlush;
-import com.couchbase.client.core.message.query.QueryRequest;
-import com.couchbase.client.core.message.view.ViewRequest;
 import com.couchbase.client.core.node.CouchbaseNode;
 import com.couchbase.client.core.node.Node;
 import com.couchbase.client.core.node.locate.BinaryLocator;
 import com.couchbase.client.core.node.locate.ConfigLocator;
 import com.couchbase.client.core.node.locate.Locator;
+import com.couchbase.client.core.node.locate.NodeLocality;
 import com.couchbase.client.core.node.locate.QueryLocator;
 import com.couchbase.client.core.node.locate.ViewLocator;
 import com.couchbase.client.core.service.Service;
@@ -72,25 +71,43 @@ public class RequestHandler implements EventHandler<RequestEvent> {
      */
     private static final int INITIAL_NODE_SIZE = 128;
 
+    /**
+     * Returned if a request has not been written to any node.
+     */
+    private static final Node[] NO_NODES = new Node[0];
+
     /**
      * The node locator for the binary service.
      */
-    private final Locator BINARY_LOCATOR = new BinaryLocator();
+    private final Locator BINARY_LOCATOR;
 
     /**
      * The node locator for the view service;
      */
-    private final Locator VIEW_LOCATOR = new ViewLocator();
+    private final Locator VIEW_LOCATOR;
 
-    private final Locator QUERY_LOCATOR = new QueryLocator();
+    private final Locator QUERY_LOCATOR;
 
     private final Locator CONFIG_LOCATOR = new ConfigLocator();
 
+    /**
+     * The locality groups of the nodes, shared by all locators.
+     */
+    private final NodeLocality locality;
+
     /**
      * The list of currently managed nodes against the cluster.
      */
     private final Set<Node> nodes;
 
+    /**
+     * An immutable copy of the managed nodes, handed to the locators.
+     *
+     * It is replaced on every change of the managed nodes or their services, so locators can tell by its identity
+     * alone whether the routing tables they compiled from it are still current.
+     */
+    private volatile Set<Node> nodeSnapshot;
+
     /**
      * The shared couchbase environment.
      */
@@ -106,12 +123,23 @@ public class RequestHandler implements EventHandler<RequestEvent> {
      */
     private final RingBuffer<ResponseEvent> responseBuffer;
 
+    /**
+     * Tracks the timeouts of the copies of fanned out replica reads.
+     */
+    private final TimeoutTracker timeoutTracker;
+
+    /**
+     * The nodes written to during the current batch, if this handler consumes its ringbuffer on its own.
+     */
+    private final DirtyNodes dirtyNodes = new DirtyNodes();
+
     /**
      * Create a new {@link RequestHandler}.
      */
     public RequestHandler(Environment environment, Observable<ClusterConfig> configObservable,
-        RingBuffer<ResponseEvent> responseBuffer) {
-        this(Collections.newSetFromMap(new ConcurrentHashMap<Node, Boolean>(INITIAL_NODE_SIZE)), environment, configObservable, responseBuffer);
+        RingBuffer<ResponseEvent> responseBuffer, TimeoutTracker timeoutTracker) {
+        this(Collections.newSetFromMap(new ConcurrentHashMap<Node, Boolean>(INITIAL_NODE_SIZE)), environment,
+            configObservable, responseBuffer, timeoutTracker);
     }
 
     /**
@@ -121,41 +149,115 @@ public class RequestHandler implements EventHandler<RequestEvent> {
      * @param nodes the node list to start with.
      */
     RequestHandler(Set<Node> nodes, Environment environment, Observable<ClusterConfig> configObservable,
-        RingBuffer<ResponseEvent> responseBuffer) {
+        RingBuffer<ResponseEvent> responseBuffer, TimeoutTracker timeoutTracker) {
         this.nodes = nodes;
+        this.nodeSnapshot = Collections.unmodifiableSet(new HashSet<Node>(nodes));
         this.environment = environment;
         this.responseBuffer = responseBuffer;
+        this.timeoutTracker = timeoutTracker;
+        locality = new NodeLocality(environment.localityGroup(), environment.localityNodeGroups());
+        BINARY_LOCATOR = new BinaryLocator(locality);
+        VIEW_LOCATOR = new ViewLocator(environment.viewNodeSelectionStrategy(), locality);
+        QUERY_LOCATOR = new QueryLocator(environment.queryNodeSelectionStrategy(), locality);
         configuration = new AtomicReference<ClusterConfig>();
 
         configObservable.subscribe(new Action1<ClusterConfig>() {
             @Override
             public void call(final ClusterConfig config) {
+                locality.update(config);
                 configuration.set(config);
                 reconfigure(config).subscribe();
             }
         });
     }
 
+    /**
+     * Dispatches the request and flushes every node written to during the batch once it ends.
+     *
+     * Since the written nodes are tracked per handler, this is only safe if the handler is the only consumer of its
+     * ringbuffer. Otherwise, attach a {@link RequestWorker} per consumer instead.
+     */
     @Override
     public void onEvent(final RequestEvent event, long sequence, final boolean endOfBatch) throws Exception {
         final CouchbaseRequest request = event.getRequest();
+        try {
+            dirtyNodes.add(dispatch(request));
+        } catch (Exception ex) {
+            request.observable().onError(ex);
+        } finally {
+            event.setRequest(null);
+        }
 
-        Node[] found = locator(request).locate(request, nodes, configuration.get());
+        if (endOfBatch) {
+            dirtyNodes.flush();
+        }
+    }
+
+    /**
+     * Locates the target {@link Node}s for the given request and writes the request into them.
+     *
+     * This method is safe to be called from more than one request consumer at the same time. Requests which have
+     * already timed out while waiting in the ringbuffer are dropped without being written.
+     *
+     * @param request the request to dispatch.
+     * @return the nodes the request has been written to, pending flush.
+     */
+    Node[] dispatch(final CouchbaseRequest request) {
+        if (request.timedOut()) {
+            return NO_NODES;
+        }
+        if (request.requestType() == RequestType.REPLICA_GET && ((ReplicaGetRequest) request).mode().fanOut()) {
+            return dispatchCopies((ReplicaGetRequest) request);
+        }
+        Node[] found = locator(request).locate(request, nodeSnapshot, configuration.get());
         if (found.length == 0) {
             responseBuffer.publishEvent(ResponseHandler.RESPONSE_TRANSLATOR, request, request.observable());
         }
         for (int i = 0; i < found.length; i++) {
             try {
                 found[i].send(request);
-                if (endOfBatch) {
-                    found[i].send(SignalFlush.INSTANCE);
-                }
-            } catch(Exception ex) {
+            } catch (Exception ex) {
                 request.observable().onError(ex);
-            } finally {
-                event.setRequest(null);
             }
         }
+        return found;
+    }
+
+    /**
+     * Splits a replica read into one request per copy and dispatches each of them.
+     *
+     * Without a configuration for the bucket the request is handed back to be retried, like any request which can not
+     * be located. Memcache buckets have no replicas, so only the master copy is read from them, if requested. Every
+     * copy gets its own timeout, so a copy for a replica which is not available is not retried forever.
+     *
+     * @param request the replica read reading more than one copy.
+     * @return the nodes the copies have been written to, pending flush.
+     */
+    private Node[] dispatchCopies(final ReplicaGetRequest request) {
+        ClusterConfig cluster = configuration.get();
+        BucketConfig config = cluster == null ? null : cluster.bucketConfig(request.bucket());
+        if (config == null) {
+            responseBuffer.publishEvent(ResponseHandler.RESPONSE_TRANSLATOR, request, request.observable());
+            return NO_NODES;
+        }
+        int replicas = config instanceof CouchbaseBucketConfig
+            ? ((CouchbaseBucketConfig) config).numberOfReplicas() : 0;
+        List<CouchbaseRequest> copies = ReplicaFanOut.split(request, replicas);
+
+        Node[] written = NO_NODES;
+        for (int i = 0; i < copies.size(); i++) {
+            timeoutTracker.track(copies.get(i));
+        }
+        for (int i = 0; i < copies.size(); i++) {
+            Node[] found = dispatch(copies.get(i));
+            if (found.length > 0) {
+                Node[] merged = new Node[written.length + found.length];
+                System.arraycopy(written, 0, merged, 0, written.length);
+                System.arraycopy(found, 0, merged, written.length, found.length);
+                written = merged;
+            }
+        }
+        return written;
     }
 
     /**
@@ -185,11 +287,15 @@ public class RequestHandler implements EventHandler<RequestEvent> {
     /**
      * Add the service to the node.
      *
+     * The node snapshot is replaced afterwards, since the nodes eligible for a service are derived from it.
+     *
      * @param request the request which contains infos about the service and node to add.
      * @return an observable which contains the newly created service.
      */
     public Observable<Service> addService(final AddServiceRequest request) {
-        return nodeBy(request.hostname()).addService(request);
+        Observable<Service> added = nodeBy(request.hostname()).addService(request);
+        refreshNodeSnapshot();
+        return added;
     }
 
     /**
@@ -199,7 +305,9 @@ public class RequestHandler implements EventHandler<RequestEvent> {
      * @return an observable which contains the removed service.
      */
     public Observable<Service> removeService(final RemoveServiceRequest request) {
-        return nodeBy(request.hostname()).removeService(request);
+        Observable<Service> removed = nodeBy(request.hostname()).removeService(request);
+        refreshNodeSnapshot();
+        return removed;
     }
 
     /**
@@ -217,6 +325,7 @@ public class RequestHandler implements EventHandler<RequestEvent> {
             @Override
             public LifecycleState call(LifecycleState lifecycleState) {
                 nodes.add(node);
+                refreshNodeSnapshot();
                 return lifecycleState;
             }
         });
@@ -230,9 +339,19 @@ public class RequestHandler implements EventHandler<RequestEvent> {
      */
     Observable<LifecycleState> removeNode(final Node node) {
         nodes.remove(node);
+        refreshNodeSnapshot();
         return node.disconnect();
     }
 
+    /**
+     * Replaces the node snapshot handed to the locators with a copy of the current nodes.
+     *
+     * Synchronized, so that the snapshot taken last always reflects the last change.
+     */
+    private synchronized void refreshNodeSnapshot() {
+        nodeSnapshot = Collections.unmodifiableSet(new HashSet<Node>(nodes));
+    }
+
     /**
      * Returns the node by its hostname.
      *
@@ -252,22 +371,32 @@ public class RequestHandler implements EventHandler<RequestEvent> {
         return null;
     }
 
+    /**
+     * Returns the locality groups of the nodes, including the number of requests routed to each group.
+     *
+     * @return the node locality.
+     */
+    public NodeLocality locality() {
+        return locality;
+    }
+
     /**
      * Helper method to detect the correct locator for the given request type.
      *
      * @return the locator for the given request type.
      */
     protected Locator locator(final CouchbaseRequest request) {
-        if (request instanceof BinaryRequest) {
-            return BINARY_LOCATOR;
-        } else if (request instanceof ViewRequest) {
-            return VIEW_LOCATOR;
-        } else if (request instanceof QueryRequest) {
-            return QUERY_LOCATOR;
-        } else if (request instanceof ConfigRequest) {
-            return CONFIG_LOCATOR;
-        } else {
-            throw new IllegalArgumentException("Unknown Request Type: " + request);
+        switch (ServiceType.forRequest(request)) {
+            case BINARY:
+                return BINARY_LOCATOR;
+            case VIEW:
+                return VIEW_LOCATOR;
+            case QUERY:
+                return QUERY_LOCATOR;
+            case CONFIG:
+                return CONFIG_LOCATOR;
+            default:
+                throw new IllegalArgumentException("Unknown Request Type: " + request);
         }
     }
 
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.binary.AbstractKeyAwareBinaryRequest;
+import com.couchbase.client.core.node.Node;
+import com.lmax.disruptor.EventHandler;
+
+import java.util.Arrays;
+
+/**
+ * One of several request consumers attached to the same request {@link com.lmax.disruptor.RingBuffer}.
+ *
+ * Every {@link RequestWorker} sees every event, but only dispatches those which map onto its own ordinal, so the
+ * dispatch work is spread over all workers without any coordination between them. Key-aware requests map by their
+ * key, which keeps operations on the same document in order, all others by their sequence. Since every worker runs its
+ * own batches, it tracks every {@link Node} it wrote to and flushes them once its batch ends, no matter who owns the
+ * last event of the batch.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+class RequestWorker implements EventHandler<RequestEvent> {
+
+    /**
+     * The handler which locates the nodes and manages them.
+     */
+    private final RequestHandler handler;
+
+    /**
+     * The ordinal of this worker, between 0 and workers - 1.
+     */
+    private final int ordinal;
+
+    /**
+     * The total number of workers on the ringbuffer.
+     */
+    private final int workers;
+
+    /**
+     * The nodes written to since the last flush.
+     */
+    private final DirtyNodes dirtyNodes = new DirtyNodes();
+
+    /**
+     * Creates a new {@link RequestWorker}.
+     *
+     * @param handler the shared request handler.
+     * @param ordinal the ordinal of this worker.
+     * @param workers the total number of workers.
+     */
+    RequestWorker(final RequestHandler handler, final int ordinal, final int workers) {
+        this.handler = handler;
+        this.ordinal = ordinal;
+        this.workers = workers;
+    }
+
+    /**
+     * Creates the given number of {@link RequestWorker}s which together handle every event exactly once.
+     *
+     * @param handler the shared request handler.
+     * @param workers the number of workers.
+     * @return the created workers.
+     */
+    static RequestWorker[] create(final RequestHandler handler, final int workers) {
+        RequestWorker[] created = new RequestWorker[workers];
+        for (int i = 0; i < workers; i++) {
+            created[i] = new RequestWorker(handler, i, workers);
+        }
+        return created;
+    }
+
+    @Override
+    public void onEvent(final RequestEvent event, final long sequence, final boolean endOfBatch) throws Exception {
+        // only the owner clears the slot, so a worker reading null has been beaten to it by the owner.
+        final CouchbaseRequest request = event.getRequest();
+        if (request != null && ownerOf(request, sequence, workers) == ordinal) {
+            try {
+                dirtyNodes.add(handler.dispatch(request));
+            } catch (Exception ex) {
+                request.observable().onError(ex);
+            } finally {
+                event.setRequest(null);
+            }
+        }
+
+        if (endOfBatch) {
+            dirtyNodes.flush();
+        }
+    }
+
+    /**
+     * Returns the ordinal of the worker which dispatches the given request.
+     *
+     * Key-aware requests are assigned by a hash of their key, so all operations on one document are dispatched by
+     * the same worker in the order they were published. The upper bits of the scrambled hash are used, since the
+     * lower bits already picked the ringbuffer shard. All other requests are spread by their sequence.
+     *
+     * @param request the request to dispatch.
+     * @param sequence the sequence of the request in the ringbuffer.
+     * @param workers the total number of workers.
+     * @return the ordinal of the owning worker.
+     */
+    static int ownerOf(final CouchbaseRequest request, final long sequence, final int workers) {
+        if (workers == 1) {
+            return 0;
+        }
+        if (request instanceof AbstractKeyAwareBinaryRequest) {
+            int hash = Arrays.hashCode(((AbstractKeyAwareBinaryRequest) request).keyBytes()) * 0x9E3779B9;
+            return (hash >>> 16) % workers;
+        }
+        return (int) (sequence % workers);
+    }
+
+}
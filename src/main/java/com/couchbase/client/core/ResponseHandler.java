@@ -1,35 +1,53 @@
 package com.couchbase.client.core;
 
 import com.couchbase.client.core.config.ConfigurationProvider;
+import com.couchbase.client.core.env.Environment;
 import com.couchbase.client.core.message.CouchbaseMessage;
 import com.couchbase.client.core.message.CouchbaseRequest;
 import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.RequestType;
 import com.couchbase.client.core.message.ResponseStatus;
 import com.couchbase.client.core.message.binary.BinaryResponse;
-import com.couchbase.client.core.message.internal.SignalConfigReload;
 import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.EventTranslatorTwoArg;
+import com.lmax.disruptor.LifecycleAware;
 import io.netty.util.CharsetUtil;
 import rx.Scheduler;
-import rx.Subscription;
 import rx.functions.Action0;
 import rx.schedulers.Schedulers;
 import rx.subjects.Subject;
 
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+public class ResponseHandler implements EventHandler<ResponseEvent>, LifecycleAware {
 
-public class ResponseHandler implements EventHandler<ResponseEvent> {
-
-    private final ClusterFacade cluster;
     private final ConfigurationProvider configurationProvider;
-    private final Scheduler.Worker worker;
 
+    /**
+     * Parks requests which need to be retried.
+     */
+    private final RetryScheduler retryScheduler;
 
-    public ResponseHandler(ClusterFacade cluster, ConfigurationProvider provider) {
-        this.cluster = cluster;
+    /**
+     * The workers completing the response observables, null if they are completed on the response thread.
+     */
+    private final Scheduler.Worker[] completionWorkers;
+
+    public ResponseHandler(Environment environment, ClusterFacade cluster, ConfigurationProvider provider) {
+        this(environment, provider, new RetryScheduler(environment, cluster));
+    }
+
+    ResponseHandler(Environment environment, ConfigurationProvider provider, RetryScheduler retryScheduler) {
         this.configurationProvider = provider;
-        this.worker = Schedulers.computation().createWorker();
+        this.retryScheduler = retryScheduler;
+
+        int workers = environment.responseCompletionWorkers();
+        if (workers > 0) {
+            completionWorkers = new Scheduler.Worker[workers];
+            for (int i = 0; i < workers; i++) {
+                completionWorkers[i] = Schedulers.computation().createWorker();
+            }
+        } else {
+            completionWorkers = null;
+        }
     }
 
     /**
@@ -60,21 +78,18 @@ public class ResponseHandler implements EventHandler<ResponseEvent> {
     @Override
     public void onEvent(final ResponseEvent event, long sequence, boolean endOfBatch) throws Exception {
         CouchbaseMessage message = event.getMessage();
-        if (message instanceof SignalConfigReload) {
-            configurationProvider.signalOutdated();
-        } else if (message instanceof CouchbaseResponse) {
+        if (message instanceof CouchbaseResponse) {
             CouchbaseResponse response = (CouchbaseResponse) message;
             ResponseStatus status = response.status();
             switch(status) {
                 case CHUNKED:
-                    event.getObservable().onNext(response);
+                    complete(event.getObservable(), response, false);
                     break;
                 case SUCCESS:
                 case EXISTS:
                 case NOT_EXISTS:
                 case FAILURE:
-                    event.getObservable().onNext(response);
-                    event.getObservable().onCompleted();
+                    complete(event.getObservable(), response, true);
                     break;
                 case RETRY:
                     retry(event);
@@ -83,12 +98,48 @@ public class ResponseHandler implements EventHandler<ResponseEvent> {
                     throw new UnsupportedOperationException("fixme");
             }
         } else if (message instanceof CouchbaseRequest) {
-            retry(event);
+            if (((CouchbaseRequest) message).requestType() == RequestType.SIGNAL_CONFIG_RELOAD) {
+                configurationProvider.signalOutdated();
+            } else {
+                retry(event);
+            }
         } else {
             throw new IllegalStateException("Got message type I do not understand: " + message);
         }
     }
 
+    /**
+     * Pushes the response into the observable, either directly or through one of the completion workers.
+     *
+     * All responses of one observable always go to the same worker, so chunked responses stay in order while
+     * slow subscribers only hold up the other observables sharing their worker.
+     *
+     * @param observable the observable to complete.
+     * @param response the response to push.
+     * @param last true if no more responses follow for this observable.
+     */
+    private void complete(final Subject<CouchbaseResponse, CouchbaseResponse> observable,
+        final CouchbaseResponse response, final boolean last) {
+        if (completionWorkers == null) {
+            observable.onNext(response);
+            if (last) {
+                observable.onCompleted();
+            }
+            return;
+        }
+
+        int id = (System.identityHashCode(observable) & Integer.MAX_VALUE) % completionWorkers.length;
+        completionWorkers[id].schedule(new Action0() {
+            @Override
+            public void call() {
+                observable.onNext(response);
+                if (last) {
+                    observable.onCompleted();
+                }
+            }
+        });
+    }
+
     private void retry(final ResponseEvent event) {
         final CouchbaseMessage message = event.getMessage();
         if (message instanceof CouchbaseRequest) {
@@ -112,13 +163,20 @@ public class ResponseHandler implements EventHandler<ResponseEvent> {
     }
 
     private void scheduleForRetry(final CouchbaseRequest request) {
-        final AtomicReference<Subscription> subscription = new AtomicReference<Subscription>();
-        subscription.set(worker.schedule(new Action0() {
-            @Override
-            public void call() {
-                cluster.send(request);
-                subscription.get().unsubscribe();
+        retryScheduler.schedule(request);
+    }
+
+    @Override
+    public void onStart() {
+    }
+
+    @Override
+    public void onShutdown() {
+        retryScheduler.shutdown();
+        if (completionWorkers != null) {
+            for (Scheduler.Worker completionWorker : completionWorkers) {
+                completionWorker.unsubscribe();
             }
-        }, 10, TimeUnit.MILLISECONDS));
+        }
     }
 }
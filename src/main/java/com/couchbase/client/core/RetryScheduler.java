@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.env.Environment;
+import com.couchbase.client.core.message.CouchbaseRequest;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules {@link CouchbaseRequest}s for another attempt with exponential backoff and jitter.
+ *
+ * All parked requests share one {@link HashedWheelTimer}, so scheduling a retry is constant time and only costs one
+ * small timeout object, even with lots of requests waiting at the same time (for example during a rebalance).
+ *
+ * The delay doubles with every attempt of a request, starting at the initial delay and capped at the maximum delay.
+ * Only the upper half of the delay is randomized, so that requests failing at the same time do not all come back at
+ * the same time. Once a request exceeds the maximum number of attempts, it is failed with a
+ * {@link RetryLimitException}.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+public class RetryScheduler {
+
+    /**
+     * The tick duration of the timer wheel in milliseconds, the same as for the {@link TimeoutTracker}.
+     */
+    private static final long TICK_DURATION = 10;
+
+    /**
+     * A preconstructed {@link RetryLimitException}.
+     */
+    private static final RetryLimitException RETRY_LIMIT_EXCEPTION = new RetryLimitException();
+
+    /**
+     * Populate the static exceptions with stack trace elements.
+     */
+    static {
+        RETRY_LIMIT_EXCEPTION.setStackTrace(new StackTraceElement[0]);
+    }
+
+    /**
+     * Randomizes the delays, one instance per thread so that concurrent schedulers do not contend on its seed.
+     */
+    private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    /**
+     * The cluster to send the retried requests into.
+     */
+    private final ClusterFacade cluster;
+
+    /**
+     * The timer holding all parked requests.
+     */
+    private final Timer timer;
+
+    private final long initialDelay;
+    private final long maxDelay;
+    private final int maxAttempts;
+
+    /**
+     * Creates a new {@link RetryScheduler} with the backoff settings of the environment.
+     *
+     * @param environment the environment to load the settings from.
+     * @param cluster the cluster to send the retried requests into.
+     */
+    public RetryScheduler(final Environment environment, final ClusterFacade cluster) {
+        this(cluster, new HashedWheelTimer(new DefaultThreadFactory("cb-retry", true), TICK_DURATION,
+            TimeUnit.MILLISECONDS), environment.retryInitialDelay(), environment.retryMaxDelay(),
+            environment.retryMaxAttempts());
+    }
+
+    /**
+     * Creates a new {@link RetryScheduler} with a custom timer.
+     *
+     * @param cluster the cluster to send the retried requests into.
+     * @param timer the timer to park the requests on.
+     * @param initialDelay the delay before the first retry in milliseconds.
+     * @param maxDelay the maximum delay between two retries in milliseconds.
+     * @param maxAttempts the maximum number of retries per request, 0 to retry forever.
+     */
+    RetryScheduler(final ClusterFacade cluster, final Timer timer, final long initialDelay, final long maxDelay,
+        final int maxAttempts) {
+        this.cluster = cluster;
+        this.timer = timer;
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Parks the request and sends it into the cluster again once its backoff delay has passed.
+     *
+     * @param request the request to retry.
+     * @return true if the request has been scheduled, false if it has been failed or has timed out instead.
+     */
+    public boolean schedule(final CouchbaseRequest request) {
+        if (request.timedOut()) {
+            return false;
+        }
+        int attempt = request.incrementRetryCount();
+        if (maxAttempts > 0 && attempt > maxAttempts) {
+            request.cancelTimeout();
+            request.observable().onError(RETRY_LIMIT_EXCEPTION);
+            return false;
+        }
+
+        timer.newTimeout(new RetryTask(request), delay(attempt), TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * Calculates the jittered delay for the given attempt.
+     *
+     * @param attempt the attempt, starting at 1.
+     * @return the delay in milliseconds.
+     */
+    long delay(final int attempt) {
+        long delay = initialDelay << Math.min(attempt - 1, 30);
+        if (delay <= 0 || delay > maxDelay) {
+            delay = maxDelay;
+        }
+        long half = delay >> 1;
+        return half + (long) (RANDOM.get().nextDouble() * (delay - half));
+    }
+
+    /**
+     * Stops the timer, all parked requests are dropped.
+     */
+    public void shutdown() {
+        timer.stop();
+    }
+
+    /**
+     * Sends the parked request into the cluster once the timer fires.
+     */
+    private final class RetryTask implements TimerTask {
+
+        private final CouchbaseRequest request;
+
+        RetryTask(final CouchbaseRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public void run(final Timeout timeout) throws Exception {
+            cluster.send(request);
+        }
+    }
+
+}
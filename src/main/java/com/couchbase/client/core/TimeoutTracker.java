@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.env.Environment;
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.service.ServiceType;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the timeouts of all outstanding {@link CouchbaseRequest}s.
+ *
+ * Every request gets the default timeout of its {@link ServiceType} unless it carries a custom one. All of them
+ * share one {@link HashedWheelTimer}, so arming and cancelling a timeout is constant time and does not involve a
+ * scheduler task per operation. Once a timeout expires, the request is failed with a {@link RequestTimeoutException}
+ * and is not written anymore if it is still waiting to be dispatched or retried.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+public class TimeoutTracker {
+
+    /**
+     * The tick duration of the timer wheel in milliseconds.
+     */
+    private static final long TICK_DURATION = 10;
+
+    /**
+     * A preconstructed {@link RequestTimeoutException}.
+     */
+    private static final RequestTimeoutException TIMEOUT_EXCEPTION = new RequestTimeoutException();
+
+    /**
+     * Populate the static exceptions with stack trace elements.
+     */
+    static {
+        TIMEOUT_EXCEPTION.setStackTrace(new StackTraceElement[0]);
+    }
+
+    /**
+     * The timer holding all pending timeouts.
+     */
+    private final Timer timer;
+
+    /**
+     * The default timeouts in milliseconds, indexed by {@link ServiceType#ordinal()}.
+     */
+    private final long[] defaultTimeouts;
+
+    /**
+     * Creates a new {@link TimeoutTracker} with the default timeouts of the environment.
+     *
+     * @param environment the environment to load the settings from.
+     */
+    public TimeoutTracker(final Environment environment) {
+        this(new HashedWheelTimer(new DefaultThreadFactory("cb-timeout", true), TICK_DURATION,
+            TimeUnit.MILLISECONDS), defaultTimeouts(environment));
+    }
+
+    /**
+     * Creates a new {@link TimeoutTracker} with a custom timer.
+     *
+     * @param timer the timer to track the timeouts on.
+     * @param defaultTimeouts the default timeouts in milliseconds, indexed by {@link ServiceType#ordinal()}.
+     */
+    TimeoutTracker(final Timer timer, final long[] defaultTimeouts) {
+        this.timer = timer;
+        this.defaultTimeouts = defaultTimeouts;
+    }
+
+    /**
+     * Loads the default timeout of every {@link ServiceType} from the environment.
+     *
+     * @param environment the environment to load the settings from.
+     * @return the timeouts indexed by {@link ServiceType#ordinal()}.
+     */
+    private static long[] defaultTimeouts(final Environment environment) {
+        long[] timeouts = new long[ServiceType.values().length];
+        timeouts[ServiceType.BINARY.ordinal()] = environment.binaryServiceTimeout();
+        timeouts[ServiceType.VIEW.ordinal()] = environment.viewServiceTimeout();
+        timeouts[ServiceType.QUERY.ordinal()] = environment.queryServiceTimeout();
+        timeouts[ServiceType.CONFIG.ordinal()] = environment.configServiceTimeout();
+        return timeouts;
+    }
+
+    /**
+     * Arms the timeout of the given request.
+     *
+     * @param request the request to track.
+     */
+    public void track(final CouchbaseRequest request) {
+        long timeout = timeoutFor(request);
+        if (timeout > 0) {
+            request.timeoutHandle(timer.newTimeout(new TimeoutTask(request), timeout, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Returns the timeout which applies to the given request.
+     *
+     * @param request the request to check.
+     * @return the timeout in milliseconds, 0 if the request never times out.
+     */
+    long timeoutFor(final CouchbaseRequest request) {
+        long timeout = request.timeout();
+        return timeout > 0 ? timeout : defaultTimeouts[ServiceType.forRequest(request).ordinal()];
+    }
+
+    /**
+     * Stops the timer, all pending timeouts are dropped.
+     */
+    public void shutdown() {
+        timer.stop();
+    }
+
+    /**
+     * Fails the request once the timer fires.
+     */
+    private static final class TimeoutTask implements TimerTask {
+
+        private final CouchbaseRequest request;
+
+        TimeoutTask(final CouchbaseRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public void run(final Timeout timeout) throws Exception {
+            request.observable().onError(TIMEOUT_EXCEPTION);
+        }
+    }
+
+}
@@ -23,7 +23,7 @@ public abstract class AbstractBucketConfig implements BucketConfig {
         } else {
             List<NodeInfo> modified = new ArrayList<NodeInfo>();
             for (int i = 0; i < nodeInfos.size(); i++) {
-                modified.add(new DefaultNodeInfo(nodeInfos.get(i).viewUri(), nodeInfos.get(i).hostname(), portInfos.get(i).ports(), portInfos.get(i).sslPorts()));
+                modified.add(new DefaultNodeInfo(nodeInfos.get(i).viewUri(), nodeInfos.get(i).hostname(), portInfos.get(i).ports(), portInfos.get(i).sslPorts(), nodeInfos.get(i).serverGroup()));
             }
             this.nodeInfo = modified;
         }
@@ -45,13 +45,16 @@ public class DefaultNodeInfo implements NodeInfo {
     private int configPort;
     private final Map<ServiceType, Integer> directServices;
     private final Map<ServiceType, Integer> sslServices;
+    private final String serverGroup;
 
     @JsonCreator
     public DefaultNodeInfo(
         @JsonProperty("couchApiBase") String viewUri,
         @JsonProperty("hostname") String hostname,
-        @JsonProperty("ports") Map<String, Integer> ports) {
+        @JsonProperty("ports") Map<String, Integer> ports,
+        @JsonProperty("serverGroup") String serverGroup) {
         this.viewUri = viewUri;
+        this.serverGroup = serverGroup;
         try {
             this.hostname = InetAddress.getByName(trimPort(hostname));
         } catch (UnknownHostException e) {
@@ -62,10 +65,16 @@ public class DefaultNodeInfo implements NodeInfo {
     }
 
     public DefaultNodeInfo(String viewUri, InetAddress hostname, Map<ServiceType, Integer> direct, Map<ServiceType, Integer> ssl) {
+        this(viewUri, hostname, direct, ssl, null);
+    }
+
+    public DefaultNodeInfo(String viewUri, InetAddress hostname, Map<ServiceType, Integer> direct,
+        Map<ServiceType, Integer> ssl, String serverGroup) {
         this.viewUri = viewUri;
         this.hostname = hostname;
         this.directServices = direct;
         this.sslServices = ssl;
+        this.serverGroup = serverGroup;
     }
 
     @Override
@@ -88,6 +97,11 @@ public class DefaultNodeInfo implements NodeInfo {
         return sslServices;
     }
 
+    @Override
+    public String serverGroup() {
+        return serverGroup;
+    }
+
     private Map<ServiceType, Integer> parseDirectServices(final Map<String, Integer> input) {
         Map<ServiceType, Integer> services = new HashMap<ServiceType, Integer>();
         for (Map.Entry<String, Integer> entry : input.entrySet()) {
@@ -116,6 +130,7 @@ public class DefaultNodeInfo implements NodeInfo {
         sb.append(", configPort=").append(configPort);
         sb.append(", directServices=").append(directServices);
         sb.append(", sslServices=").append(sslServices);
+        sb.append(", serverGroup=").append(serverGroup);
         sb.append('}');
         return sb.toString();
     }
@@ -65,5 +65,12 @@ public interface NodeInfo {
      */
     Map<ServiceType, Integer> sslServices();
 
+    /**
+     * The server group (rack or availability zone) the node has been assigned to.
+     *
+     * @return the name of the server group, or null if the configuration does not contain one.
+     */
+    String serverGroup();
+
 
 }
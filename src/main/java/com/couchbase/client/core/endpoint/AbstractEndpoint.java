@@ -25,6 +25,7 @@ import com.couchbase.client.core.ResponseEvent;
 import com.couchbase.client.core.ResponseHandler;
 import com.couchbase.client.core.env.Environment;
 import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.PriorityRequest;
 import com.couchbase.client.core.message.internal.SignalConfigReload;
 import com.couchbase.client.core.message.internal.SignalFlush;
 import com.couchbase.client.core.state.AbstractStateMachine;
@@ -51,6 +52,8 @@ import rx.subjects.AsyncSubject;
 
 import javax.net.ssl.SSLEngine;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The default implementation of a {@link Endpoint}.
@@ -109,8 +112,15 @@ public abstract class AbstractEndpoint extends AbstractStateMachine<LifecycleSta
 
     /**
      * True if there have been operations written, pending flush.
+     *
+     * Cleared before flushing, so that a write from another request consumer racing with the flush is never lost.
+     */
+    private final AtomicBoolean hasWritten = new AtomicBoolean();
+
+    /**
+     * The number of requests encoded into the channel which did not complete yet.
      */
-    private volatile boolean hasWritten;
+    private final AtomicInteger outstanding = new AtomicInteger();
 
     /**
      * Number of reconnects already done.
@@ -181,7 +191,8 @@ public abstract class AbstractEndpoint extends AbstractStateMachine<LifecycleSta
                         pipeline.addLast(LOGGING_HANDLER_INSTANCE);
                     }
                     customEndpointHandlers(pipeline);
-                    pipeline.addLast(new GenericEndpointHandler(AbstractEndpoint.this, responseBuffer));
+                    pipeline.addLast(new GenericEndpointHandler(AbstractEndpoint.this, responseBuffer,
+                        correlatesResponses()));
                 }
             }));
     }
@@ -196,6 +207,17 @@ public abstract class AbstractEndpoint extends AbstractStateMachine<LifecycleSta
      */
     protected abstract void customEndpointHandlers(ChannelPipeline pipeline);
 
+    /**
+     * Returns if the custom handlers correlate responses to their requests and emit {@link CorrelatedResponse}s.
+     *
+     * Endpoints which answer requests strictly in order do not need to override this method.
+     *
+     * @return true if responses are correlated by the codec, false if they arrive in request order.
+     */
+    protected boolean correlatesResponses() {
+        return false;
+    }
+
     @Override
     public Observable<LifecycleState> connect() {
         if (state() != LifecycleState.DISCONNECTED) {
@@ -274,18 +296,28 @@ public abstract class AbstractEndpoint extends AbstractStateMachine<LifecycleSta
         return observable;
     }
 
+    /**
+     * Writes the request into the channel, to be flushed once the {@link SignalFlush} arrives.
+     *
+     * {@link PriorityRequest}s are flushed right away and skip the {@link Channel#isWritable()} back-pressure check,
+     * so they are not bounced while data traffic saturates the channel. They still share the channel with the data
+     * requests and are queued behind everything already written to it.
+     *
+     * @param request the request to send.
+     */
     @Override
     public void send(final CouchbaseRequest request) {
         if (state() == LifecycleState.CONNECTED) {
             if (request instanceof SignalFlush) {
-                if (hasWritten) {
+                if (hasWritten.compareAndSet(true, false)) {
                     channel.flush();
-                    hasWritten = false;
                 }
+            } else if (request instanceof PriorityRequest) {
+                channel.writeAndFlush(request, channel.voidPromise());
             } else {
                 if (channel.isWritable()) {
                     channel.write(request, channel.voidPromise());
-                    hasWritten = true;
+                    hasWritten.set(true);
                 } else {
                     responseBuffer.publishEvent(ResponseHandler.RESPONSE_TRANSLATOR, request, request.observable());
                 }
@@ -306,6 +338,25 @@ public abstract class AbstractEndpoint extends AbstractStateMachine<LifecycleSta
      *
      * Subsequent reconnect attempts are triggered from here.
      */
+    @Override
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Called by the handler once a request has been encoded and waits for its response.
+     */
+    void notifyRequestWritten() {
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * Called by the handler once a request got its (last) response or has been rescheduled.
+     */
+    void notifyRequestCompleted() {
+        outstanding.decrementAndGet();
+    }
+
     public void notifyChannelInactive() {
         responseBuffer.publishEvent(ResponseHandler.RESPONSE_TRANSLATOR, SignalConfigReload.INSTANCE, null);
         if (state() == LifecycleState.CONNECTED || state() == LifecycleState.CONNECTING) {
@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.endpoint;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseResponse;
+
+/**
+ * A decoded {@link CouchbaseResponse} together with the {@link CouchbaseRequest} it answers.
+ *
+ * Codecs of protocols which match responses to requests by an id (like the opaque of the binary protocol) emit
+ * these instead of plain responses, so the {@link GenericEndpointHandler} completes the right request no matter in
+ * which order the responses arrive.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+public final class CorrelatedResponse {
+
+    private final CouchbaseRequest request;
+    private final CouchbaseResponse response;
+
+    public CorrelatedResponse(final CouchbaseRequest request, final CouchbaseResponse response) {
+        this.request = request;
+        this.response = response;
+    }
+
+    public CouchbaseRequest request() {
+        return request;
+    }
+
+    public CouchbaseResponse response() {
+        return response;
+    }
+
+    @Override
+    public String toString() {
+        return "CorrelatedResponse{" +
+            "request=" + request +
+            ", response=" + response +
+            '}';
+    }
+}
@@ -56,4 +56,11 @@ public interface Endpoint extends Stateful<LifecycleState> {
      */
     void send(CouchbaseRequest request);
 
+    /**
+     * Returns the number of requests written to the channel which still wait for their response.
+     *
+     * @return the number of outstanding requests.
+     */
+    int outstanding();
+
 }
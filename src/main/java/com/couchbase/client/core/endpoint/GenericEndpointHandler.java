@@ -26,7 +26,12 @@ import com.couchbase.client.core.ResponseHandler;
 import com.couchbase.client.core.message.CouchbaseRequest;
 import com.couchbase.client.core.message.CouchbaseResponse;
 import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.message.binary.BinaryResponse;
+import com.couchbase.client.core.message.binary.GetBucketConfigResponse;
+import com.couchbase.client.core.message.document.CoreDocument;
+import com.couchbase.client.core.message.view.ViewQueryResponse;
 import com.lmax.disruptor.RingBuffer;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.CombinedChannelDuplexHandler;
 import io.netty.handler.codec.MessageToMessageDecoder;
@@ -42,6 +47,10 @@ import java.util.Queue;
 /**
  * Generic handler which is responsible for general request/response management of the pipeline.
  *
+ * Requests of protocols which answer in order are kept in a queue and completed by the responses in turn. Codecs of
+ * protocols which correlate responses by an id keep their in-flight requests themselves and hand each response over
+ * as a {@link CorrelatedResponse}, together with every request left unanswered once the channel goes away.
+ *
  * @author Michael Nitschinger
  * @since 1.0
  */
@@ -56,7 +65,12 @@ public class GenericEndpointHandler extends CombinedChannelDuplexHandler<Generic
     private final AbstractEndpoint endpoint;
 
     /**
-     * A queue which holds all the outgoing request in order.
+     * If the codec in front of this handler correlates responses to their requests.
+     */
+    private final boolean correlated;
+
+    /**
+     * A queue which holds all the outgoing request in order, unless responses are correlated by the codec.
      */
     private final Queue<CouchbaseRequest> queue = new ArrayDeque<CouchbaseRequest>();
 
@@ -77,9 +91,22 @@ public class GenericEndpointHandler extends CombinedChannelDuplexHandler<Generic
      * @param responseBuffer the response buffer where to write response into.
      */
     public GenericEndpointHandler(final AbstractEndpoint endpoint, final RingBuffer<ResponseEvent> responseBuffer) {
+        this(endpoint, responseBuffer, false);
+    }
+
+    /**
+     * Creates a new {@link GenericEndpointHandler}.
+     *
+     * @param endpoint the endpoint reference.
+     * @param responseBuffer the response buffer where to write response into.
+     * @param correlated true if the codec emits {@link CorrelatedResponse}s instead of answering in order.
+     */
+    public GenericEndpointHandler(final AbstractEndpoint endpoint, final RingBuffer<ResponseEvent> responseBuffer,
+        final boolean correlated) {
         init(new EventResponseDecoder(), new EventRequestEncoder());
         this.endpoint = endpoint;
         this.responseBuffer = responseBuffer;
+        this.correlated = correlated;
     }
 
     /**
@@ -123,13 +150,28 @@ public class GenericEndpointHandler extends CombinedChannelDuplexHandler<Generic
     }
 
     private void rescheduleOutstandingOps() {
+        if (currentRequest != null) {
+            currentRequest = null;
+            endpoint.notifyRequestCompleted();
+        }
         if (queue.isEmpty()) {
             return;
         }
         LOGGER.debug("Rescheduling " + queue.size() + " outstanding requests on " + endpoint.getClass().getSimpleName());
         while(!queue.isEmpty()) {
-            CouchbaseRequest req = queue.poll();
-            responseBuffer.publishEvent(ResponseHandler.RESPONSE_TRANSLATOR, req, req.observable());
+            reschedule(queue.poll());
+        }
+    }
+
+    /**
+     * Hands a request which will not be answered on this channel back to be retried, unless it already timed out.
+     *
+     * @param request the unanswered request.
+     */
+    private void reschedule(final CouchbaseRequest request) {
+        endpoint.notifyRequestCompleted();
+        if (!request.timedOut()) {
+            responseBuffer.publishEvent(ResponseHandler.RESPONSE_TRANSLATOR, request, request.observable());
         }
     }
 
@@ -141,30 +183,89 @@ public class GenericEndpointHandler extends CombinedChannelDuplexHandler<Generic
         @Override
         protected void encode(final ChannelHandlerContext ctx, final CouchbaseRequest msg,
             final List<Object> out) throws Exception {
-            queue.offer(msg);
+            if (!correlated) {
+                queue.offer(msg);
+            }
+            endpoint.notifyRequestWritten();
             out.add(msg);
         }
 
     }
 
     /**
-     * The {@link EventResponseDecoder} takes the {@link CouchbaseRequest} off the queue and completes the promise.
+     * The {@link EventResponseDecoder} completes the promise of the {@link CouchbaseRequest} a response belongs to.
+     *
+     * Plain responses belong to the request at the head of the queue, {@link CorrelatedResponse}s name their request
+     * and requests handed back by the codec have not been answered at all.
      */
-    final class EventResponseDecoder extends MessageToMessageDecoder<CouchbaseResponse> {
+    final class EventResponseDecoder extends MessageToMessageDecoder<Object> {
 
         @Override
-        @SuppressWarnings("unchecked")
-        protected void decode(final ChannelHandlerContext ctx, final CouchbaseResponse in, final List<Object> out)
+        public boolean acceptInboundMessage(final Object msg) throws Exception {
+            return msg instanceof CouchbaseResponse || msg instanceof CorrelatedResponse
+                || msg instanceof CouchbaseRequest;
+        }
+
+        @Override
+        protected void decode(final ChannelHandlerContext ctx, final Object in, final List<Object> out)
             throws Exception {
-            if (currentRequest == null) {
-                currentRequest = queue.poll();
+            if (in instanceof CorrelatedResponse) {
+                CorrelatedResponse correlatedResponse = (CorrelatedResponse) in;
+                complete(correlatedResponse.request(), correlatedResponse.response());
+            } else if (in instanceof CouchbaseResponse) {
+                if (currentRequest == null) {
+                    currentRequest = queue.poll();
+                }
+                CouchbaseResponse response = (CouchbaseResponse) in;
+                complete(currentRequest, response);
+                if (response.status() != ResponseStatus.CHUNKED) {
+                    currentRequest = null;
+                }
+            } else {
+                reschedule((CouchbaseRequest) in);
             }
+        }
 
-            responseBuffer.publishEvent(ResponseHandler.RESPONSE_TRANSLATOR, in, currentRequest.observable());
-            if (in.status() != ResponseStatus.CHUNKED) {
-                currentRequest = null;
+        /**
+         * Publishes the response for its request, unless the request already timed out.
+         *
+         * The timeout already failed the request, so nobody would consume a late response and its buffers are
+         * released right away.
+         */
+        private void complete(final CouchbaseRequest request, final CouchbaseResponse response) {
+            ResponseStatus status = response.status();
+            if (request.timedOut()) {
+                release(response);
+            } else {
+                if (status != ResponseStatus.CHUNKED && status != ResponseStatus.RETRY) {
+                    request.cancelTimeout();
+                }
+                responseBuffer.publishEvent(ResponseHandler.RESPONSE_TRANSLATOR, response, request.observable());
+            }
+            if (status != ResponseStatus.CHUNKED) {
+                endpoint.notifyRequestCompleted();
             }
         }
 
     }
+
+    /**
+     * Releases the content of a response which is not handed on.
+     *
+     * @param response the response to release.
+     */
+    private static void release(final CouchbaseResponse response) {
+        ByteBuf content = null;
+        if (response instanceof GetBucketConfigResponse) {
+            content = ((GetBucketConfigResponse) response).content();
+        } else if (response instanceof BinaryResponse) {
+            CoreDocument document = ((BinaryResponse) response).document();
+            content = document == null ? null : document.content();
+        } else if (response instanceof ViewQueryResponse) {
+            content = ((ViewQueryResponse) response).content();
+        }
+        if (content != null && content.refCnt() > 0) {
+            content.release();
+        }
+    }
 }
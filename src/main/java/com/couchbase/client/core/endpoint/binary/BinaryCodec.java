@@ -21,13 +21,14 @@
  */
 package com.couchbase.client.core.endpoint.binary;
 
+import com.couchbase.client.core.endpoint.CorrelatedResponse;
 import com.couchbase.client.core.env.Environment;
 import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseResponse;
 import com.couchbase.client.core.message.ResponseStatus;
 import com.couchbase.client.core.message.binary.AbstractCoreDocumentBinaryRequest;
 import com.couchbase.client.core.message.binary.AbstractKeyAwareBinaryRequest;
 import com.couchbase.client.core.message.binary.BinaryRequest;
-import com.couchbase.client.core.message.binary.GetBucketConfigRequest;
 import com.couchbase.client.core.message.binary.GetBucketConfigResponse;
 import com.couchbase.client.core.message.binary.GetRequest;
 import com.couchbase.client.core.message.binary.GetResponse;
@@ -37,6 +38,7 @@ import com.couchbase.client.core.message.binary.RemoveRequest;
 import com.couchbase.client.core.message.binary.RemoveResponse;
 import com.couchbase.client.core.message.binary.ReplaceRequest;
 import com.couchbase.client.core.message.binary.ReplaceResponse;
+import com.couchbase.client.core.message.binary.ReplicaGetRequest;
 import com.couchbase.client.core.message.binary.UpsertRequest;
 import com.couchbase.client.core.message.binary.UpsertResponse;
 import com.couchbase.client.core.message.document.CoreDocument;
@@ -45,37 +47,74 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageCodec;
 import io.netty.handler.codec.compression.Snappy;
 import io.netty.handler.codec.memcache.binary.BinaryMemcacheOpcodes;
-import io.netty.handler.codec.memcache.binary.BinaryMemcacheRequest;
 import io.netty.handler.codec.memcache.binary.BinaryMemcacheResponseStatus;
-import io.netty.handler.codec.memcache.binary.DefaultBinaryMemcacheRequest;
-import io.netty.handler.codec.memcache.binary.DefaultFullBinaryMemcacheRequest;
-import io.netty.handler.codec.memcache.binary.FullBinaryMemcacheRequest;
 import io.netty.handler.codec.memcache.binary.FullBinaryMemcacheResponse;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.util.ArrayDeque;
 import java.util.List;
-import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Codec that handles encoding of binary memcache requests and decoding of binary memcache responses.
  *
+ * Requests are written straight into their wire format through the {@link BinaryRequestEncoder}.
+ *
+ * Every request written gets the next opaque of the channel and stays in flight until the response carrying the same
+ * opaque arrives, so responses are matched to their requests regardless of their order. Responses for unknown
+ * opaques are dropped, and requests still in flight when the channel goes inactive are handed back to be retried.
+ * Requests which timed out are already answered, so while the channel is active they are evicted from the in-flight
+ * map every {@link #SWEEP_INTERVAL} milliseconds. Evicted requests are handed on like unanswered ones, so that the
+ * endpoint stops counting them as outstanding.
+ *
+ * Decoded documents hold a retained slice of the aggregated response instead of a copy, and flags and expiration are
+ * read from the extras in place. The consumer of a document is responsible for releasing its content.
+ *
  * @author Michael Nitschinger
  * @author David Sondermann
  * @since 1.0
  */
 public class BinaryCodec extends MessageToMessageCodec<FullBinaryMemcacheResponse, BinaryRequest> {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(BinaryCodec.class);
+
+    private static final byte GET_REPLICA_OPCODE = (byte) 0x83;
+    private static final byte GET_BUCKET_CONFIG_OPCODE = (byte) 0xb5;
+
+    /**
+     * The interval in milliseconds in which timed out requests are evicted from the in-flight map.
+     */
+    static final long SWEEP_INTERVAL = 1000;
+
+    /**
+     * The requests written but not answered yet, by their opaque.
+     */
+    private final IntObjectMap<BinaryRequest> inFlight;
+
     /**
-     * The Queue which holds the request types so that proper decoding can happen async.
+     * The opaque of the next request.
      */
-    private final Queue<BinaryRequest> queue;
+    private int nextOpaque;
 
     private final Snappy snappy = new Snappy();
 
     private final Environment env;
 
+    /**
+     * The interval in milliseconds in which timed out requests are evicted.
+     */
+    private final long sweepInterval;
+
+    /**
+     * The scheduled eviction of timed out requests, while the channel is active.
+     */
+    private ScheduledFuture<?> sweeper;
+
     /**
      * The bucket used.
      */
@@ -87,20 +126,31 @@ public class BinaryCodec extends MessageToMessageCodec<FullBinaryMemcacheRespons
     private SupportedDatatypes datatypes = new SupportedDatatypes(false, false);
 
     /**
-     * Creates a new {@link BinaryCodec} with the default dequeue.
+     * Creates a new {@link BinaryCodec} with the default in-flight map.
      */
     public BinaryCodec(final Environment env) {
-        this(env, new ArrayDeque<BinaryRequest>());
+        this(env, new IntObjectHashMap<BinaryRequest>());
+    }
+
+    /**
+     * Creates a new {@link BinaryCodec} with a custom in-flight map.
+     *
+     * @param inFlight a custom in-flight map to test encoding/decoding.
+     */
+    public BinaryCodec(final Environment env, final IntObjectMap<BinaryRequest> inFlight) {
+        this(env, inFlight, SWEEP_INTERVAL);
     }
 
     /**
-     * Creates a new {@link BinaryCodec} with a custom dequeue.
+     * Creates a new {@link BinaryCodec} with a custom in-flight map and eviction interval.
      *
-     * @param queue a custom queue to test encoding/decoding.
+     * @param inFlight a custom in-flight map to test encoding/decoding.
+     * @param sweepInterval the interval in milliseconds in which timed out requests are evicted, 0 to never evict.
      */
-    public BinaryCodec(final Environment env, final Queue<BinaryRequest> queue) {
-        this.queue = queue;
+    BinaryCodec(final Environment env, final IntObjectMap<BinaryRequest> inFlight, final long sweepInterval) {
+        this.inFlight = inFlight;
         this.env = env;
+        this.sweepInterval = sweepInterval;
     }
 
     @Override
@@ -109,74 +159,155 @@ public class BinaryCodec extends MessageToMessageCodec<FullBinaryMemcacheRespons
             bucket = msg.bucket();
         }
 
-        if (msg instanceof GetBucketConfigRequest) {
-            out.add(handleGetBucketConfigRequest());
-        } else if (msg instanceof GetRequest) {
-            out.add(handleGetRequest((GetRequest) msg));
-        } else if (msg instanceof UpsertRequest) {
-            out.add(handleUpsertRequest((UpsertRequest) msg, ctx));
-        } else if (msg instanceof InsertRequest) {
-            out.add(handleInsertRequest((InsertRequest) msg, ctx));
-        } else if (msg instanceof ReplaceRequest) {
-            out.add(handleReplaceRequest((ReplaceRequest) msg, ctx));
-        } else if (msg instanceof RemoveRequest) {
-            out.add(handleRemoveRequest((RemoveRequest) msg));
-        } else {
-            throw new IllegalArgumentException("Unknown message to encode: " + msg);
+        final int opaque = nextOpaque++;
+        final ByteBuf frame;
+        switch (msg.requestType()) {
+            case GET_BUCKET_CONFIG:
+                frame = BinaryRequestEncoder.encode(ctx.alloc(), GET_BUCKET_CONFIG_OPCODE, null, (short) 0, opaque, 0);
+                break;
+            case GET:
+                frame = BinaryRequestEncoder.encode(ctx.alloc(), BinaryMemcacheOpcodes.GET,
+                    ((GetRequest) msg).keyBytes(), msg.partition(), opaque, 0);
+                break;
+            case REPLICA_GET:
+                frame = BinaryRequestEncoder.encode(ctx.alloc(), GET_REPLICA_OPCODE,
+                    ((ReplicaGetRequest) msg).keyBytes(), msg.partition(), opaque, 0);
+                break;
+            case UPSERT:
+                frame = encodeStore(ctx, BinaryMemcacheOpcodes.SET, (UpsertRequest) msg, opaque);
+                break;
+            case INSERT:
+                frame = encodeStore(ctx, BinaryMemcacheOpcodes.ADD, (InsertRequest) msg, opaque);
+                break;
+            case REPLACE:
+                frame = encodeStore(ctx, BinaryMemcacheOpcodes.REPLACE, (ReplaceRequest) msg, opaque);
+                break;
+            case REMOVE:
+                final RemoveRequest remove = (RemoveRequest) msg;
+                frame = BinaryRequestEncoder.encode(ctx.alloc(), BinaryMemcacheOpcodes.DELETE, remove.keyBytes(),
+                    remove.partition(), opaque, remove.cas());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown message to encode: " + msg);
         }
 
-        queue.offer(msg);
+        inFlight.put(opaque, msg);
+        out.add(frame);
+    }
+
+    /**
+     * Evicts the requests in flight which timed out and hands them on, a late response for one of them is dropped.
+     */
+    private void evictTimedOut(final ChannelHandlerContext ctx) {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        for (int opaque : inFlight.keys()) {
+            BinaryRequest request = inFlight.get(opaque);
+            if (request.timedOut()) {
+                inFlight.remove(opaque);
+                ctx.fireChannelRead(request);
+            }
+        }
     }
 
     @Override
     protected void decode(final ChannelHandlerContext ctx, final FullBinaryMemcacheResponse msg, final List<Object> in) throws Exception {
-        final BinaryRequest current = queue.poll();
+        final BinaryRequest current = inFlight.remove(msg.getOpaque());
+        if (current == null) {
+            LOGGER.warn("Dropping response with opaque " + msg.getOpaque() + " for a request not in flight on "
+                + ctx.channel().remoteAddress() + ".");
+            return;
+        }
 
-        ByteBuf content = msg.content().copy();
+        ByteBuf content = msg.content();
         if (msg.getDataType() == 2 || msg.getDataType() == 3) {
-            ByteBuf compressed = ctx.alloc().buffer();
-            snappy.decode(content, compressed);
-            content.release();
-            content = compressed;
+            ByteBuf decompressed = ctx.alloc().buffer();
+            snappy.decode(content, decompressed);
+            content = decompressed;
+        } else {
+            content = content.slice().retain();
         }
 
         int flags = 0;
         int expiration = 0;
         if (msg.getExtrasLength() > 0) {
-            // TODO get rid of superfluous allocation (at the moment msg.getExtras() is released somewhere before)
-            final ByteBuf extrasReleased = msg.getExtras();
-            final ByteBuf extras = ctx.alloc().buffer(msg.getExtrasLength());
-            extras.writeBytes(extrasReleased, extrasReleased.readerIndex(), extrasReleased.readableBytes());
-            flags = extras.getInt(0);
+            final ByteBuf extras = msg.getExtras();
+            flags = extras.getInt(extras.readerIndex());
             if (msg.getExtrasLength() > 4) {
-                expiration = extras.getInt(1);
+                expiration = extras.getInt(extras.readerIndex() + 4);
             }
-            extras.release();
         }
 
         final String key = (current instanceof AbstractKeyAwareBinaryRequest) ? ((AbstractKeyAwareBinaryRequest) current).key() : null;
         final boolean isJson = (msg.getDataType() == 1 || msg.getDataType() == 3);
-        final ResponseStatus status = convertStatus(msg.getStatus());
+        final ResponseStatus status = msg.getDecoderResult().isSuccess()
+            ? convertStatus(msg.getStatus()) : ResponseStatus.FAILURE;
 
         final CoreDocument document = new CoreDocument(key, content, flags, expiration, msg.getCAS(), isJson, status);
         final CouchbaseRequest currentRequest = (status == ResponseStatus.RETRY) ? current : null;
 
-        if (current instanceof GetBucketConfigRequest) {
-            final InetSocketAddress address = (InetSocketAddress) ctx.channel().remoteAddress();
-            in.add(new GetBucketConfigResponse(status, bucket, document.content(), InetAddress.getByName(address.getHostName())));
-        } else if (current instanceof GetRequest) {
-            in.add(new GetResponse(document, bucket, currentRequest));
-        } else if (current instanceof InsertRequest) {
-            in.add(new InsertResponse(document, bucket, currentRequest));
-        } else if (current instanceof UpsertRequest) {
-            in.add(new UpsertResponse(document, bucket, currentRequest));
-        } else if (current instanceof ReplaceRequest) {
-            in.add(new ReplaceResponse(document, bucket, currentRequest));
-        } else if (current instanceof RemoveRequest) {
-            in.add(new RemoveResponse(document, bucket, currentRequest));
-        } else {
-            throw new IllegalStateException("Got a response message for a request that was not sent: " + msg);
+        final CouchbaseResponse response;
+        switch (current.requestType()) {
+            case GET_BUCKET_CONFIG:
+                final InetSocketAddress address = (InetSocketAddress) ctx.channel().remoteAddress();
+                response = new GetBucketConfigResponse(status, bucket, document.content(),
+                    InetAddress.getByName(address.getHostName()));
+                break;
+            case GET:
+            case REPLICA_GET:
+                response = new GetResponse(document, bucket, currentRequest);
+                break;
+            case INSERT:
+                response = new InsertResponse(document, bucket, currentRequest);
+                break;
+            case UPSERT:
+                response = new UpsertResponse(document, bucket, currentRequest);
+                break;
+            case REPLACE:
+                response = new ReplaceResponse(document, bucket, currentRequest);
+                break;
+            case REMOVE:
+                response = new RemoveResponse(document, bucket, currentRequest);
+                break;
+            default:
+                throw new IllegalStateException("Got a response message for a request that was not sent: " + msg);
         }
+        in.add(new CorrelatedResponse(current, response));
+    }
+
+    /**
+     * Starts evicting timed out requests from the in-flight map while the channel is active.
+     */
+    @Override
+    public void channelActive(final ChannelHandlerContext ctx) throws Exception {
+        if (sweepInterval > 0) {
+            sweeper = ctx.executor().scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    evictTimedOut(ctx);
+                }
+            }, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+        }
+        super.channelActive(ctx);
+    }
+
+    /**
+     * Hands all requests still in flight back to be retried, since they will not be answered on this channel.
+     */
+    @Override
+    public void channelInactive(final ChannelHandlerContext ctx) throws Exception {
+        if (sweeper != null) {
+            sweeper.cancel(false);
+            sweeper = null;
+        }
+        if (!inFlight.isEmpty()) {
+            for (BinaryRequest request : inFlight.values(BinaryRequest.class)) {
+                ctx.fireChannelRead(request);
+            }
+            inFlight.clear();
+        }
+        super.channelInactive(ctx);
     }
 
     @Override
@@ -210,86 +341,17 @@ public class BinaryCodec extends MessageToMessageCodec<FullBinaryMemcacheRespons
     }
 
     /**
-     * Creates the actual protocol level request for an incoming get request.
+     * Encodes a mutation, compressing its content if the server supports it and the document is large enough.
      *
-     * @param request the incoming get request.
-     * @return the built protocol request.
+     * @param ctx the channel handler context for buffer allocations.
+     * @param opcode the opcode of the mutation.
+     * @param request the incoming mutation request.
+     * @param opaque the opaque of the request.
+     * @return the encoded frame.
      */
-    private BinaryMemcacheRequest handleGetRequest(final GetRequest request) {
-        final short keyLength = (short) request.key().length();
-
-        final BinaryMemcacheRequest msg = new DefaultBinaryMemcacheRequest(request.key());
-        msg.setOpcode(BinaryMemcacheOpcodes.GET);
-        msg.setKeyLength(keyLength);
-        msg.setTotalBodyLength(keyLength);
-        msg.setReserved(request.partition());
-
-        return msg;
-    }
-
-    /**
-     * Creates the actual protocol level request for an incoming upsert request.
-     *
-     * @param request the incoming upsert request.
-     * @param ctx     the channel handler context for buffer allocations.
-     * @return the built protocol request.
-     */
-    private BinaryMemcacheRequest handleUpsertRequest(final UpsertRequest request, final ChannelHandlerContext ctx) {
-        return createFullBinaryMemcacheRequest(BinaryMemcacheOpcodes.SET, request, ctx);
-    }
-
-    /**
-     * Creates the actual protocol level request for an incoming replacer request.
-     *
-     * @param request the incoming replace request.
-     * @param ctx     the channel handler context for buffer allocations.
-     * @return the built protocol request.
-     */
-    private BinaryMemcacheRequest handleReplaceRequest(final ReplaceRequest request, final ChannelHandlerContext ctx) {
-        return createFullBinaryMemcacheRequest(BinaryMemcacheOpcodes.REPLACE, request, ctx);
-    }
-
-    /**
-     * Creates the actual protocol level request for an incoming insert request.
-     *
-     * @param request the incoming insert request.
-     * @param ctx     the channel handler context for buffer allocations.
-     * @return the built protocol request.
-     */
-    private BinaryMemcacheRequest handleInsertRequest(final InsertRequest request, final ChannelHandlerContext ctx) {
-        return createFullBinaryMemcacheRequest(BinaryMemcacheOpcodes.ADD, request, ctx);
-    }
-
-    private BinaryMemcacheRequest handleRemoveRequest(final RemoveRequest request) {
-        final BinaryMemcacheRequest msg = new DefaultBinaryMemcacheRequest(request.key());
-        msg.setOpcode(BinaryMemcacheOpcodes.DELETE);
-        msg.setCAS(request.cas());
-        msg.setKeyLength((short) request.key().length());
-        msg.setTotalBodyLength((short) request.key().length());
-        msg.setReserved(request.partition());
-
-        return msg;
-    }
-
-    /**
-     * Creates the actual protocol level request for an incoming bucket config request.
-     *
-     * @return the built protocol request.
-     */
-    private BinaryMemcacheRequest handleGetBucketConfigRequest() {
-        final BinaryMemcacheRequest msg = new DefaultBinaryMemcacheRequest();
-        msg.setOpcode((byte) 0xb5);
-
-        return msg;
-    }
-
-    private FullBinaryMemcacheRequest createFullBinaryMemcacheRequest(final byte opCode, final AbstractCoreDocumentBinaryRequest request, final ChannelHandlerContext ctx) {
+    private ByteBuf encodeStore(final ChannelHandlerContext ctx, final byte opcode,
+        final AbstractCoreDocumentBinaryRequest request, final int opaque) {
         final CoreDocument document = request.document();
-        final short keyLength = (short) document.id().length();
-
-        final ByteBuf extras = ctx.alloc().buffer(8);
-        extras.writeInt(document.flags());
-        extras.writeInt(document.expiration());
 
         ByteBuf content = document.content();
         boolean compress = datatypes.compression() && env.compressionEnabled()
@@ -301,23 +363,14 @@ public class BinaryCodec extends MessageToMessageCodec<FullBinaryMemcacheRespons
             content = compressed;
         }
 
-        final FullBinaryMemcacheRequest msg = new DefaultFullBinaryMemcacheRequest(document.id(), extras, content);
-        msg.setOpcode(opCode);
-        msg.setCAS(document.cas());
-        msg.setKeyLength(keyLength);
-        msg.setTotalBodyLength(keyLength + content.readableBytes() + extras.readableBytes());
-        msg.setReserved(request.partition());
-        msg.setExtrasLength((byte) extras.readableBytes());
+        byte dataType = 0;
         if (datatypes.json() && document.isJson()) {
-            if (compress) {
-                msg.setDataType((byte) 0x03);
-            } else {
-                msg.setDataType((byte) 0x01);
-            }
+            dataType = compress ? (byte) 0x03 : (byte) 0x01;
         } else if (compress) {
-            msg.setDataType((byte) 0x02);
+            dataType = 0x02;
         }
 
-        return msg;
+        return BinaryRequestEncoder.encode(ctx.alloc(), opcode, dataType, request.keyBytes(), request.partition(),
+            opaque, document.cas(), document.flags(), document.expiration(), content);
     }
 }
\ No newline at end of file
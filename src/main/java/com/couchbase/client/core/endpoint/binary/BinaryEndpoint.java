@@ -26,12 +26,14 @@ import com.couchbase.client.core.endpoint.AbstractEndpoint;
 import com.couchbase.client.core.env.Environment;
 import com.lmax.disruptor.RingBuffer;
 import io.netty.channel.ChannelPipeline;
-import io.netty.handler.codec.memcache.binary.BinaryMemcacheClientCodec;
-import io.netty.handler.codec.memcache.binary.BinaryMemcacheObjectAggregator;
+import io.netty.handler.codec.memcache.binary.BinaryMemcacheRequestEncoder;
 
 /**
  * This endpoint defines the pipeline for binary requests and responses.
  *
+ * If an encoding pool is configured, the {@link BinaryCodec} runs on it instead of the IO pool, which then only
+ * writes the encoded frames and reads the response frames.
+ *
  * @author Michael Nitschinger
  * @since 1.0
  */
@@ -52,11 +54,16 @@ public class BinaryEndpoint extends AbstractEndpoint {
     @Override
     protected void customEndpointHandlers(final ChannelPipeline pipeline) {
         pipeline
-            .addLast(new BinaryMemcacheClientCodec())
-            .addLast(new BinaryMemcacheObjectAggregator(Integer.MAX_VALUE))
+            .addLast(new BinaryMemcacheRequestEncoder())
+            .addLast(new BinaryFrameDecoder(environment().binaryMaxFrameSize()))
             .addLast(new BinarySaslClient(bucket(), password(), this))
             .addLast(new BinaryHelloClient())
-            .addLast(new BinaryCodec(environment()));
+            .addLast(environment().encodingPool(), new BinaryCodec(environment()));
+    }
+
+    @Override
+    protected boolean correlatesResponses() {
+        return true;
     }
 
 }
\ No newline at end of file
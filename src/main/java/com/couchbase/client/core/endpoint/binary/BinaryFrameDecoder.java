@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.endpoint.binary;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.DecoderResult;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.memcache.binary.DefaultFullBinaryMemcacheResponse;
+import io.netty.handler.codec.memcache.binary.FullBinaryMemcacheResponse;
+import io.netty.util.CharsetUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Decodes binary memcache response frames into {@link FullBinaryMemcacheResponse}s.
+ *
+ * A response is only emitted once its 24 byte header and the whole body announced in it have been received. Extras
+ * and content are retained slices of the received bytes, so no chunks are aggregated and nothing is copied.
+ *
+ * Frames larger than the maximum frame size, or whose extras and key do not fit into their body, are skipped as
+ * they arrive. The response is still emitted with its
+ * header, but without a body and with a failed {@link DecoderResult}, so the request waiting for it can be failed.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+public class BinaryFrameDecoder extends ByteToMessageDecoder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BinaryFrameDecoder.class);
+
+    /**
+     * The size of the fixed response header.
+     */
+    public static final int HEADER_SIZE = 24;
+
+    private final int maxFrameSize;
+
+    /**
+     * The bytes still to skip of a frame exceeding the maximum size.
+     */
+    private long bytesToDiscard;
+
+    /**
+     * Creates a new {@link BinaryFrameDecoder}.
+     *
+     * @param maxFrameSize the maximum size of a frame including its header.
+     */
+    public BinaryFrameDecoder(final int maxFrameSize) {
+        if (maxFrameSize < HEADER_SIZE) {
+            throw new IllegalArgumentException("The maximum frame size must be at least " + HEADER_SIZE + " bytes.");
+        }
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    @Override
+    protected void decode(final ChannelHandlerContext ctx, final ByteBuf in, final List<Object> out) throws Exception {
+        if (bytesToDiscard > 0) {
+            int discard = (int) Math.min(bytesToDiscard, in.readableBytes());
+            in.skipBytes(discard);
+            bytesToDiscard -= discard;
+            return;
+        }
+        if (in.readableBytes() < HEADER_SIZE) {
+            return;
+        }
+
+        final int start = in.readerIndex();
+        final long bodyLength = in.getUnsignedInt(start + 8);
+        final int extrasLength = in.getUnsignedByte(start + 4);
+        final int keyLength = in.getUnsignedShort(start + 2);
+
+        if (HEADER_SIZE + bodyLength > maxFrameSize) {
+            LOGGER.warn("Skipping response of " + bodyLength + " bytes from " + ctx.channel().remoteAddress()
+                + ", which exceeds the maximum frame size of " + maxFrameSize + " bytes.");
+            out.add(failedResponse(in, start, new TooLongFrameException("Response frame of " + (HEADER_SIZE
+                + bodyLength) + " bytes exceeds the maximum frame size of " + maxFrameSize + " bytes.")));
+            in.skipBytes(HEADER_SIZE);
+            bytesToDiscard = bodyLength;
+            return;
+        }
+        if (extrasLength + keyLength > bodyLength) {
+            out.add(failedResponse(in, start, new DecoderException("Extras and key of the response exceed its body.")));
+            in.skipBytes(HEADER_SIZE);
+            bytesToDiscard = bodyLength;
+            return;
+        }
+        if (in.readableBytes() < HEADER_SIZE + bodyLength) {
+            return;
+        }
+
+        final int extrasStart = start + HEADER_SIZE;
+        final int keyStart = extrasStart + extrasLength;
+        final int contentStart = keyStart + keyLength;
+        final int contentLength = (int) bodyLength - extrasLength - keyLength;
+
+        final String key = keyLength > 0 ? in.toString(keyStart, keyLength, CharsetUtil.UTF_8) : null;
+        final ByteBuf extras = extrasLength > 0 ? in.slice(extrasStart, extrasLength).retain() : null;
+        final ByteBuf content = contentLength > 0
+            ? in.slice(contentStart, contentLength).retain() : Unpooled.EMPTY_BUFFER;
+
+        final FullBinaryMemcacheResponse response = new DefaultFullBinaryMemcacheResponse(key, extras, content);
+        decodeHeader(in, start, response);
+        in.skipBytes((int) (HEADER_SIZE + bodyLength));
+        out.add(response);
+    }
+
+    /**
+     * Creates a response without body for a frame which can not be decoded.
+     */
+    private static FullBinaryMemcacheResponse failedResponse(final ByteBuf in, final int start, final Exception cause) {
+        final FullBinaryMemcacheResponse response = new DefaultFullBinaryMemcacheResponse(null, null,
+            Unpooled.EMPTY_BUFFER);
+        decodeHeader(in, start, response);
+        response.setDecoderResult(DecoderResult.failure(cause));
+        return response;
+    }
+
+    /**
+     * Copies the fields of the header starting at the given index into the response.
+     */
+    private static void decodeHeader(final ByteBuf in, final int start, final FullBinaryMemcacheResponse response) {
+        response.setMagic(in.getByte(start));
+        response.setOpcode(in.getByte(start + 1));
+        response.setKeyLength(in.getShort(start + 2));
+        response.setExtrasLength(in.getByte(start + 4));
+        response.setDataType(in.getByte(start + 5));
+        response.setStatus(in.getShort(start + 6));
+        response.setTotalBodyLength(in.getInt(start + 8));
+        response.setOpaque(in.getInt(start + 12));
+        response.setCAS(in.getLong(start + 16));
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.endpoint.binary;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.memcache.binary.DefaultBinaryMemcacheRequest;
+
+/**
+ * Writes binary memcache request frames straight into a {@link ByteBuf} in a single pass.
+ *
+ * Header, extras and key are written into one buffer allocated with its exact size, so no intermediate memcache
+ * message objects or extras buffers are created. Small values are copied into the same buffer, while larger ones
+ * are appended as a component of a composite buffer to avoid copying them.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+public final class BinaryRequestEncoder {
+
+    /**
+     * The size of the fixed request header.
+     */
+    public static final int HEADER_SIZE = 24;
+
+    /**
+     * The size of the flags and expiration extras of mutations.
+     */
+    public static final int STORE_EXTRAS_SIZE = 8;
+
+    /**
+     * Values up to this size are copied into the frame, larger ones are composed with it.
+     */
+    public static final int COPY_THRESHOLD = 1024;
+
+    private BinaryRequestEncoder() {
+    }
+
+    /**
+     * Encodes a request without extras and value, like a get or remove.
+     *
+     * @param alloc the allocator for the frame.
+     * @param opcode the opcode of the request.
+     * @param key the key, may be null.
+     * @param partition the partition (vbucket) of the key.
+     * @param opaque the opaque to correlate the response.
+     * @param cas the cas value, 0 if not used.
+     * @return the encoded frame.
+     */
+    public static ByteBuf encode(final ByteBufAllocator alloc, final byte opcode, final byte[] key,
+        final short partition, final int opaque, final long cas) {
+        final int keyLength = key == null ? 0 : key.length;
+        final ByteBuf frame = alloc.buffer(HEADER_SIZE + keyLength);
+        writeHeader(frame, opcode, keyLength, 0, (byte) 0, partition, keyLength, opaque, cas);
+        if (keyLength > 0) {
+            frame.writeBytes(key);
+        }
+        return frame;
+    }
+
+    /**
+     * Encodes a mutation carrying flags, expiration and a value.
+     *
+     * The encoder takes ownership of the value, which is either released once copied or released together with
+     * the returned frame.
+     *
+     * @param alloc the allocator for the frame.
+     * @param opcode the opcode of the request.
+     * @param dataType the datatype of the value.
+     * @param key the key.
+     * @param partition the partition (vbucket) of the key.
+     * @param opaque the opaque to correlate the response.
+     * @param cas the cas value, 0 if not used.
+     * @param flags the flags of the document.
+     * @param expiration the expiration of the document.
+     * @param value the value of the document.
+     * @return the encoded frame.
+     */
+    public static ByteBuf encode(final ByteBufAllocator alloc, final byte opcode, final byte dataType,
+        final byte[] key, final short partition, final int opaque, final long cas, final int flags,
+        final int expiration, final ByteBuf value) {
+        final int keyLength = key.length;
+        final int valueLength = value.readableBytes();
+        final int headLength = HEADER_SIZE + STORE_EXTRAS_SIZE + keyLength;
+        final boolean copy = valueLength <= COPY_THRESHOLD;
+
+        final ByteBuf frame = alloc.buffer(copy ? headLength + valueLength : headLength);
+        writeHeader(frame, opcode, keyLength, STORE_EXTRAS_SIZE, dataType, partition,
+            STORE_EXTRAS_SIZE + keyLength + valueLength, opaque, cas);
+        frame.writeInt(flags);
+        frame.writeInt(expiration);
+        frame.writeBytes(key);
+
+        if (copy) {
+            frame.writeBytes(value, value.readerIndex(), valueLength);
+            value.release();
+            return frame;
+        }
+        return alloc.compositeBuffer(2)
+            .addComponent(frame)
+            .addComponent(value)
+            .writerIndex(headLength + valueLength);
+    }
+
+    /**
+     * Writes the fixed request header.
+     */
+    private static void writeHeader(final ByteBuf frame, final byte opcode, final int keyLength,
+        final int extrasLength, final byte dataType, final short partition, final int bodyLength, final int opaque,
+        final long cas) {
+        frame.writeByte(DefaultBinaryMemcacheRequest.REQUEST_MAGIC_BYTE);
+        frame.writeByte(opcode);
+        frame.writeShort(keyLength);
+        frame.writeByte(extrasLength);
+        frame.writeByte(dataType);
+        frame.writeShort(partition);
+        frame.writeInt(bodyLength);
+        frame.writeInt(opaque);
+        frame.writeLong(cas);
+    }
+}
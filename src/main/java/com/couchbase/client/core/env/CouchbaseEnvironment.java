@@ -21,13 +21,34 @@
  */
 package com.couchbase.client.core.env;
 
+import com.couchbase.client.core.endpoint.binary.BinaryFrameDecoder;
+import com.couchbase.client.core.node.locate.LeastOutstandingNodeSelectionStrategy;
+import com.couchbase.client.core.node.locate.NodeSelectionStrategy;
+import com.couchbase.client.core.node.locate.PowerOfTwoChoicesNodeSelectionStrategy;
+import com.couchbase.client.core.node.locate.RoundRobinNodeSelectionStrategy;
+import com.couchbase.client.core.service.SelectionStrategy;
+import com.couchbase.client.core.service.strategies.LeastOutstandingSelectionStrategy;
+import com.couchbase.client.core.service.strategies.PartitionSelectionStrategy;
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.PhasedBackoffWaitStrategy;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
 import rx.Observable;
 import rx.functions.Func1;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 /**
  * The {@link CouchbaseEnvironment} wraps the underlying environment retrieval mechanisms and provides convenient
  * access methods to commonly used properties.
@@ -56,6 +77,11 @@ public class CouchbaseEnvironment implements Environment {
      */
     private final EventLoopGroup ioPool;
 
+    /**
+     * The encoding pool implementation, null if encoding happens on the IO pool.
+     */
+    private final EventExecutorGroup encodingPool;
+
     public CouchbaseEnvironment() {
         this(ConfigFactory.load());
     }
@@ -69,11 +95,17 @@ public class CouchbaseEnvironment implements Environment {
         this.namespace = namespace;
 
         ioPool = new NioEventLoopGroup(ioPoolSize());
+        int encodingPoolSize = encodingPoolSize();
+        encodingPool = encodingPoolSize > 0 ? new DefaultEventExecutorGroup(encodingPoolSize) : null;
     }
 
     @Override
     public Observable<Boolean> shutdown() {
-        return Observable.from(ioPool.shutdownGracefully()).map(new Func1<Object, Boolean>() {
+        Observable<Object> shutdown = Observable.<Object>from(ioPool.shutdownGracefully());
+        if (encodingPool != null) {
+            shutdown = Observable.merge(shutdown, Observable.<Object>from(encodingPool.shutdownGracefully()));
+        }
+        return shutdown.last().map(new Func1<Object, Boolean>() {
             @Override
             public Boolean call(Object o) {
                 return true;
@@ -170,6 +202,70 @@ public class CouchbaseEnvironment implements Environment {
         return reqBufSize;
     }
 
+    @Override
+    public int requestBufferShards() {
+        int shards = getInt("requestBufferShards");
+        if (shards <= 0) {
+            throw new EnvironmentException("At least one Request Buffer Shard is required");
+        }
+        return shards;
+    }
+
+    @Override
+    public int requestWorkers() {
+        int workers = getInt("requestWorkers");
+        if (workers <= 0) {
+            throw new EnvironmentException("At least one Request Worker is required");
+        }
+        return workers;
+    }
+
+    @Override
+    public boolean coalesceGets() {
+        return getBoolean("coalesceGets");
+    }
+
+    @Override
+    public boolean hedgingEnabled() {
+        return getBoolean("hedging.enabled");
+    }
+
+    @Override
+    public int hedgingPercentile() {
+        int percentile = getInt("hedging.percentile");
+        if (percentile < 1 || percentile > 99) {
+            throw new EnvironmentException("The Hedging Percentile must be between 1 and 99.");
+        }
+        return percentile;
+    }
+
+    @Override
+    public long hedgingMinDelay() {
+        long delay = getLong("hedging.minDelay");
+        if (delay < 1) {
+            throw new EnvironmentException("The minimum Hedging Delay must be at least 1ms.");
+        }
+        return delay;
+    }
+
+    @Override
+    public String localityGroup() {
+        return getString("locality.group");
+    }
+
+    @Override
+    public Map<String, String> localityNodeGroups() {
+        Map<String, String> groups = new HashMap<String, String>();
+        for (String entry : getStringList("locality.nodes")) {
+            int separator = entry.indexOf('=');
+            if (separator <= 0 || separator == entry.length() - 1) {
+                throw new EnvironmentException("Locality Node Groups must be given as host=group, not " + entry + '.');
+            }
+            groups.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+        }
+        return groups;
+    }
+
     @Override
     public int responseBufferSize() {
         int resBufSize = getInt("responseBufferSize");
@@ -179,11 +275,44 @@ public class CouchbaseEnvironment implements Environment {
         return resBufSize;
     }
 
+    @Override
+    public int responseCompletionWorkers() {
+        int workers = getInt("responseCompletionWorkers");
+        if (workers < 0) {
+            throw new EnvironmentException("Response Completion Workers must be at least 0.");
+        }
+        return workers;
+    }
+
+    @Override
+    public WaitStrategy requestWaitStrategy() {
+        return waitStrategy("requestWaitStrategy");
+    }
+
+    @Override
+    public WaitStrategy responseWaitStrategy() {
+        return waitStrategy("responseWaitStrategy");
+    }
+
     @Override
     public EventLoopGroup ioPool() {
         return ioPool;
     }
 
+    @Override
+    public int encodingPoolSize() {
+        int size = getInt("encodingPoolSize");
+        if (size < 0) {
+            throw new EnvironmentException("The encoding pool size must be at least 0.");
+        }
+        return size;
+    }
+
+    @Override
+    public EventExecutorGroup encodingPool() {
+        return encodingPool;
+    }
+
     @Override
     public int binaryServiceEndpoints() {
         int endpoints = getInt("service.endpoints.binary");
@@ -211,6 +340,93 @@ public class CouchbaseEnvironment implements Environment {
         return endpoints;
     }
 
+    @Override
+    public SelectionStrategy binarySelectionStrategy() {
+        String strategy = getString("service.selection.binary");
+        if ("partition".equals(strategy)) {
+            return new PartitionSelectionStrategy();
+        } else if ("leastOutstanding".equals(strategy)) {
+            return new LeastOutstandingSelectionStrategy(false);
+        } else if ("leastOutstandingKeyOrdered".equals(strategy)) {
+            return new LeastOutstandingSelectionStrategy(true);
+        }
+        throw new EnvironmentException("Unknown Selection Strategy " + strategy + " for service.selection.binary.");
+    }
+
+    @Override
+    public NodeSelectionStrategy viewNodeSelectionStrategy() {
+        return nodeSelectionStrategy("service.balancing.view");
+    }
+
+    @Override
+    public NodeSelectionStrategy queryNodeSelectionStrategy() {
+        return nodeSelectionStrategy("service.balancing.query");
+    }
+
+    @Override
+    public long binaryServiceTimeout() {
+        long timeout = getLong("service.timeouts.binary");
+        if (timeout < 0) {
+            throw new EnvironmentException("The timeout of a Service must not be negative.");
+        }
+        return timeout;
+    }
+
+    @Override
+    public long viewServiceTimeout() {
+        long timeout = getLong("service.timeouts.view");
+        if (timeout < 0) {
+            throw new EnvironmentException("The timeout of a Service must not be negative.");
+        }
+        return timeout;
+    }
+
+    @Override
+    public long queryServiceTimeout() {
+        long timeout = getLong("service.timeouts.query");
+        if (timeout < 0) {
+            throw new EnvironmentException("The timeout of a Service must not be negative.");
+        }
+        return timeout;
+    }
+
+    @Override
+    public long configServiceTimeout() {
+        long timeout = getLong("service.timeouts.config");
+        if (timeout < 0) {
+            throw new EnvironmentException("The timeout of a Service must not be negative.");
+        }
+        return timeout;
+    }
+
+    @Override
+    public long retryInitialDelay() {
+        long delay = getLong("retry.initialDelay");
+        if (delay <= 0) {
+            throw new EnvironmentException("The initial retry delay must be greater than 0.");
+        }
+        return delay;
+    }
+
+    @Override
+    public long retryMaxDelay() {
+        long delay = getLong("retry.maxDelay");
+        if (delay < retryInitialDelay() || delay > Integer.MAX_VALUE) {
+            throw new EnvironmentException("The maximum retry delay must be between the initial delay and "
+                + Integer.MAX_VALUE + '.');
+        }
+        return delay;
+    }
+
+    @Override
+    public int retryMaxAttempts() {
+        int attempts = getInt("retry.maxAttempts");
+        if (attempts < 0) {
+            throw new EnvironmentException("The maximum retry attempts must be at least 0.");
+        }
+        return attempts;
+    }
+
     @Override
     public boolean compressionEnabled() {
         return getBoolean("compression.enabled");
@@ -225,6 +441,61 @@ public class CouchbaseEnvironment implements Environment {
         return limit;
     }
 
+    @Override
+    public int binaryMaxFrameSize() {
+        int size = getInt("binaryMaxFrameSize");
+        if (size < BinaryFrameDecoder.HEADER_SIZE) {
+            throw new EnvironmentException("The maximum binary frame size must be at least "
+                + BinaryFrameDecoder.HEADER_SIZE + " bytes.");
+        }
+        return size;
+    }
+
+    /**
+     * Creates a new {@link WaitStrategy} from the name stored under the given path.
+     *
+     * @param path the path of the setting.
+     * @return a new wait strategy instance.
+     */
+    private WaitStrategy waitStrategy(String path) {
+        String strategy = getString(path);
+        if ("blocking".equals(strategy)) {
+            return new BlockingWaitStrategy();
+        } else if ("sleeping".equals(strategy)) {
+            return new SleepingWaitStrategy();
+        } else if ("yielding".equals(strategy)) {
+            return new YieldingWaitStrategy();
+        } else if ("busySpin".equals(strategy)) {
+            return new BusySpinWaitStrategy();
+        } else if ("phasedBackoff".equals(strategy)) {
+            long spinTimeout = getLong("phasedBackoff.spinTimeout");
+            long yieldTimeout = getLong("phasedBackoff.yieldTimeout");
+            if (spinTimeout < 0 || yieldTimeout < 0) {
+                throw new EnvironmentException("Phased Backoff timeouts must be at least 0.");
+            }
+            return PhasedBackoffWaitStrategy.withLock(spinTimeout, yieldTimeout, TimeUnit.MICROSECONDS);
+        }
+        throw new EnvironmentException("Unknown Wait Strategy " + strategy + " for " + path + '.');
+    }
+
+    /**
+     * Creates a new {@link NodeSelectionStrategy} from the name stored under the given path.
+     *
+     * @param path the path of the setting.
+     * @return a new selection strategy instance.
+     */
+    private NodeSelectionStrategy nodeSelectionStrategy(String path) {
+        String strategy = getString(path);
+        if ("roundRobin".equals(strategy)) {
+            return new RoundRobinNodeSelectionStrategy();
+        } else if ("leastOutstanding".equals(strategy)) {
+            return new LeastOutstandingNodeSelectionStrategy();
+        } else if ("powerOfTwoChoices".equals(strategy)) {
+            return new PowerOfTwoChoicesNodeSelectionStrategy();
+        }
+        throw new EnvironmentException("Unknown Node Selection Strategy " + strategy + " for " + path + '.');
+    }
+
     protected int getInt(String path) {
         try {
             return config.getInt(namespace + '.' + path);
@@ -249,6 +520,14 @@ public class CouchbaseEnvironment implements Environment {
         }
     }
 
+    protected List<String> getStringList(String path) {
+        try {
+            return config.getStringList(namespace + '.' + path);
+        } catch (Exception e) {
+            throw new EnvironmentException("Could not load environment setting " + path + '.', e);
+        }
+    }
+
     protected boolean getBoolean(String path) {
         try {
             return config.getBoolean(namespace + '.' + path);
@@ -21,9 +21,15 @@
  */
 package com.couchbase.client.core.env;
 
+import com.couchbase.client.core.node.locate.NodeSelectionStrategy;
+import com.couchbase.client.core.service.SelectionStrategy;
+import com.lmax.disruptor.WaitStrategy;
 import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
 import rx.Observable;
 
+import java.util.Map;
+
 /**
  * A {@link Environment} provides all the core building blocks like environment settings and thread pools so that the
  * application can work with it properly.
@@ -100,6 +106,22 @@ public interface Environment {
      */
     EventLoopGroup ioPool();
 
+    /**
+     * Returns the configured size of the encoding pool.
+     *
+     * @return the pool size, 0 if requests are encoded on the IO pool.
+     */
+    int encodingPoolSize();
+
+    /**
+     * Returns the pool which encodes binary requests and decodes their responses instead of the IO pool.
+     *
+     * Every connection stays on one thread of the pool, so requests keep their order.
+     *
+     * @return the encoding pool, or null if encoding happens on the IO pool.
+     */
+    EventExecutorGroup encodingPool();
+
     /**
      * Returns the size of the request ringbuffer.
      *
@@ -107,6 +129,64 @@ public interface Environment {
      */
     int requestBufferSize();
 
+    /**
+     * Returns the number of request ringbuffer shards, each one with its own consumer.
+     *
+     * @return the number of request ringbuffers.
+     */
+    int requestBufferShards();
+
+    /**
+     * Returns the number of workers dispatching requests from every request ringbuffer.
+     *
+     * @return the number of request workers per ringbuffer.
+     */
+    int requestWorkers();
+
+    /**
+     * Returns if concurrent gets of the same document should share one request on the wire.
+     *
+     * @return true if get requests are coalesced.
+     */
+    boolean coalesceGets();
+
+    /**
+     * Returns if idempotent requests are hedged with a second copy once they take longer than usual.
+     *
+     * @return true if requests are hedged.
+     */
+    boolean hedgingEnabled();
+
+    /**
+     * Returns the percentile of recent latencies after which a hedge copy is sent.
+     *
+     * @return the percentile, between 1 and 99.
+     */
+    int hedgingPercentile();
+
+    /**
+     * Returns the minimum delay before a hedge copy is sent.
+     *
+     * @return the minimum hedge delay in milliseconds.
+     */
+    long hedgingMinDelay();
+
+    /**
+     * Returns the locality group (rack, server group or availability zone) the client runs in.
+     *
+     * View, query and replica traffic prefers healthy nodes of the same group.
+     *
+     * @return the name of the local group, empty if locality is not taken into account.
+     */
+    String localityGroup();
+
+    /**
+     * Returns the locality groups of nodes, overriding the server groups from the cluster configuration.
+     *
+     * @return the group names by node hostname or ip address.
+     */
+    Map<String, String> localityNodeGroups();
+
     /**
      * Returns the size of the response ringbuffer.
      *
@@ -114,6 +194,33 @@ public interface Environment {
      */
     int responseBufferSize();
 
+    /**
+     * Returns the number of workers completing response observables.
+     *
+     * If 0, responses are completed directly on the response ringbuffer thread.
+     *
+     * @return the number of completion workers.
+     */
+    int responseCompletionWorkers();
+
+    /**
+     * Returns the {@link WaitStrategy} for the consumer of the request ringbuffer.
+     *
+     * Every call creates a new instance, since a strategy must not be shared across ringbuffers.
+     *
+     * @return a new wait strategy for the request ringbuffer.
+     */
+    WaitStrategy requestWaitStrategy();
+
+    /**
+     * Returns the {@link WaitStrategy} for the consumer of the response ringbuffer.
+     *
+     * Every call creates a new instance, since a strategy must not be shared across ringbuffers.
+     *
+     * @return a new wait strategy for the response ringbuffer.
+     */
+    WaitStrategy responseWaitStrategy();
+
     /**
      * The number of binary service endpoints.
      *
@@ -136,6 +243,89 @@ public interface Environment {
      */
     int queryServiceEndpoints();
 
+    /**
+     * Returns the {@link SelectionStrategy} which picks the endpoint of a binary service for every request.
+     *
+     * Every call creates a new instance, since strategies may keep state about the endpoints of one service.
+     *
+     * @return a new selection strategy for binary endpoints.
+     */
+    SelectionStrategy binarySelectionStrategy();
+
+    /**
+     * Returns the {@link NodeSelectionStrategy} which balances view requests across nodes.
+     *
+     * Every call creates a new instance, since load-aware strategies keep their own in-flight counts.
+     *
+     * @return a new selection strategy for view requests.
+     */
+    NodeSelectionStrategy viewNodeSelectionStrategy();
+
+    /**
+     * Returns the {@link NodeSelectionStrategy} which balances query requests across nodes.
+     *
+     * Every call creates a new instance, since load-aware strategies keep their own in-flight counts.
+     *
+     * @return a new selection strategy for query requests.
+     */
+    NodeSelectionStrategy queryNodeSelectionStrategy();
+
+    /**
+     * The default timeout of binary operations, in milliseconds.
+     *
+     * @return the timeout, 0 if binary operations never time out.
+     */
+    long binaryServiceTimeout();
+
+    /**
+     * The default timeout of view operations, in milliseconds.
+     *
+     * @return the timeout, 0 if view operations never time out.
+     */
+    long viewServiceTimeout();
+
+    /**
+     * The default timeout of query operations, in milliseconds.
+     *
+     * @return the timeout, 0 if query operations never time out.
+     */
+    long queryServiceTimeout();
+
+    /**
+     * The default timeout of config operations, in milliseconds.
+     *
+     * @return the timeout, 0 if config operations never time out.
+     */
+    long configServiceTimeout();
+
+    /**
+     * The delay before an operation is retried for the first time, in milliseconds.
+     *
+     * @return the initial retry delay.
+     */
+    long retryInitialDelay();
+
+    /**
+     * The maximum delay between two retries of an operation, in milliseconds.
+     *
+     * @return the maximum retry delay.
+     */
+    long retryMaxDelay();
+
+    /**
+     * The maximum number of retries per operation, 0 if operations are retried forever.
+     *
+     * @return the maximum number of retries.
+     */
+    int retryMaxAttempts();
+
     boolean compressionEnabled();
     int compressionLowerLimit();
+
+    /**
+     * Returns the maximum size of a binary response frame, including its header.
+     *
+     * @return the maximum frame size in bytes.
+     */
+    int binaryMaxFrameSize();
 }
@@ -21,6 +21,7 @@
  */
 package com.couchbase.client.core.message;
 
+import io.netty.util.Timeout;
 import rx.subjects.AsyncSubject;
 import rx.subjects.Subject;
 
@@ -42,11 +43,36 @@ public abstract class AbstractCouchbaseRequest implements CouchbaseRequest {
      */
     private final String bucket;
 
+    /**
+     * The interned id of the bucket, resolved once when the request is created.
+     */
+    private final int bucketId;
+
     /**
      * The password of the bucket for this request.
      */
     private final String password;
 
+    /**
+     * The number of times this request has been retried.
+     */
+    private volatile int retryCount;
+
+    /**
+     * The custom timeout in milliseconds, 0 for the default.
+     */
+    private volatile long timeout;
+
+    /**
+     * The pending timeout, if the request is tracked.
+     */
+    private volatile Timeout timeoutHandle;
+
+    /**
+     * Set once the request has been abandoned.
+     */
+    private volatile boolean cancelled;
+
     /**
      * Create a new {@link AbstractCouchbaseRequest}.
      *
@@ -76,6 +102,7 @@ public abstract class AbstractCouchbaseRequest implements CouchbaseRequest {
     protected AbstractCouchbaseRequest(final String bucket, final String password,
         final Subject<CouchbaseResponse, CouchbaseResponse> observable) {
         this.bucket = bucket;
+        this.bucketId = BucketIds.intern(bucket);
         this.password = password;
         this.observable = observable;
     }
@@ -90,8 +117,70 @@ public abstract class AbstractCouchbaseRequest implements CouchbaseRequest {
         return bucket;
     }
 
+    @Override
+    public int bucketId() {
+        return bucketId;
+    }
+
+    @Override
+    public RequestType requestType() {
+        return RequestType.UNKNOWN;
+    }
+
     @Override
     public String password() {
         return password;
     }
+
+    @Override
+    public int incrementRetryCount() {
+        return ++retryCount;
+    }
+
+    @Override
+    public int retryCount() {
+        return retryCount;
+    }
+
+    @Override
+    public long timeout() {
+        return timeout;
+    }
+
+    @Override
+    public CouchbaseRequest timeout(final long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("The timeout must not be negative.");
+        }
+        this.timeout = timeout;
+        return this;
+    }
+
+    @Override
+    public void timeoutHandle(final Timeout handle) {
+        this.timeoutHandle = handle;
+    }
+
+    @Override
+    public void cancelTimeout() {
+        Timeout handle = timeoutHandle;
+        if (handle != null) {
+            handle.cancel();
+        }
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        cancelTimeout();
+    }
+
+    @Override
+    public boolean timedOut() {
+        if (cancelled) {
+            return true;
+        }
+        Timeout handle = timeoutHandle;
+        return handle != null && handle.isExpired();
+    }
 }
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.message;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns bucket names into dense int ids.
+ *
+ * Every bucket name gets its id the first time it is seen and keeps it for the lifetime of the process, so the ids
+ * can index arrays directly. Since only a handful of buckets are ever opened, the ids stay small.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+public final class BucketIds {
+
+    /**
+     * The interned ids, by bucket name.
+     */
+    private static final ConcurrentMap<String, Integer> IDS = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * The next id to hand out, guarded by {@link #IDS}.
+     */
+    private static int next;
+
+    private BucketIds() {
+    }
+
+    /**
+     * Returns the id of the given bucket, assigning the next free one if the bucket is seen for the first time.
+     *
+     * @param bucket the name of the bucket, may be null.
+     * @return the id of the bucket, -1 if there is no bucket.
+     */
+    public static int intern(final String bucket) {
+        if (bucket == null) {
+            return -1;
+        }
+        Integer id = IDS.get(bucket);
+        if (id == null) {
+            synchronized (IDS) {
+                id = IDS.get(bucket);
+                if (id == null) {
+                    id = next++;
+                    IDS.put(bucket, id);
+                }
+            }
+        }
+        return id;
+    }
+
+}
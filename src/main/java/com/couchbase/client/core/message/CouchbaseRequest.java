@@ -21,6 +21,7 @@
  */
 package com.couchbase.client.core.message;
 
+import io.netty.util.Timeout;
 import rx.subjects.Subject;
 
 import java.util.Observable;
@@ -47,6 +48,20 @@ public interface CouchbaseRequest extends CouchbaseMessage {
      */
     String bucket();
 
+    /**
+     * The interned id of the associated bucket, see {@link BucketIds}.
+     *
+     * @return the bucket id, -1 if the request has no bucket.
+     */
+    int bucketId();
+
+    /**
+     * The type of this request, used to dispatch it along the request path.
+     *
+     * @return the request type, {@link RequestType#UNKNOWN} for requests implemented outside of the core.
+     */
+    RequestType requestType();
+
     /**
      * The password associated with the bucket for this request.
      *
@@ -54,4 +69,60 @@ public interface CouchbaseRequest extends CouchbaseMessage {
      */
     String password();
 
+    /**
+     * Increments the number of times this request has been retried.
+     *
+     * @return the retry count after incrementing.
+     */
+    int incrementRetryCount();
+
+    /**
+     * The number of times this request has been retried so far.
+     *
+     * @return the retry count.
+     */
+    int retryCount();
+
+    /**
+     * The custom timeout of this request in milliseconds.
+     *
+     * @return the timeout, 0 if the default timeout of its service type applies.
+     */
+    long timeout();
+
+    /**
+     * Sets a custom timeout for this request, overriding the default timeout of its service type.
+     *
+     * @param timeout the timeout in milliseconds, 0 to use the default.
+     * @return the request for chaining purposes.
+     */
+    CouchbaseRequest timeout(long timeout);
+
+    /**
+     * Attaches the pending {@link Timeout} which fails this request once it expires.
+     *
+     * @param handle the pending timeout.
+     */
+    void timeoutHandle(Timeout handle);
+
+    /**
+     * Cancels the pending {@link Timeout} of this request, if there is one.
+     */
+    void cancelTimeout();
+
+    /**
+     * Cancels the pending {@link Timeout} of this request and abandons it, since its outcome is not needed anymore.
+     *
+     * An abandoned request is treated like a timed out one: it is neither written nor retried anymore, and the
+     * content of a late response is released.
+     */
+    void cancel();
+
+    /**
+     * Checks if the timeout of this request has expired or the request has been abandoned.
+     *
+     * @return true if the request has been failed because of its timeout or has been cancelled.
+     */
+    boolean timedOut();
+
 }
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.message;
+
+import com.couchbase.client.core.service.ServiceType;
+
+/**
+ * Identifies the concrete kind of a {@link CouchbaseRequest}.
+ *
+ * Every request carries its type as a constant, so the stages along the request path can switch on it instead of
+ * testing the request against a chain of classes, and adding a new operation does not slow down existing ones.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+public enum RequestType {
+
+    GET_BUCKET_CONFIG(ServiceType.BINARY),
+    GET(ServiceType.BINARY),
+    REPLICA_GET(ServiceType.BINARY),
+    INSERT(ServiceType.BINARY),
+    UPSERT(ServiceType.BINARY),
+    REPLACE(ServiceType.BINARY),
+    REMOVE(ServiceType.BINARY),
+
+    VIEW_QUERY(ServiceType.VIEW),
+
+    GENERIC_QUERY(ServiceType.QUERY),
+
+    BUCKET_CONFIG(ServiceType.CONFIG),
+    BUCKET_STREAMING(ServiceType.CONFIG),
+    FLUSH(ServiceType.CONFIG),
+
+    SEED_NODES(null),
+    OPEN_BUCKET(null),
+    DISCONNECT(null),
+
+    ADD_NODE(null),
+    REMOVE_NODE(null),
+    ADD_SERVICE(null),
+    REMOVE_SERVICE(null),
+    SIGNAL_FLUSH(null),
+    SIGNAL_CONFIG_RELOAD(null),
+
+    /**
+     * A request implemented outside of the core, which needs to be inspected by its class.
+     */
+    UNKNOWN(null);
+
+    private final ServiceType service;
+
+    private RequestType(final ServiceType service) {
+        this.service = service;
+    }
+
+    /**
+     * Returns the {@link ServiceType} which handles requests of this type.
+     *
+     * @return the service type, or null if the request is not sent to a service.
+     */
+    public ServiceType service() {
+        return service;
+    }
+}
@@ -21,12 +21,19 @@
  */
 package com.couchbase.client.core.message.binary;
 
+import io.netty.util.CharsetUtil;
+
 /**
  * @author David Sondermann
  * @since 2.0
  */
 public abstract class AbstractKeyAwareBinaryRequest extends AbstractBinaryRequest {
 
+    /**
+     * The UTF-8 encoded key, encoded at most once and then shared by the locator and the codec.
+     */
+    private volatile byte[] keyBytes;
+
     /**
      * Creates a new {@link com.couchbase.client.core.message.binary.AbstractBinaryRequest}.
      *
@@ -37,6 +44,19 @@ public abstract class AbstractKeyAwareBinaryRequest extends AbstractBinaryReques
         super(bucket, password);
     }
 
+    /**
+     * Creates a new {@link com.couchbase.client.core.message.binary.AbstractBinaryRequest} with an already encoded
+     * key.
+     *
+     * @param bucket   the bucket of the document.
+     * @param password the optional password of the bucket.
+     * @param keyBytes the UTF-8 encoded key of the document.
+     */
+    protected AbstractKeyAwareBinaryRequest(final String bucket, final String password, final byte[] keyBytes) {
+        super(bucket, password);
+        this.keyBytes = keyBytes;
+    }
+
     /**
      * The key of the document.
      *
@@ -44,4 +64,20 @@ public abstract class AbstractKeyAwareBinaryRequest extends AbstractBinaryReques
      */
     public abstract String key();
 
+    /**
+     * The UTF-8 encoded key of the document.
+     *
+     * The key is encoded the first time it is needed, the returned array must not be modified.
+     *
+     * @return the encoded key of the document.
+     */
+    public final byte[] keyBytes() {
+        byte[] encoded = keyBytes;
+        if (encoded == null) {
+            encoded = key().getBytes(CharsetUtil.UTF_8);
+            keyBytes = encoded;
+        }
+        return encoded;
+    }
+
 }
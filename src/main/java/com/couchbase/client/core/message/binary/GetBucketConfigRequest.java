@@ -21,6 +21,9 @@
  */
 package com.couchbase.client.core.message.binary;
 
+import com.couchbase.client.core.message.PriorityRequest;
+import com.couchbase.client.core.message.RequestType;
+
 import java.net.InetAddress;
 
 /**
@@ -32,7 +35,7 @@ import java.net.InetAddress;
  * @author Michael Nitschinger
  * @since 1.0
  */
-public class GetBucketConfigRequest extends AbstractBinaryRequest {
+public class GetBucketConfigRequest extends AbstractBinaryRequest implements PriorityRequest {
 
     /**
      * The hostname from where the config should be loaded.
@@ -59,4 +62,9 @@ public class GetBucketConfigRequest extends AbstractBinaryRequest {
         return hostname;
     }
 
+    @Override
+    public RequestType requestType() {
+        return RequestType.GET_BUCKET_CONFIG;
+    }
+
 }
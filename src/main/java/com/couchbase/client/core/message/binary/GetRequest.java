@@ -21,6 +21,10 @@
  */
 package com.couchbase.client.core.message.binary;
 
+import com.couchbase.client.core.message.RequestType;
+
+import io.netty.util.CharsetUtil;
+
 /**
  * Fetch a document from the cluster and return it if found.
  *
@@ -29,7 +33,7 @@ package com.couchbase.client.core.message.binary;
  */
 public class GetRequest extends AbstractKeyAwareBinaryRequest {
 
-    private final String key;
+    private volatile String key;
 
     /**
      * Create a new {@link GetRequest}.
@@ -42,9 +46,40 @@ public class GetRequest extends AbstractKeyAwareBinaryRequest {
         this.key = key;
     }
 
+    /**
+     * Create a new {@link GetRequest} with an already encoded key.
+     *
+     * @param key    the UTF-8 encoded key of the document.
+     * @param bucket the bucket of the document.
+     */
+    public GetRequest(final byte[] key, final String bucket) {
+        this(key, bucket, null);
+    }
+
+    /**
+     * Create a new {@link GetRequest} with an already encoded key and the password of the bucket.
+     *
+     * @param key      the UTF-8 encoded key of the document.
+     * @param bucket   the bucket of the document.
+     * @param password the optional password of the bucket.
+     */
+    public GetRequest(final byte[] key, final String bucket, final String password) {
+        super(bucket, password, key);
+    }
+
     @Override
     public String key() {
-        return key;
+        String decoded = key;
+        if (decoded == null) {
+            decoded = new String(keyBytes(), CharsetUtil.UTF_8);
+            key = decoded;
+        }
+        return decoded;
+    }
+
+    @Override
+    public RequestType requestType() {
+        return RequestType.GET;
     }
 
 }
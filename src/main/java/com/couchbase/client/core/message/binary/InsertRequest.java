@@ -21,6 +21,7 @@
  */
 package com.couchbase.client.core.message.binary;
 
+import com.couchbase.client.core.message.RequestType;
 import com.couchbase.client.core.message.document.CoreDocument;
 
 /**
@@ -42,4 +43,9 @@ public class InsertRequest extends AbstractCoreDocumentBinaryRequest {
         super(document, bucket);
     }
 
+    @Override
+    public RequestType requestType() {
+        return RequestType.INSERT;
+    }
+
 }
@@ -1,8 +1,12 @@
 package com.couchbase.client.core.message.binary;
 
+import com.couchbase.client.core.message.RequestType;
+
+import io.netty.util.CharsetUtil;
+
 public class RemoveRequest extends AbstractKeyAwareBinaryRequest {
 
-    private final String key;
+    private volatile String key;
     private final long cas;
 
     public RemoveRequest(final String key, final String bucket) {
@@ -15,6 +19,11 @@ public class RemoveRequest extends AbstractKeyAwareBinaryRequest {
         this.cas = cas;
     }
 
+    public RemoveRequest(final byte[] key, final long cas, final String bucket) {
+        super(bucket, null, key);
+        this.cas = cas;
+    }
+
     /**
      * The CAS value of the request.
      *
@@ -26,7 +35,17 @@ public class RemoveRequest extends AbstractKeyAwareBinaryRequest {
 
     @Override
     public String key() {
-        return key;
+        String decoded = key;
+        if (decoded == null) {
+            decoded = new String(keyBytes(), CharsetUtil.UTF_8);
+            key = decoded;
+        }
+        return decoded;
+    }
+
+    @Override
+    public RequestType requestType() {
+        return RequestType.REMOVE;
     }
 
 }
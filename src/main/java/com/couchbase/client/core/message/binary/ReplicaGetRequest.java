@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.message.binary;
+
+import com.couchbase.client.core.message.RequestType;
+
+import io.netty.util.CharsetUtil;
+
+/**
+ * Reads a document from one or more of its replicas.
+ *
+ * A request for a single replica goes to the node holding that replica of the partition. Requests which read from
+ * more than one copy are split up into one request per copy before they hit the wire, and the first successful
+ * {@link GetResponse} completes the observable. If no copy succeeds, the last response is passed on instead.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+public class ReplicaGetRequest extends AbstractKeyAwareBinaryRequest {
+
+    private final ReplicaMode mode;
+
+    private volatile String key;
+
+    /**
+     * Create a new {@link ReplicaGetRequest}.
+     *
+     * @param key    the key of the document.
+     * @param bucket the bucket of the document.
+     * @param mode   the copies to read from.
+     */
+    public ReplicaGetRequest(final String key, final String bucket, final ReplicaMode mode) {
+        super(bucket, null);
+        this.key = key;
+        this.mode = mode;
+    }
+
+    /**
+     * Create a new {@link ReplicaGetRequest} with an already encoded key.
+     *
+     * @param key    the UTF-8 encoded key of the document.
+     * @param bucket the bucket of the document.
+     * @param mode   the copies to read from.
+     */
+    public ReplicaGetRequest(final byte[] key, final String bucket, final ReplicaMode mode) {
+        this(key, bucket, null, mode);
+    }
+
+    /**
+     * Create a new {@link ReplicaGetRequest} with an already encoded key and the password of the bucket.
+     *
+     * @param key      the UTF-8 encoded key of the document.
+     * @param bucket   the bucket of the document.
+     * @param password the optional password of the bucket.
+     * @param mode     the copies to read from.
+     */
+    public ReplicaGetRequest(final byte[] key, final String bucket, final String password, final ReplicaMode mode) {
+        super(bucket, password, key);
+        this.mode = mode;
+    }
+
+    @Override
+    public String key() {
+        String decoded = key;
+        if (decoded == null) {
+            decoded = new String(keyBytes(), CharsetUtil.UTF_8);
+            key = decoded;
+        }
+        return decoded;
+    }
+
+    /**
+     * Returns the copies to read from.
+     *
+     * @return the replica mode.
+     */
+    public ReplicaMode mode() {
+        return mode;
+    }
+
+    @Override
+    public RequestType requestType() {
+        return RequestType.REPLICA_GET;
+    }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.message.binary;
+
+/**
+ * Describes which copies of a document a {@link ReplicaGetRequest} reads from.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+public enum ReplicaMode {
+
+    /**
+     * Read from the first replica only.
+     */
+    FIRST(1),
+
+    /**
+     * Read from the second replica only.
+     */
+    SECOND(2),
+
+    /**
+     * Read from the third replica only.
+     */
+    THIRD(3),
+
+    /**
+     * Read from one connected replica, preferring replicas in the locality group of the client.
+     */
+    ANY(-1),
+
+    /**
+     * Read from all configured replicas, the first successful response wins.
+     */
+    ALL(0),
+
+    /**
+     * Read from the master and all configured replicas, the first successful response wins.
+     */
+    MASTER_AND_ALL(0);
+
+    private final int replica;
+
+    private ReplicaMode(final int replica) {
+        this.replica = replica;
+    }
+
+    /**
+     * Returns the number of the replica to read from, starting at 1.
+     *
+     * @return the replica number, 0 if the request is fanned out to more than one copy or -1 if any replica may
+     *         serve it.
+     */
+    public int replica() {
+        return replica;
+    }
+
+    /**
+     * Returns if requests with this mode are fanned out to more than one copy.
+     *
+     * @return true if more than one copy is read.
+     */
+    public boolean fanOut() {
+        return replica == 0;
+    }
+}
@@ -22,6 +22,7 @@
 package com.couchbase.client.core.message.cluster;
 
 import com.couchbase.client.core.message.AbstractCouchbaseRequest;
+import com.couchbase.client.core.message.RequestType;
 
 /**
  * Disconnects all open buckets.
@@ -34,4 +35,9 @@ public class DisconnectRequest extends AbstractCouchbaseRequest implements Clust
     public DisconnectRequest() {
         super(null, null);
     }
+
+    @Override
+    public RequestType requestType() {
+        return RequestType.DISCONNECT;
+    }
 }
@@ -1,6 +1,7 @@
 package com.couchbase.client.core.message.cluster;
 
 import com.couchbase.client.core.message.AbstractCouchbaseRequest;
+import com.couchbase.client.core.message.RequestType;
 
 public class OpenBucketRequest extends AbstractCouchbaseRequest implements ClusterRequest {
 
@@ -8,4 +9,9 @@ public class OpenBucketRequest extends AbstractCouchbaseRequest implements Clust
         super(bucket, password);
     }
 
+    @Override
+    public RequestType requestType() {
+        return RequestType.OPEN_BUCKET;
+    }
+
 }
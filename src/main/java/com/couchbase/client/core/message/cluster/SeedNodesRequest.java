@@ -24,6 +24,7 @@ package com.couchbase.client.core.message.cluster;
 import com.couchbase.client.core.ClusterFacade;
 import com.couchbase.client.core.config.ConfigurationException;
 import com.couchbase.client.core.message.AbstractCouchbaseRequest;
+import com.couchbase.client.core.message.RequestType;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
@@ -100,4 +101,9 @@ public class SeedNodesRequest extends AbstractCouchbaseRequest implements Cluste
     public Set<InetAddress> nodes() {
         return nodes;
     }
+
+    @Override
+    public RequestType requestType() {
+        return RequestType.SEED_NODES;
+    }
 }
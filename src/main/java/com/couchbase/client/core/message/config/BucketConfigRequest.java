@@ -1,10 +1,12 @@
 package com.couchbase.client.core.message.config;
 
 import com.couchbase.client.core.message.AbstractCouchbaseRequest;
+import com.couchbase.client.core.message.PriorityRequest;
+import com.couchbase.client.core.message.RequestType;
 
 import java.net.InetAddress;
 
-public class BucketConfigRequest extends AbstractCouchbaseRequest implements ConfigRequest {
+public class BucketConfigRequest extends AbstractCouchbaseRequest implements ConfigRequest, PriorityRequest {
 
     private static final String PATH = "/pools/default/b/";
 
@@ -24,4 +26,9 @@ public class BucketConfigRequest extends AbstractCouchbaseRequest implements Con
     public String path() {
         return path + bucket();
     }
+
+    @Override
+    public RequestType requestType() {
+        return RequestType.BUCKET_CONFIG;
+    }
 }
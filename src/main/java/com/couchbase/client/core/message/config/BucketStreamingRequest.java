@@ -1,13 +1,15 @@
 package com.couchbase.client.core.message.config;
 
 import com.couchbase.client.core.message.AbstractCouchbaseRequest;
+import com.couchbase.client.core.message.PriorityRequest;
+import com.couchbase.client.core.message.RequestType;
 
 /**
  * .
  *
  * @author Michael Nitschinger
  */
-public class BucketStreamingRequest extends AbstractCouchbaseRequest implements ConfigRequest {
+public class BucketStreamingRequest extends AbstractCouchbaseRequest implements ConfigRequest, PriorityRequest {
 
     private final String path;
 
@@ -19,4 +21,9 @@ public class BucketStreamingRequest extends AbstractCouchbaseRequest implements
     public String path() {
         return path + bucket();
     }
+
+    @Override
+    public RequestType requestType() {
+        return RequestType.BUCKET_STREAMING;
+    }
 }
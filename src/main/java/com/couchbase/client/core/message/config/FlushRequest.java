@@ -1,6 +1,7 @@
 package com.couchbase.client.core.message.config;
 
 import com.couchbase.client.core.message.AbstractCouchbaseRequest;
+import com.couchbase.client.core.message.RequestType;
 
 /**
  * Sends a flush command to the cluster.
@@ -21,4 +22,9 @@ public class FlushRequest extends AbstractCouchbaseRequest implements ConfigRequ
     public String path() {
         return "/pools/default/buckets/" + bucket() + PATH;
     }
+
+    @Override
+    public RequestType requestType() {
+        return RequestType.FLUSH;
+    }
 }
@@ -22,6 +22,7 @@
 package com.couchbase.client.core.message.internal;
 
 import com.couchbase.client.core.message.AbstractCouchbaseRequest;
+import com.couchbase.client.core.message.RequestType;
 
 import java.net.InetAddress;
 
@@ -37,4 +38,9 @@ public class AddNodeRequest extends AbstractCouchbaseRequest implements Internal
     public InetAddress hostname() {
         return hostname;
     }
+
+    @Override
+    public RequestType requestType() {
+        return RequestType.ADD_NODE;
+    }
 }
@@ -25,6 +25,7 @@
 package com.couchbase.client.core.message.internal;
 
 import com.couchbase.client.core.message.AbstractCouchbaseRequest;
+import com.couchbase.client.core.message.RequestType;
 import com.couchbase.client.core.service.ServiceType;
 
 import java.net.InetAddress;
@@ -64,4 +65,9 @@ public class AddServiceRequest extends AbstractCouchbaseRequest implements Inter
         sb.append('}');
         return sb.toString();
     }
+
+    @Override
+    public RequestType requestType() {
+        return RequestType.ADD_SERVICE;
+    }
 }
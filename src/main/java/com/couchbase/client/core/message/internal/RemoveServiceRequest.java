@@ -25,6 +25,7 @@
 package com.couchbase.client.core.message.internal;
 
 import com.couchbase.client.core.message.AbstractCouchbaseRequest;
+import com.couchbase.client.core.message.RequestType;
 import com.couchbase.client.core.service.ServiceType;
 
 import java.net.InetAddress;
@@ -50,4 +51,9 @@ public class RemoveServiceRequest extends AbstractCouchbaseRequest implements In
     public InetAddress hostname() {
         return hostname;
     }
+
+    @Override
+    public RequestType requestType() {
+        return RequestType.REMOVE_SERVICE;
+    }
 }
@@ -1,6 +1,7 @@
 package com.couchbase.client.core.message.internal;
 
 import com.couchbase.client.core.message.AbstractCouchbaseRequest;
+import com.couchbase.client.core.message.RequestType;
 
 public class SignalConfigReload extends AbstractCouchbaseRequest {
 
@@ -9,4 +10,9 @@ public class SignalConfigReload extends AbstractCouchbaseRequest {
     private SignalConfigReload() {
         super(null, null);
     }
+
+    @Override
+    public RequestType requestType() {
+        return RequestType.SIGNAL_CONFIG_RELOAD;
+    }
 }
@@ -22,6 +22,7 @@
 package com.couchbase.client.core.message.internal;
 
 import com.couchbase.client.core.message.AbstractCouchbaseRequest;
+import com.couchbase.client.core.message.RequestType;
 
 public class SignalFlush extends AbstractCouchbaseRequest implements InternalRequest {
 
@@ -30,4 +31,9 @@ public class SignalFlush extends AbstractCouchbaseRequest implements InternalReq
     private SignalFlush() {
         super(null, null);
     }
+
+    @Override
+    public RequestType requestType() {
+        return RequestType.SIGNAL_FLUSH;
+    }
 }
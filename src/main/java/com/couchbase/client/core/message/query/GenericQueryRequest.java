@@ -2,6 +2,7 @@ package com.couchbase.client.core.message.query;
 
 import com.couchbase.client.core.message.AbstractCouchbaseRequest;
 import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.RequestType;
 import rx.subjects.ReplaySubject;
 
 /**
@@ -22,4 +23,9 @@ public class GenericQueryRequest extends AbstractCouchbaseRequest implements Que
     public String query() {
         return query;
     }
+
+    @Override
+    public RequestType requestType() {
+        return RequestType.GENERIC_QUERY;
+    }
 }
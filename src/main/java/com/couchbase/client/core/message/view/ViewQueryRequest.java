@@ -2,6 +2,7 @@ package com.couchbase.client.core.message.view;
 
 import com.couchbase.client.core.message.AbstractCouchbaseRequest;
 import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.RequestType;
 import rx.subjects.ReplaySubject;
 
 public class ViewQueryRequest extends AbstractCouchbaseRequest implements ViewRequest {
@@ -38,4 +39,9 @@ public class ViewQueryRequest extends AbstractCouchbaseRequest implements ViewRe
     public boolean development() {
         return development;
     }
+
+    @Override
+    public RequestType requestType() {
+        return RequestType.VIEW_QUERY;
+    }
 }
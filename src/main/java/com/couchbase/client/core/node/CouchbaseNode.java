@@ -30,6 +30,7 @@ import com.couchbase.client.core.message.internal.RemoveServiceRequest;
 import com.couchbase.client.core.message.internal.SignalFlush;
 import com.couchbase.client.core.service.Service;
 import com.couchbase.client.core.service.ServiceFactory;
+import com.couchbase.client.core.service.ServiceType;
 import com.couchbase.client.core.state.AbstractStateMachine;
 import com.couchbase.client.core.state.LifecycleState;
 import com.lmax.disruptor.RingBuffer;
@@ -121,6 +122,11 @@ public class CouchbaseNode extends AbstractStateMachine<LifecycleState> implemen
         return hostname;
     }
 
+    @Override
+    public boolean hasService(final ServiceType type, final String bucket) {
+        return serviceRegistry.serviceBy(type, bucket) != null;
+    }
+
     @Override
     public Observable<LifecycleState> connect() {
         return Observable.from(serviceRegistry.services()).flatMap(new Func1<Service, Observable<LifecycleState>>() {
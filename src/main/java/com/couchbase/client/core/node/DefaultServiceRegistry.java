@@ -21,26 +21,30 @@
  */
 package com.couchbase.client.core.node;
 
+import com.couchbase.client.core.message.BucketIds;
 import com.couchbase.client.core.message.CouchbaseRequest;
-import com.couchbase.client.core.message.binary.BinaryRequest;
-import com.couchbase.client.core.message.config.ConfigRequest;
-import com.couchbase.client.core.message.query.QueryRequest;
-import com.couchbase.client.core.message.view.ViewRequest;
 import com.couchbase.client.core.service.BucketServiceMapping;
 import com.couchbase.client.core.service.Service;
 import com.couchbase.client.core.service.ServiceType;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The default implementation of a {@link ServiceRegistry}.
+ *
+ * Mutations are serialized and publish an immutable {@link Snapshot} of all services, indexed by the ordinal of
+ * their {@link ServiceType} and the interned id of their bucket (see {@link BucketIds}). Lookups only read the
+ * current snapshot, so they never lock and cost two array loads, using the bucket id the request resolved when it
+ * was created.
  */
 public class DefaultServiceRegistry implements ServiceRegistry {
 
+    private static final ServiceType[] TYPES = ServiceType.values();
+
     /**
      * Contains services which work across buckets.
      */
@@ -51,7 +55,10 @@ public class DefaultServiceRegistry implements ServiceRegistry {
      */
     private final Map<String, Map<ServiceType, Service>> localServices;
 
-    private AtomicReference<List<Service>> serviceCache;
+    /**
+     * The lookup structure for the current set of services, replaced on every mutation.
+     */
+    private volatile Snapshot snapshot;
 
     /**
      * Create a new {@link DefaultServiceRegistry} with custom containers.
@@ -65,7 +72,7 @@ public class DefaultServiceRegistry implements ServiceRegistry {
         final Map<String, Map<ServiceType, Service>> localServices) {
         this.globalServices = globalServices;
         this.localServices = localServices;
-        this.serviceCache = new AtomicReference<List<Service>>(new ArrayList<Service>());
+        this.snapshot = new Snapshot(globalServices, localServices);
     }
 
     /**
@@ -76,7 +83,7 @@ public class DefaultServiceRegistry implements ServiceRegistry {
     }
 
     @Override
-    public Service addService(final Service service, final String bucket) {
+    public synchronized Service addService(final Service service, final String bucket) {
         if (service.mapping() == BucketServiceMapping.ONE_BY_ONE) {
             if (!localServices.containsKey(bucket)) {
                 localServices.put(bucket, new ConcurrentHashMap<ServiceType, Service>());
@@ -89,86 +96,42 @@ public class DefaultServiceRegistry implements ServiceRegistry {
                 globalServices.put(service.type(), service);
             }
         }
-        recalculateServiceCache();
+        snapshot = new Snapshot(globalServices, localServices);
         return service;
     }
 
     @Override
-    public Service removeService(final Service service, final String bucket) {
+    public synchronized Service removeService(final Service service, final String bucket) {
         if (service.mapping() == BucketServiceMapping.ONE_BY_ONE) {
-            if (localServices.containsKey(bucket) && localServices.get(bucket).containsKey(service.type())) {
-                localServices.get(bucket).remove(service.type());
-            }
-            if (localServices.get(bucket).isEmpty()) {
-                localServices.remove(bucket);
+            Map<ServiceType, Service> bucketServices = localServices.get(bucket);
+            if (bucketServices != null) {
+                bucketServices.remove(service.type());
+                if (bucketServices.isEmpty()) {
+                    localServices.remove(bucket);
+                }
             }
         } else {
             if (globalServices.containsKey(service.type())) {
                 globalServices.remove(service.type());
             }
         }
-        recalculateServiceCache();
+        snapshot = new Snapshot(globalServices, localServices);
         return service;
     }
 
     @Override
     public Service locate(final CouchbaseRequest request) {
-        ServiceType type = serviceTypeFor(request);
-        if (type.mapping() == BucketServiceMapping.ONE_BY_ONE) {
-            return localServices.get(request.bucket()).get(type);
-        } else {
-            return globalServices.get(type);
-        }
+        return snapshot.serviceBy(ServiceType.forRequest(request), request.bucketId());
     }
 
     @Override
     public List<Service> services() {
-        return serviceCache.get();
-    }
-
-    private void recalculateServiceCache() {
-        List<Service> services = new ArrayList<Service>();
-        for (Service service : globalServices.values()) {
-            services.add(service);
-        }
-        for (Map<ServiceType, Service> bucket : localServices.values()) {
-            for (Service service : bucket.values()) {
-                services.add(service);
-            }
-        }
-        serviceCache.set(services);
+        return snapshot.services;
     }
 
     @Override
     public Service serviceBy(final ServiceType type, final String bucket) {
-        if (type.mapping() == BucketServiceMapping.ONE_BY_ONE) {
-            if (localServices.get(bucket) == null) {
-                return null;
-            }
-            return localServices.get(bucket).get(type);
-        } else {
-            return globalServices.get(type);
-        }
-    }
-
-    /**
-     * Returns the mapping for a given {@link CouchbaseRequest}.
-     *
-     * @param request the request to check.
-     * @return the mapping for the request.
-     */
-    private static ServiceType serviceTypeFor(final CouchbaseRequest request) {
-        if (request instanceof BinaryRequest) {
-            return ServiceType.BINARY;
-        } else if (request instanceof ConfigRequest) {
-            return ServiceType.CONFIG;
-        } else if (request instanceof ViewRequest) {
-            return ServiceType.VIEW;
-        } else if (request instanceof QueryRequest) {
-            return ServiceType.QUERY;
-        } else {
-            throw new IllegalStateException("Unknown Request: " + request);
-        }
+        return snapshot.serviceBy(type, BucketIds.intern(bucket));
     }
 
     @Override
@@ -176,7 +139,58 @@ public class DefaultServiceRegistry implements ServiceRegistry {
         return "DefaultServiceRegistry{" +
             "globalServices=" + globalServices +
             ", localServices=" + localServices +
-            ", serviceCache=" + serviceCache +
+            ", services=" + snapshot.services +
             '}';
     }
+
+    /**
+     * An immutable view of the registered services, the bucket-local ones indexed by bucket id.
+     */
+    static final class Snapshot {
+
+        private final Service[] global;
+        private final Service[][] local;
+        private final List<Service> services;
+
+        Snapshot(final Map<ServiceType, Service> globalServices,
+            final Map<String, Map<ServiceType, Service>> localServices) {
+            List<Service> all = new ArrayList<Service>();
+
+            global = new Service[TYPES.length];
+            for (Map.Entry<ServiceType, Service> entry : globalServices.entrySet()) {
+                global[entry.getKey().ordinal()] = entry.getValue();
+                all.add(entry.getValue());
+            }
+
+            int maxId = -1;
+            for (String bucket : localServices.keySet()) {
+                maxId = Math.max(maxId, BucketIds.intern(bucket));
+            }
+            local = new Service[maxId + 1][];
+            for (Map.Entry<String, Map<ServiceType, Service>> bucket : localServices.entrySet()) {
+                Service[] byType = new Service[TYPES.length];
+                for (Map.Entry<ServiceType, Service> entry : bucket.getValue().entrySet()) {
+                    byType[entry.getKey().ordinal()] = entry.getValue();
+                    all.add(entry.getValue());
+                }
+                local[BucketIds.intern(bucket.getKey())] = byType;
+            }
+
+            services = Collections.unmodifiableList(all);
+        }
+
+        /**
+         * Returns the service for the given type and bucket id, or null if none is registered.
+         */
+        Service serviceBy(final ServiceType type, final int bucketId) {
+            if (type.mapping() != BucketServiceMapping.ONE_BY_ONE) {
+                return global[type.ordinal()];
+            }
+            if (bucketId < 0 || bucketId >= local.length) {
+                return null;
+            }
+            Service[] byType = local[bucketId];
+            return byType == null ? null : byType[type.ordinal()];
+        }
+    }
 }
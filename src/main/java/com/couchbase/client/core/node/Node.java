@@ -26,6 +26,7 @@ import com.couchbase.client.core.message.CouchbaseResponse;
 import com.couchbase.client.core.message.internal.AddServiceRequest;
 import com.couchbase.client.core.message.internal.RemoveServiceRequest;
 import com.couchbase.client.core.service.Service;
+import com.couchbase.client.core.service.ServiceType;
 import com.couchbase.client.core.state.LifecycleState;
 import com.couchbase.client.core.state.Stateful;
 import rx.Observable;
@@ -56,6 +57,17 @@ public interface Node extends Stateful<LifecycleState> {
      */
     InetAddress hostname();
 
+    /**
+     * Checks if a {@link Service} of the given type is enabled on the {@link Node} for the bucket.
+     *
+     * For services which handle all buckets at once, the bucket is ignored.
+     *
+     * @param type the type of the service.
+     * @param bucket the name of the bucket.
+     * @return true if the service is enabled.
+     */
+    boolean hasService(ServiceType type, String bucket);
+
     /**
      * Connects all currently enabled {@link Service}s.
      *
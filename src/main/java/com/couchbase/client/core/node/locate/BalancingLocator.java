@@ -0,0 +1,199 @@
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.config.ClusterConfig;
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.node.Node;
+import com.couchbase.client.core.service.BucketServiceMapping;
+import com.couchbase.client.core.service.ServiceType;
+import com.couchbase.client.core.state.LifecycleState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Base {@link Locator} for services where every node which runs the service can serve every request.
+ *
+ * Only nodes with the service enabled are considered, the {@link NodeSelectionStrategy} picks among them. If no
+ * node runs the service, no node is returned and the request is retried. If the client has a locality group, the
+ * strategy only picks among the connected nodes of that group, and among all nodes only if there is none.
+ *
+ * The eligible nodes are collected once per bucket and reused until the managed nodes or the configuration change,
+ * so that locating a request does not need to check every node for the service or allocate any arrays.
+ */
+public abstract class BalancingLocator implements Locator {
+
+    private static final Node[] NO_NODES = new Node[0];
+
+    private final ServiceType type;
+    private final NodeSelectionStrategy strategy;
+    private final NodeLocality locality;
+
+    /**
+     * The eligible nodes per bucket, only services bound to a bucket need more than one entry.
+     */
+    private final ConcurrentMap<String, Candidates> candidates = new ConcurrentHashMap<String, Candidates>();
+
+    /**
+     * The managed nodes the strategy has last been told about.
+     */
+    private volatile Set<Node> knownNodes;
+
+    protected BalancingLocator(final ServiceType type, final NodeSelectionStrategy strategy,
+        final NodeLocality locality) {
+        this.type = type;
+        this.strategy = strategy;
+        this.locality = locality;
+    }
+
+    @Override
+    public Node[] locate(final CouchbaseRequest request, final Set<Node> nodes, final ClusterConfig config) {
+        Candidates eligible = candidates(request.bucket(), nodes, config);
+        Node[] pool = eligible.nodes;
+        if (pool.length == 0) {
+            return NO_NODES;
+        }
+        if (locality.preferLocal()) {
+            Node[] local = connected(eligible.local);
+            if (local != null) {
+                pool = local;
+            }
+        }
+        Node selected = strategy.select(request, pool, pool.length);
+        locality.record(selected);
+        return eligible.target(selected);
+    }
+
+    /**
+     * Returns the eligible nodes for the bucket, collecting them again if the nodes or the configuration changed.
+     */
+    private Candidates candidates(final String bucket, final Set<Node> nodes, final ClusterConfig config) {
+        String key = bucket == null || type.mapping() != BucketServiceMapping.ONE_BY_ONE ? "" : bucket;
+        Candidates current = candidates.get(key);
+        if (current == null || !current.isCollectedFrom(nodes, config)) {
+            if (knownNodes != nodes) {
+                knownNodes = nodes;
+                strategy.nodesChanged(nodes);
+            }
+            current = Candidates.collect(type, bucket, nodes, config, locality);
+            candidates.put(key, current);
+        }
+        return current;
+    }
+
+    /**
+     * Returns the connected nodes out of the local ones.
+     *
+     * @return the local nodes as is if all of them are connected, null if none is.
+     */
+    private static Node[] connected(final Node[] local) {
+        int connected = 0;
+        for (Node node : local) {
+            if (node.isState(LifecycleState.CONNECTED)) {
+                connected++;
+            }
+        }
+        if (connected == 0) {
+            return null;
+        }
+        if (connected == local.length) {
+            return local;
+        }
+        Node[] filtered = new Node[connected];
+        int i = 0;
+        for (Node node : local) {
+            if (node.isState(LifecycleState.CONNECTED)) {
+                filtered[i++] = node;
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Returns the strategy used to select among the candidate nodes.
+     *
+     * @return the selection strategy.
+     */
+    public NodeSelectionStrategy strategy() {
+        return strategy;
+    }
+
+    /**
+     * Returns the locality groups the nodes are preferred by.
+     *
+     * @return the node locality.
+     */
+    public NodeLocality locality() {
+        return locality;
+    }
+
+    /**
+     * The nodes with the service enabled, collected from one snapshot of the managed nodes and configuration.
+     */
+    private static final class Candidates {
+
+        private final Set<Node> managed;
+        private final ClusterConfig config;
+
+        /**
+         * The eligible nodes, in the order of the managed nodes.
+         */
+        private final Node[] nodes;
+
+        /**
+         * Every eligible node wrapped in an array, so it can be returned as is.
+         */
+        private final Node[][] targets;
+
+        /**
+         * The eligible nodes in the local group.
+         */
+        private final Node[] local;
+
+        private Candidates(final Set<Node> managed, final ClusterConfig config, final Node[] nodes,
+            final Node[] local) {
+            this.managed = managed;
+            this.config = config;
+            this.nodes = nodes;
+            this.local = local;
+            targets = new Node[nodes.length][];
+            for (int i = 0; i < nodes.length; i++) {
+                targets[i] = new Node[] { nodes[i] };
+            }
+        }
+
+        static Candidates collect(final ServiceType type, final String bucket, final Set<Node> managed,
+            final ClusterConfig config, final NodeLocality locality) {
+            List<Node> eligible = new ArrayList<Node>(managed.size());
+            List<Node> local = new ArrayList<Node>();
+            for (Node node : managed) {
+                if (node.hasService(type, bucket)) {
+                    eligible.add(node);
+                    if (locality.preferLocal() && locality.isLocal(node)) {
+                        local.add(node);
+                    }
+                }
+            }
+            return new Candidates(managed, config, eligible.toArray(new Node[eligible.size()]),
+                local.toArray(new Node[local.size()]));
+        }
+
+        boolean isCollectedFrom(final Set<Node> managed, final ClusterConfig config) {
+            return this.managed == managed && this.config == config;
+        }
+
+        /**
+         * Returns the selected node wrapped in an array.
+         */
+        Node[] target(final Node selected) {
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i] == selected) {
+                    return targets[i];
+                }
+            }
+            return new Node[] { selected };
+        }
+    }
+}
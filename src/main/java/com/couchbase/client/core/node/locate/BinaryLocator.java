@@ -8,20 +8,52 @@ import com.couchbase.client.core.message.CouchbaseRequest;
 import com.couchbase.client.core.message.binary.AbstractKeyAwareBinaryRequest;
 import com.couchbase.client.core.message.binary.BinaryRequest;
 import com.couchbase.client.core.message.binary.GetBucketConfigRequest;
+import com.couchbase.client.core.message.binary.ReplicaGetRequest;
+import com.couchbase.client.core.message.binary.ReplicaMode;
 import com.couchbase.client.core.node.Node;
+import com.couchbase.client.core.state.LifecycleState;
 
-import java.io.UnsupportedEncodingException;
 import java.util.Set;
-import java.util.zip.CRC32;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This {@link Locator} finds the proper {@link Node}s for every incoming {@link CouchbaseRequest}.
  *
  * Depending on the bucket type used, it either uses partition/vbucket (couchbase) or ketama (memcache) hashing. For
- * broadcast-type operations, it will return all suitable nodes without hashing by key.
+ * broadcast-type operations, it will return all suitable nodes without hashing by key. Replica reads which may be
+ * served by any replica prefer a connected replica in the locality group of the client. Memcache buckets have no
+ * replicas, so replica reads against them are rejected instead of being sent to the master.
  */
 public class BinaryLocator implements Locator {
 
+    /**
+     * Returned if the requested replica is not available right now.
+     */
+    private static final Node[] NO_NODES = new Node[0];
+
+    /**
+     * The compiled routing tables per bucket.
+     */
+    private final ConcurrentMap<String, PartitionRoutingTable> routingTables =
+        new ConcurrentHashMap<String, PartitionRoutingTable>();
+
+    /**
+     * The compiled ketama routing tables per memcache bucket.
+     */
+    private final ConcurrentMap<String, KetamaRoutingTable> ketamaTables =
+        new ConcurrentHashMap<String, KetamaRoutingTable>();
+
+    private final NodeLocality locality;
+
+    public BinaryLocator() {
+        this(new NodeLocality());
+    }
+
+    public BinaryLocator(final NodeLocality locality) {
+        this.locality = locality;
+    }
+
     @Override
     public Node[] locate(final CouchbaseRequest request, final Set<Node> nodes, final ClusterConfig cluster) {
         if (request instanceof GetBucketConfigRequest) {
@@ -47,6 +79,9 @@ public class BinaryLocator implements Locator {
     /**
      * Locates the proper {@link Node}s for a Couchbase bucket.
      *
+     * The configuration is compiled into a {@link PartitionRoutingTable} the first time it is used, and again only
+     * once the configuration or the managed nodes change.
+     *
      * @param request the request.
      * @param nodes   the managed nodes.
      * @param config  the bucket configuration.
@@ -58,42 +93,106 @@ public class BinaryLocator implements Locator {
         {
             throw new IllegalStateException("Request ist not key aware: " + request);
         }
-        final String key = ((AbstractKeyAwareBinaryRequest) request).key();
+        final byte[] key = ((AbstractKeyAwareBinaryRequest) request).keyBytes();
+        final PartitionRoutingTable table = routingTable(request.bucket(), nodes, config);
 
-        final CRC32 crc32 = new CRC32();
-        try {
-            crc32.update(key.getBytes("UTF-8"));
-        } catch (UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
-        final long rv = (crc32.getValue() >> 16) & 0x7fff;
-        final int partitionId = (int) rv & config.partitions().size() - 1;
+        final long rv = (Crc32.crc32(key) >> 16) & 0x7fff;
+        final int partitionId = (int) rv & table.partitions() - 1;
         request.partition((short) partitionId);
 
-        final int nodeId = config.partitions().get(partitionId).master();
-        if (nodeId < 0) {
-            return new Node[]{};
+        if (request instanceof ReplicaGetRequest) {
+            final ReplicaMode mode = ((ReplicaGetRequest) request).mode();
+            final Node replica = mode == ReplicaMode.ANY
+                ? nearestReplica(table, partitionId, config.numberOfReplicas())
+                : table.replica(partitionId, mode.replica() - 1);
+            if (replica == null) {
+                return NO_NODES;
+            }
+            locality.record(replica);
+            return new Node[] { replica };
         }
-        final String hostname = config.partitionHosts().get(nodeId);
-        for (final Node node : nodes) {
-            if (node.hostname().getHostName().equals(hostname)) {
-                return new Node[]{node};
+
+        final Node[] master = table.master(partitionId);
+        if (master == null) {
+            throw new IllegalStateException("Node not found for request: " + request);
+        }
+        return master;
+    }
+
+    /**
+     * Returns the first connected replica of the partition in the local group, or any connected one otherwise.
+     *
+     * @param table the routing table.
+     * @param partition the partition id.
+     * @param replicas the number of configured replicas.
+     * @return the replica node, or null if none is connected.
+     */
+    private Node nearestReplica(final PartitionRoutingTable table, final int partition, final int replicas) {
+        Node fallback = null;
+        for (int i = 0; i < replicas; i++) {
+            final Node replica = table.replica(partition, i);
+            if (replica == null || !replica.isState(LifecycleState.CONNECTED)) {
+                continue;
+            }
+            if (locality.isLocal(replica)) {
+                return replica;
             }
+            if (fallback == null) {
+                fallback = replica;
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Returns the routing table for the given bucket, compiling a new one if the current one is outdated.
+     *
+     * @param bucket the name of the bucket.
+     * @param nodes  the managed nodes.
+     * @param config the bucket configuration.
+     * @return the up to date routing table.
+     */
+    private PartitionRoutingTable routingTable(final String bucket, final Set<Node> nodes,
+                                               final CouchbaseBucketConfig config) {
+        PartitionRoutingTable table = routingTables.get(bucket);
+        if (table == null || !table.isCompiledFrom(config, nodes)) {
+            table = PartitionRoutingTable.compile(config, nodes);
+            routingTables.put(bucket, table);
         }
-        throw new IllegalStateException("Node not found for request: " + request);
+        return table;
     }
 
     /**
      * Locates the proper {@link Node}s for a Memcache bucket.
      *
+     * The key is hashed onto the ketama continuum of the bucket, which is only rebuilt if the members of the bucket
+     * change.
+     *
      * @param request the request.
      * @param nodes   the managed nodes.
      * @param config  the bucket configuration.
      * @return an observable with one or more nodes to send the request to.
      */
-    private Node[] locateForMemcacheBucket(final BinaryRequest request, final Set<Node> nodes, final MemcacheBucketConfig config) {
-        // todo: ketama lookup
-        throw new UnsupportedOperationException("implement me");
+    private Node[] locateForMemcacheBucket(final BinaryRequest request, final Set<Node> nodes,
+                                           final MemcacheBucketConfig config) {
+        if (!(request instanceof AbstractKeyAwareBinaryRequest)) {
+            throw new IllegalStateException("Request ist not key aware: " + request);
+        }
+        if (request instanceof ReplicaGetRequest) {
+            throw new IllegalStateException("Replica reads are not supported on memcache buckets: " + request);
+        }
+
+        KetamaRoutingTable table = ketamaTables.get(request.bucket());
+        if (table == null || !table.isCompiledFrom(config, nodes)) {
+            table = KetamaRoutingTable.compile(config, nodes, table);
+            ketamaTables.put(request.bucket(), table);
+        }
+
+        final Node[] found = table.locate(((AbstractKeyAwareBinaryRequest) request).keyBytes());
+        if (found == null) {
+            throw new IllegalStateException("Node not found for request: " + request);
+        }
+        return found;
     }
 
 }
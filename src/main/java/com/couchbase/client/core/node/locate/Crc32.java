@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.node.locate;
+
+/**
+ * A table driven CRC32 (IEEE 802.3) implementation which works on plain byte arrays.
+ *
+ * Unlike {@link java.util.zip.CRC32}, it is stateless, so hashing a key neither allocates nor needs any
+ * synchronization between threads.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+final class Crc32 {
+
+    /**
+     * The precomputed remainders for every byte value.
+     */
+    private static final int[] TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < TABLE.length; i++) {
+            int crc = i;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0xEDB88320 : crc >>> 1;
+            }
+            TABLE[i] = crc;
+        }
+    }
+
+    private Crc32() {
+        // no instances
+    }
+
+    /**
+     * Computes the CRC32 checksum of the given bytes.
+     *
+     * @param bytes the bytes to hash.
+     * @return the checksum, same as {@link java.util.zip.CRC32#getValue()}.
+     */
+    static long crc32(final byte[] bytes) {
+        int crc = 0xFFFFFFFF;
+        for (int i = 0; i < bytes.length; i++) {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ bytes[i]) & 0xFF];
+        }
+        return (~crc) & 0xFFFFFFFFL;
+    }
+
+}
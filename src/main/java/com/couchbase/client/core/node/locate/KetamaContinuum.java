@@ -0,0 +1,172 @@
+package com.couchbase.client.core.node.locate;
+
+import io.netty.util.CharsetUtil;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * An immutable ketama continuum, mapping key hashes onto members through consistent hashing.
+ *
+ * Every member is placed on the continuum {@link #POINTS_PER_MEMBER} times, derived from MD5 hashes of its name the
+ * same way libketama and spymemcached do it. The points are kept in a sorted primitive array together with their
+ * owners, so looking up a key is one binary search without any boxing.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+final class KetamaContinuum {
+
+    /**
+     * The number of points every member gets on the continuum.
+     */
+    static final int POINTS_PER_MEMBER = 160;
+
+    /**
+     * A reusable MD5 digest and output buffer per thread.
+     */
+    private static final ThreadLocal<Md5> MD5 = new ThreadLocal<Md5>() {
+        @Override
+        protected Md5 initialValue() {
+            return new Md5();
+        }
+    };
+
+    /**
+     * The members, sorted by name.
+     */
+    private final String[] members;
+
+    /**
+     * The sorted points on the continuum.
+     */
+    private final long[] points;
+
+    /**
+     * The index of the member owning the point at the same position.
+     */
+    private final int[] owners;
+
+    private KetamaContinuum(final String[] members, final long[] points, final int[] owners) {
+        this.members = members;
+        this.points = points;
+        this.owners = owners;
+    }
+
+    /**
+     * Builds the continuum for the given members.
+     *
+     * @param members the names of the members, sorted.
+     * @return the built continuum.
+     */
+    static KetamaContinuum build(final String[] members) {
+        // every entry packs the unsigned point into the upper and the owner into the lower half, flipping the sign
+        // bit so that a signed sort orders the points as unsigned values
+        MessageDigest md5 = newMd5();
+        byte[] digest = new byte[16];
+        long[] packed = new long[members.length * POINTS_PER_MEMBER];
+        int p = 0;
+        for (int m = 0; m < members.length; m++) {
+            for (int i = 0; i < POINTS_PER_MEMBER / 4; i++) {
+                md5(md5, (members[m] + "-" + i).getBytes(CharsetUtil.UTF_8), digest);
+                for (int h = 0; h < 4; h++) {
+                    packed[p++] = ((point(digest, h) << 32) | m) ^ Long.MIN_VALUE;
+                }
+            }
+        }
+
+        Arrays.sort(packed);
+        long[] points = new long[packed.length];
+        int[] owners = new int[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            long entry = packed[i] ^ Long.MIN_VALUE;
+            points[i] = entry >>> 32;
+            owners[i] = (int) entry;
+        }
+        return new KetamaContinuum(members, points, owners);
+    }
+
+    /**
+     * Hashes the given key onto the continuum.
+     *
+     * @param key the encoded key.
+     * @return the hash of the key.
+     */
+    static long hash(final byte[] key) {
+        Md5 md5 = MD5.get();
+        md5(md5.digest, key, md5.output);
+        return point(md5.output, 0);
+    }
+
+    /**
+     * Returns the member owning the given hash, which is the one with the next point on the continuum.
+     *
+     * @param hash the hash of the key.
+     * @return the index of the owning member.
+     */
+    int owner(final long hash) {
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -(index + 1);
+            if (index == points.length) {
+                index = 0;
+            }
+        }
+        return owners[index];
+    }
+
+    /**
+     * Returns the members of this continuum.
+     *
+     * @return the members, sorted by name.
+     */
+    String[] members() {
+        return members;
+    }
+
+    /**
+     * Checks if the continuum has been built for exactly the given members.
+     *
+     * @param others the sorted member names to compare against.
+     * @return true if the members are the same.
+     */
+    boolean hasMembers(final String[] others) {
+        return Arrays.equals(members, others);
+    }
+
+    private static long point(final byte[] digest, final int h) {
+        return ((long) (digest[3 + h * 4] & 0xFF) << 24)
+            | ((long) (digest[2 + h * 4] & 0xFF) << 16)
+            | ((long) (digest[1 + h * 4] & 0xFF) << 8)
+            | (digest[h * 4] & 0xFF);
+    }
+
+    private static void md5(final MessageDigest digest, final byte[] input, final byte[] output) {
+        digest.reset();
+        digest.update(input);
+        try {
+            digest.digest(output, 0, output.length);
+        } catch (DigestException ex) {
+            throw new IllegalStateException("Could not compute the MD5 hash.", ex);
+        }
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("MD5 is not supported on this platform.", ex);
+        }
+    }
+
+    /**
+     * A MD5 digest together with its output buffer, so hashing does not allocate.
+     */
+    private static final class Md5 {
+        final MessageDigest digest = newMd5();
+        final byte[] output = new byte[16];
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.config.MemcacheBucketConfig;
+import com.couchbase.client.core.config.NodeInfo;
+import com.couchbase.client.core.node.Node;
+import com.couchbase.client.core.service.ServiceType;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable routing table for memcache buckets, compiled from a {@link MemcacheBucketConfig} and the managed
+ * {@link Node}s.
+ *
+ * The {@link KetamaContinuum} only depends on the members of the bucket, so it is carried over from the previous
+ * table as long as the membership stays the same and only the resolution of members to managed nodes is redone.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+final class KetamaRoutingTable {
+
+    /**
+     * The port to use if a node does not announce its binary service.
+     */
+    private static final int DEFAULT_BINARY_PORT = 11210;
+
+    /**
+     * The configuration this table has been compiled from.
+     */
+    private final MemcacheBucketConfig config;
+
+    /**
+     * The managed nodes this table has been compiled from.
+     */
+    private final Set<Node> nodes;
+
+    /**
+     * The continuum of the bucket members.
+     */
+    private final KetamaContinuum continuum;
+
+    /**
+     * The node per member, wrapped in an array so it can be returned as is. Null if the node is not managed (yet).
+     */
+    private final Node[][] targets;
+
+    private KetamaRoutingTable(final MemcacheBucketConfig config, final Set<Node> nodes,
+        final KetamaContinuum continuum, final Node[][] targets) {
+        this.config = config;
+        this.nodes = nodes;
+        this.continuum = continuum;
+        this.targets = targets;
+    }
+
+    /**
+     * Compiles a new routing table, reusing the continuum of the previous one if the membership did not change.
+     *
+     * @param config the bucket configuration.
+     * @param nodes the managed nodes.
+     * @param previous the previous table of the bucket, may be null.
+     * @return the compiled table.
+     */
+    static KetamaRoutingTable compile(final MemcacheBucketConfig config, final Set<Node> nodes,
+        final KetamaRoutingTable previous) {
+        List<NodeInfo> infos = config.nodes();
+        Map<String, InetAddress> addresses = new HashMap<String, InetAddress>(infos.size());
+        for (NodeInfo info : infos) {
+            Integer port = info.services().get(ServiceType.BINARY);
+            String member = info.hostname().getHostAddress() + ":" + (port == null ? DEFAULT_BINARY_PORT : port);
+            addresses.put(member, info.hostname());
+        }
+        String[] members = addresses.keySet().toArray(new String[addresses.size()]);
+        Arrays.sort(members);
+
+        KetamaContinuum continuum;
+        if (previous != null && previous.continuum.hasMembers(members)) {
+            continuum = previous.continuum;
+        } else {
+            continuum = KetamaContinuum.build(members);
+        }
+
+        Node[][] targets = new Node[members.length][];
+        for (int i = 0; i < members.length; i++) {
+            InetAddress address = addresses.get(members[i]);
+            for (Node node : nodes) {
+                if (node.hostname().equals(address)) {
+                    targets[i] = new Node[] { node };
+                    break;
+                }
+            }
+        }
+        return new KetamaRoutingTable(config, nodes, continuum, targets);
+    }
+
+    /**
+     * Checks if this table is still valid for the given configuration and managed nodes.
+     *
+     * Both are compared by identity, like in the {@link PartitionRoutingTable}.
+     *
+     * @param config the current bucket configuration.
+     * @param nodes the currently managed nodes.
+     * @return true if the table can be used, false if it needs to be compiled again.
+     */
+    boolean isCompiledFrom(final MemcacheBucketConfig config, final Set<Node> nodes) {
+        return this.config == config && this.nodes == nodes;
+    }
+
+    /**
+     * Returns the node owning the given key.
+     *
+     * The returned array must not be modified.
+     *
+     * @param key the encoded key.
+     * @return the owning node, or null if it is not managed.
+     */
+    Node[] locate(final byte[] key) {
+        if (targets.length == 0) {
+            return null;
+        }
+        return targets[continuum.owner(KetamaContinuum.hash(key))];
+    }
+
+    /**
+     * Returns the continuum of this table.
+     *
+     * @return the continuum.
+     */
+    KetamaContinuum continuum() {
+        return continuum;
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.node.Node;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Selects the {@link Node} with the fewest outstanding requests.
+ *
+ * Every scan starts at a rotating offset, so ties (like on an idle cluster) are spread in round-robin fashion
+ * instead of always landing on the first candidate.
+ */
+public class LeastOutstandingNodeSelectionStrategy extends LoadAwareNodeSelectionStrategy {
+
+    private final AtomicInteger offset = new AtomicInteger();
+
+    @Override
+    protected Node choose(final Node[] candidates, final int size) {
+        int start = (offset.getAndIncrement() & Integer.MAX_VALUE) % size;
+        Node best = candidates[start];
+        int least = outstanding(best);
+        for (int i = 1; i < size && least > 0; i++) {
+            Node candidate = candidates[(start + i) % size];
+            int count = outstanding(candidate);
+            if (count < least) {
+                best = candidate;
+                least = count;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,135 @@
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.node.Node;
+import rx.Observer;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class for strategies which select {@link Node}s based on the number of requests still in flight on them.
+ *
+ * A request counts as outstanding from the moment it is selected until its response observable terminates. A retried
+ * request is only counted once, on the node it has been selected for last. The counts of nodes which are not managed
+ * anymore are dropped once the locator reports the change.
+ */
+public abstract class LoadAwareNodeSelectionStrategy implements NodeSelectionStrategy {
+
+    /**
+     * The outstanding request counts per node.
+     */
+    private final ConcurrentMap<Node, AtomicInteger> outstanding = new ConcurrentHashMap<Node, AtomicInteger>();
+
+    /**
+     * The node count every request in flight is currently added to.
+     */
+    private final ConcurrentMap<CouchbaseRequest, Assignment> assignments =
+        new ConcurrentHashMap<CouchbaseRequest, Assignment>();
+
+    @Override
+    public Node select(final CouchbaseRequest request, final Node[] candidates, final int size) {
+        Node node = choose(candidates, size);
+        Assignment assignment = assignments.get(request);
+        if (assignment == null) {
+            assignment = new Assignment(request);
+            assignments.put(request, assignment);
+            assignment.assign(counter(node));
+            request.observable().subscribe(assignment);
+        } else {
+            assignment.assign(counter(node));
+        }
+        return node;
+    }
+
+    @Override
+    public void nodesChanged(final Set<Node> nodes) {
+        outstanding.keySet().retainAll(nodes);
+    }
+
+    /**
+     * Chooses one of the candidates, usually based on {@link #outstanding(Node)}.
+     *
+     * @param candidates the candidate nodes.
+     * @param size the number of valid candidates.
+     * @return the chosen node.
+     */
+    protected abstract Node choose(Node[] candidates, int size);
+
+    /**
+     * Returns the number of outstanding requests selected onto the given {@link Node}.
+     *
+     * @param node the node to check.
+     * @return the number of requests in flight.
+     */
+    public int outstanding(final Node node) {
+        AtomicInteger count = outstanding.get(node);
+        return count == null ? 0 : count.get();
+    }
+
+    private AtomicInteger counter(final Node node) {
+        AtomicInteger count = outstanding.get(node);
+        if (count == null) {
+            AtomicInteger created = new AtomicInteger();
+            count = outstanding.putIfAbsent(node, created);
+            if (count == null) {
+                count = created;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Keeps a request counted on the node it has been selected for last, until its response observable terminates.
+     */
+    private final class Assignment implements Observer<CouchbaseResponse> {
+
+        private final CouchbaseRequest request;
+        private AtomicInteger count;
+        private boolean done;
+
+        Assignment(final CouchbaseRequest request) {
+            this.request = request;
+        }
+
+        /**
+         * Moves the request over to the given count, unless it is done already.
+         */
+        synchronized void assign(final AtomicInteger next) {
+            if (done) {
+                return;
+            }
+            if (count != null) {
+                count.decrementAndGet();
+            }
+            next.incrementAndGet();
+            count = next;
+        }
+
+        @Override
+        public void onCompleted() {
+            release();
+        }
+
+        @Override
+        public void onError(final Throwable e) {
+            release();
+        }
+
+        @Override
+        public void onNext(final CouchbaseResponse response) {
+        }
+
+        private synchronized void release() {
+            done = true;
+            assignments.remove(request);
+            if (count != null) {
+                count.decrementAndGet();
+                count = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.config.BucketConfig;
+import com.couchbase.client.core.config.ClusterConfig;
+import com.couchbase.client.core.config.NodeInfo;
+import com.couchbase.client.core.node.Node;
+
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Assigns {@link Node}s to locality groups (racks, server groups or availability zones) and counts the requests
+ * routed to each group.
+ *
+ * The group of a node is taken from the configured node groups first and from the server group announced in the
+ * cluster configuration otherwise. Locators which can choose among several nodes use {@link #isLocal(Node)} to
+ * prefer nodes in the group of the client.
+ */
+public class NodeLocality {
+
+    /**
+     * The group of nodes which have not been assigned to one.
+     */
+    public static final String UNKNOWN_GROUP = "";
+
+    private final String localGroup;
+    private final Map<String, String> configuredGroups;
+    private final ConcurrentMap<String, AtomicLong> traffic = new ConcurrentHashMap<String, AtomicLong>();
+
+    /**
+     * The server groups from the last cluster configuration.
+     */
+    private volatile Map<InetAddress, String> serverGroups = Collections.emptyMap();
+
+    /**
+     * The resolved groups of all nodes seen since the last configuration, replaced on every update.
+     */
+    private volatile ConcurrentMap<InetAddress, String> resolved = new ConcurrentHashMap<InetAddress, String>();
+
+    /**
+     * Creates a {@link NodeLocality} without a local group, which prefers no node over another.
+     */
+    public NodeLocality() {
+        this(null, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Creates a new {@link NodeLocality}.
+     *
+     * @param localGroup the group of the client, null or empty if locality should not be preferred.
+     * @param configuredGroups the groups by node hostname or ip address, overriding the server groups.
+     */
+    public NodeLocality(final String localGroup, final Map<String, String> configuredGroups) {
+        this.localGroup = localGroup == null || localGroup.isEmpty() ? null : localGroup;
+        this.configuredGroups = configuredGroups == null
+            ? Collections.<String, String>emptyMap() : new HashMap<String, String>(configuredGroups);
+    }
+
+    /**
+     * Picks up the server groups of the nodes from a new cluster configuration.
+     *
+     * @param config the cluster configuration.
+     */
+    public void update(final ClusterConfig config) {
+        Map<InetAddress, String> groups = new HashMap<InetAddress, String>();
+        for (BucketConfig bucket : config.bucketConfigs().values()) {
+            for (NodeInfo node : bucket.nodes()) {
+                if (node.serverGroup() != null && !node.serverGroup().isEmpty()) {
+                    groups.put(node.hostname(), node.serverGroup());
+                }
+            }
+        }
+        serverGroups = groups;
+        resolved = new ConcurrentHashMap<InetAddress, String>();
+    }
+
+    /**
+     * Returns the group of the client.
+     *
+     * @return the local group, or null if locality is not preferred.
+     */
+    public String localGroup() {
+        return localGroup;
+    }
+
+    /**
+     * Returns if nodes in the local group should be preferred.
+     *
+     * @return true if a local group is set.
+     */
+    public boolean preferLocal() {
+        return localGroup != null;
+    }
+
+    /**
+     * Checks if the node is part of the local group.
+     *
+     * @param node the node to check.
+     * @return true if the node is in the group of the client.
+     */
+    public boolean isLocal(final Node node) {
+        return localGroup != null && localGroup.equals(group(node));
+    }
+
+    /**
+     * Returns the group of the given node.
+     *
+     * @param node the node.
+     * @return the group name, or {@link #UNKNOWN_GROUP} if the node has not been assigned to one.
+     */
+    public String group(final Node node) {
+        InetAddress address = node.hostname();
+        if (address == null) {
+            return UNKNOWN_GROUP;
+        }
+        ConcurrentMap<InetAddress, String> groups = resolved;
+        String group = groups.get(address);
+        if (group == null) {
+            group = configuredGroup(address);
+            if (group == null) {
+                group = serverGroups.get(address);
+            }
+            if (group == null) {
+                group = UNKNOWN_GROUP;
+            }
+            groups.put(address, group);
+        }
+        return group;
+    }
+
+    /**
+     * Counts a request routed to the given node against its group.
+     *
+     * @param node the node the request is sent to.
+     */
+    public void record(final Node node) {
+        String group = group(node);
+        AtomicLong counter = traffic.get(group);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = traffic.putIfAbsent(group, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of requests routed to each group so far.
+     *
+     * @return the request counts by group name.
+     */
+    public Map<String, Long> traffic() {
+        Map<String, Long> counts = new HashMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : traffic.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    /**
+     * Looks up the configured group by ip address and, if it is known without a reverse lookup, by hostname.
+     */
+    private String configuredGroup(final InetAddress address) {
+        if (configuredGroups.isEmpty()) {
+            return null;
+        }
+        String group = configuredGroups.get(address.getHostAddress());
+        if (group == null) {
+            String text = address.toString();
+            int separator = text.indexOf('/');
+            if (separator > 0) {
+                group = configuredGroups.get(text.substring(0, separator));
+            }
+        }
+        return group;
+    }
+
+    @Override
+    public String toString() {
+        return "NodeLocality{" +
+            "localGroup=" + localGroup +
+            ", traffic=" + traffic +
+            '}';
+    }
+}
@@ -0,0 +1,32 @@
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.node.Node;
+
+import java.util.Set;
+
+/**
+ * Picks the {@link Node} out of a set of equal candidates which should serve a {@link CouchbaseRequest}.
+ *
+ * Implementations are shared by all request consumers and therefore need to be thread safe.
+ */
+public interface NodeSelectionStrategy {
+
+    /**
+     * Selects one of the candidate {@link Node}s for the given request.
+     *
+     * @param request the request to serve.
+     * @param candidates the candidate nodes, only the first {@code size} slots are valid.
+     * @param size the number of valid candidates, always greater than 0.
+     * @return the selected node.
+     */
+    Node select(CouchbaseRequest request, Node[] candidates, int size);
+
+    /**
+     * Called once the managed {@link Node}s changed, so that state kept for nodes which are gone can be dropped.
+     *
+     * @param nodes the currently managed nodes.
+     */
+    void nodesChanged(Set<Node> nodes);
+
+}
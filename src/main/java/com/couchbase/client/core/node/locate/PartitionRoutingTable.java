@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.config.CouchbaseBucketConfig;
+import com.couchbase.client.core.config.Partition;
+import com.couchbase.client.core.node.Node;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable routing table, compiled from a {@link CouchbaseBucketConfig} and the managed {@link Node}s.
+ *
+ * The partition hosts are resolved to their {@link Node}s once, when the table is compiled. Afterwards, locating the
+ * nodes of a partition is a plain array index, without any allocation or hostname comparison. Since the table is
+ * immutable, it can be shared freely and is simply replaced once the configuration or the managed nodes change.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+final class PartitionRoutingTable {
+
+    /**
+     * Returned for partitions which currently have no master.
+     */
+    private static final Node[] NO_NODES = new Node[0];
+
+    /**
+     * The configuration this table has been compiled from.
+     */
+    private final CouchbaseBucketConfig config;
+
+    /**
+     * The managed nodes this table has been compiled from.
+     */
+    private final Set<Node> nodes;
+
+    /**
+     * The master per partition, wrapped in an array so it can be returned as is. Empty if the partition has no
+     * master, null if the master node is not managed (yet).
+     */
+    private final Node[][] masters;
+
+    /**
+     * The replicas per partition, indexed by replica number. Null entries if there is no such replica or its node is
+     * not managed (yet).
+     */
+    private final Node[][] replicas;
+
+    private PartitionRoutingTable(final CouchbaseBucketConfig config, final Set<Node> nodes, final Node[][] masters,
+        final Node[][] replicas) {
+        this.config = config;
+        this.nodes = nodes;
+        this.masters = masters;
+        this.replicas = replicas;
+    }
+
+    /**
+     * Compiles a new routing table.
+     *
+     * @param config the bucket configuration.
+     * @param nodes the managed nodes.
+     * @return the compiled table.
+     */
+    static PartitionRoutingTable compile(final CouchbaseBucketConfig config, final Set<Node> nodes) {
+        List<String> hosts = config.partitionHosts();
+        Node[] hostNodes = new Node[hosts.size()];
+        for (int i = 0; i < hostNodes.length; i++) {
+            String hostname = hosts.get(i);
+            for (Node node : nodes) {
+                if (node.hostname().getHostName().equals(hostname)) {
+                    hostNodes[i] = node;
+                    break;
+                }
+            }
+        }
+
+        List<Partition> partitions = config.partitions();
+        int numberOfReplicas = config.numberOfReplicas();
+        Node[][] masters = new Node[partitions.size()][];
+        Node[][] replicas = new Node[partitions.size()][];
+        for (int i = 0; i < masters.length; i++) {
+            Partition partition = partitions.get(i);
+            short master = partition.master();
+            if (master < 0) {
+                masters[i] = NO_NODES;
+            } else {
+                Node node = resolve(master, hostNodes);
+                masters[i] = node == null ? null : new Node[] { node };
+            }
+            replicas[i] = new Node[numberOfReplicas];
+            for (int r = 0; r < numberOfReplicas; r++) {
+                replicas[i][r] = resolve(partition.replica(r), hostNodes);
+            }
+        }
+        return new PartitionRoutingTable(config, nodes, masters, replicas);
+    }
+
+    private static Node resolve(final short hostIndex, final Node[] hostNodes) {
+        return hostIndex >= 0 && hostIndex < hostNodes.length ? hostNodes[hostIndex] : null;
+    }
+
+    /**
+     * Checks if this table is still valid for the given configuration and managed nodes.
+     *
+     * Both are compared by identity. The managed nodes are handed over as a new immutable set whenever they change,
+     * so a node replaced by another one is noticed even though the number of nodes stays the same.
+     *
+     * @param config the current bucket configuration.
+     * @param nodes the currently managed nodes.
+     * @return true if the table can be used, false if it needs to be compiled again.
+     */
+    boolean isCompiledFrom(final CouchbaseBucketConfig config, final Set<Node> nodes) {
+        return this.config == config && this.nodes == nodes;
+    }
+
+    /**
+     * Returns the number of partitions.
+     *
+     * @return the number of partitions.
+     */
+    int partitions() {
+        return masters.length;
+    }
+
+    /**
+     * Returns the master of the given partition.
+     *
+     * The returned array must not be modified.
+     *
+     * @param partition the partition id.
+     * @return the master node, an empty array if there is no master, or null if the master node is not managed.
+     */
+    Node[] master(final int partition) {
+        return masters[partition];
+    }
+
+    /**
+     * Returns a replica of the given partition.
+     *
+     * @param partition the partition id.
+     * @param replica the replica number, starting at 0.
+     * @return the replica node, or null if there is none or it is not managed.
+     */
+    Node replica(final int partition, final int replica) {
+        Node[] partitionReplicas = replicas[partition];
+        return replica < partitionReplicas.length ? partitionReplicas[replica] : null;
+    }
+
+}
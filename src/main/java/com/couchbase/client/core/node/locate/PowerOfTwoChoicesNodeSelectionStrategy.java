@@ -0,0 +1,40 @@
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.node.Node;
+
+import java.util.Random;
+
+/**
+ * Picks two random candidate {@link Node}s and selects the one with fewer outstanding requests.
+ *
+ * Compared to always taking the least loaded node, this does not scan all candidates and does not make every
+ * consumer pile onto the same node between two updates of the counts.
+ */
+public class PowerOfTwoChoicesNodeSelectionStrategy extends LoadAwareNodeSelectionStrategy {
+
+    /**
+     * The source of the random picks, one per thread so that concurrent workers do not contend on its seed.
+     */
+    private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    @Override
+    protected Node choose(final Node[] candidates, final int size) {
+        if (size == 1) {
+            return candidates[0];
+        }
+        Random random = RANDOM.get();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        Node a = candidates[first];
+        Node b = candidates[second];
+        return outstanding(b) < outstanding(a) ? b : a;
+    }
+}
@@ -1,27 +1,21 @@
 package com.couchbase.client.core.node.locate;
 
-import com.couchbase.client.core.config.ClusterConfig;
-import com.couchbase.client.core.message.CouchbaseRequest;
-import com.couchbase.client.core.node.Node;
-
-import java.util.Set;
+import com.couchbase.client.core.service.ServiceType;
 
 /**
- * Created by michael on 21/05/14.
+ * Locates the {@link com.couchbase.client.core.node.Node} for N1QL requests among all nodes running the query service.
  */
-public class QueryLocator implements Locator {
+public class QueryLocator extends BalancingLocator {
+
+    public QueryLocator() {
+        this(new RoundRobinNodeSelectionStrategy());
+    }
 
-    private long counter = 0;
+    public QueryLocator(final NodeSelectionStrategy strategy) {
+        this(strategy, new NodeLocality());
+    }
 
-    @Override
-    public Node[] locate(CouchbaseRequest request, Set<Node> nodes, ClusterConfig config) {
-        int item = (int) counter % nodes.size();
-        int i = 0;
-        for (Node node : nodes) {
-            if (i++ == item) {
-                return new Node[] { node };
-            }
-        }
-        throw new IllegalStateException("Node not found for request" + request);
+    public QueryLocator(final NodeSelectionStrategy strategy, final NodeLocality locality) {
+        super(ServiceType.QUERY, strategy, locality);
     }
 }
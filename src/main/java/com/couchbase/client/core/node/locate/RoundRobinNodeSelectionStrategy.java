@@ -0,0 +1,24 @@
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.node.Node;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cycles through the candidate {@link Node}s, ignoring how busy they are.
+ */
+public class RoundRobinNodeSelectionStrategy implements NodeSelectionStrategy {
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Node select(final CouchbaseRequest request, final Node[] candidates, final int size) {
+        return candidates[(counter.getAndIncrement() & Integer.MAX_VALUE) % size];
+    }
+
+    @Override
+    public void nodesChanged(final Set<Node> nodes) {
+    }
+}
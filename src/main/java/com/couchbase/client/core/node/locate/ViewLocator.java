@@ -1,24 +1,21 @@
 package com.couchbase.client.core.node.locate;
 
-import com.couchbase.client.core.config.ClusterConfig;
-import com.couchbase.client.core.message.CouchbaseRequest;
-import com.couchbase.client.core.node.Node;
+import com.couchbase.client.core.service.ServiceType;
 
-import java.util.Set;
+/**
+ * Locates the {@link com.couchbase.client.core.node.Node} for view requests among all nodes running the view service.
+ */
+public class ViewLocator extends BalancingLocator {
 
-public class ViewLocator implements Locator {
+    public ViewLocator() {
+        this(new RoundRobinNodeSelectionStrategy());
+    }
 
-    private long counter = 0;
+    public ViewLocator(final NodeSelectionStrategy strategy) {
+        this(strategy, new NodeLocality());
+    }
 
-    @Override
-    public Node[] locate(CouchbaseRequest request, Set<Node> nodes, ClusterConfig config) {
-        int item = (int) counter % nodes.size();
-        int i = 0;
-        for (Node node : nodes) {
-            if (i++ == item) {
-                return new Node[] { node };
-            }
-        }
-        throw new IllegalStateException("Node not found for request" + request);
+    public ViewLocator(final NodeSelectionStrategy strategy, final NodeLocality locality) {
+        super(ServiceType.VIEW, strategy, locality);
     }
 }
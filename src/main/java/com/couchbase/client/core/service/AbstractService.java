@@ -40,6 +40,7 @@ import rx.functions.FuncN;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * The common implementation for all {@link Service}s.
@@ -65,13 +66,14 @@ public abstract class AbstractService extends AbstractStateMachine<LifecycleStat
 
         this.strategy = strategy;
         this.responseBuffer = responseBuffer;
-        endpointStates = new ArrayList<Observable<LifecycleState>>();
         endpoints = new Endpoint[numEndpoints];
+        List<Observable<LifecycleState>> initialStates = new ArrayList<Observable<LifecycleState>>(numEndpoints);
         for (int i = 0; i < numEndpoints; i++) {
             Endpoint endpoint = factory.create(hostname, bucket, password, port, env, responseBuffer);
             endpoints[i] = endpoint;
-            endpointStates.add(endpoint.states());
+            initialStates.add(endpoint.states());
         }
+        endpointStates = new CopyOnWriteArrayList<Observable<LifecycleState>>(initialStates);
 
         Observable.combineLatest(endpointStates, new FuncN<LifecycleState>() {
             @Override
@@ -4,17 +4,15 @@ import com.couchbase.client.core.ResponseEvent;
 import com.couchbase.client.core.endpoint.Endpoint;
 import com.couchbase.client.core.endpoint.binary.BinaryEndpoint;
 import com.couchbase.client.core.env.Environment;
-import com.couchbase.client.core.service.strategies.PartitionSelectionStrategy;
 import com.lmax.disruptor.RingBuffer;
 
 public class BinaryService extends AbstractService {
 
-    private static final SelectionStrategy strategy = new PartitionSelectionStrategy();
     private static final EndpointFactory factory = new BinaryEndpointFactory();
 
     public BinaryService(String hostname, String bucket, String password, int port, Environment env,
         final RingBuffer<ResponseEvent> responseBuffer) {
-        super(hostname, bucket, password, port, env, env.binaryServiceEndpoints(), strategy, responseBuffer, factory);
+        super(hostname, bucket, password, port, env, env.binaryServiceEndpoints(), env.binarySelectionStrategy(), responseBuffer, factory);
     }
 
     @Override
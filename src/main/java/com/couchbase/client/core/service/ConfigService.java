@@ -12,8 +12,8 @@ import com.couchbase.client.core.state.LifecycleState;
 import com.lmax.disruptor.RingBuffer;
 import rx.Subscriber;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class ConfigService extends AbstractService {
 
@@ -36,7 +36,7 @@ public class ConfigService extends AbstractService {
     public ConfigService(String hostname, String bucket, String password, int port, Environment env,
         final RingBuffer<ResponseEvent> responseBuffer) {
         super(hostname, bucket, password, port, env, INITIAL_ENDPOINTS, strategy, responseBuffer, factory);
-        pinnedEndpoints = new ArrayList<Endpoint>();
+        pinnedEndpoints = new CopyOnWriteArrayList<Endpoint>();
         this.hostname = hostname;
         this.bucket = bucket;
         this.password = password;
@@ -21,6 +21,13 @@
  */
 package com.couchbase.client.core.service;
 
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.RequestType;
+import com.couchbase.client.core.message.binary.BinaryRequest;
+import com.couchbase.client.core.message.config.ConfigRequest;
+import com.couchbase.client.core.message.query.QueryRequest;
+import com.couchbase.client.core.message.view.ViewRequest;
+
 /**
  * Represents the different {@link ServiceType}s and how they map onto buckets.
  */
@@ -55,4 +62,32 @@ public enum ServiceType {
     public BucketServiceMapping mapping() {
         return mapping;
     }
+
+    /**
+     * Returns the {@link ServiceType} which handles the given {@link CouchbaseRequest}.
+     *
+     * The type is taken from the {@link RequestType} of the request, only requests of an unknown type are
+     * inspected by their class.
+     *
+     * @param request the request to check.
+     * @return the service type for the request.
+     */
+    public static ServiceType forRequest(final CouchbaseRequest request) {
+        RequestType requestType = request.requestType();
+        if (requestType != null && requestType.service() != null) {
+            return requestType.service();
+        }
+
+        if (request instanceof BinaryRequest) {
+            return BINARY;
+        } else if (request instanceof ConfigRequest) {
+            return CONFIG;
+        } else if (request instanceof ViewRequest) {
+            return VIEW;
+        } else if (request instanceof QueryRequest) {
+            return QUERY;
+        } else {
+            throw new IllegalStateException("Unknown Request: " + request);
+        }
+    }
 }
@@ -0,0 +1,150 @@
+package com.couchbase.client.core.service.strategies;
+
+import com.couchbase.client.core.endpoint.Endpoint;
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.binary.AbstractKeyAwareBinaryRequest;
+import com.couchbase.client.core.service.SelectionStrategy;
+import com.couchbase.client.core.state.LifecycleState;
+import rx.Observer;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Selects the connected {@link Endpoint} with the fewest outstanding requests.
+ *
+ * If key order is preserved, keys are hashed into slots which remember the endpoint they have been pinned to
+ * together with the number of their requests still in flight. A slot is only moved to the least loaded endpoint
+ * once all of its requests completed, so requests for the same key never overtake each other on different
+ * channels. Since the slot state belongs to the endpoints of one service, such an instance must not be shared
+ * across services.
+ */
+public class LeastOutstandingSelectionStrategy implements SelectionStrategy {
+
+    /**
+     * The number of key slots, must be a power of two.
+     */
+    private static final int SLOTS = 1024;
+
+    /**
+     * A slot stores the endpoint index in the lower and the number of requests in flight in the upper half.
+     */
+    private static final int INDEX_MASK = 0xFFFF;
+    private static final int ONE_REQUEST = 1 << 16;
+
+    private final boolean preserveKeyOrder;
+    private final AtomicIntegerArray slots;
+    private final AtomicInteger offset = new AtomicInteger();
+
+    /**
+     * Creates a new {@link LeastOutstandingSelectionStrategy} which does not preserve key order.
+     */
+    public LeastOutstandingSelectionStrategy() {
+        this(false);
+    }
+
+    /**
+     * Creates a new {@link LeastOutstandingSelectionStrategy}.
+     *
+     * @param preserveKeyOrder if requests for the same key should stay on the same endpoint while in flight.
+     */
+    public LeastOutstandingSelectionStrategy(final boolean preserveKeyOrder) {
+        this.preserveKeyOrder = preserveKeyOrder;
+        this.slots = preserveKeyOrder ? new AtomicIntegerArray(SLOTS) : null;
+    }
+
+    @Override
+    public Endpoint select(final CouchbaseRequest request, final Endpoint[] endpoints) {
+        if (preserveKeyOrder && request instanceof AbstractKeyAwareBinaryRequest) {
+            return selectPinned((AbstractKeyAwareBinaryRequest) request, endpoints);
+        }
+        int index = leastOutstanding(endpoints);
+        return index < 0 ? null : endpoints[index];
+    }
+
+    /**
+     * Selects the endpoint the key is pinned to, or pins it to the least loaded one if nothing is in flight.
+     */
+    private Endpoint selectPinned(final AbstractKeyAwareBinaryRequest request, final Endpoint[] endpoints) {
+        int hash = Arrays.hashCode(request.keyBytes());
+        final int slot = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+        while (true) {
+            int pinned = slots.get(slot);
+            int index;
+            if (pinned >>> 16 == 0) {
+                index = leastOutstanding(endpoints);
+                if (index < 0) {
+                    return null;
+                }
+            } else {
+                index = pinned & INDEX_MASK;
+                if (!endpoints[index].isState(LifecycleState.CONNECTED)) {
+                    return null;
+                }
+            }
+            if (slots.compareAndSet(slot, pinned, ((pinned & ~INDEX_MASK) + ONE_REQUEST) | index)) {
+                request.observable().subscribe(new SlotRelease(slot));
+                return endpoints[index];
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the connected endpoint with the fewest outstanding requests, or -1 if none is connected.
+     *
+     * The scan starts at a rotating offset so ties are spread across endpoints.
+     */
+    private int leastOutstanding(final Endpoint[] endpoints) {
+        int length = endpoints.length;
+        int start = (offset.getAndIncrement() & Integer.MAX_VALUE) % length;
+        int best = -1;
+        int least = Integer.MAX_VALUE;
+        for (int i = 0; i < length; i++) {
+            int index = start + i;
+            if (index >= length) {
+                index -= length;
+            }
+            Endpoint endpoint = endpoints[index];
+            if (!endpoint.isState(LifecycleState.CONNECTED)) {
+                continue;
+            }
+            int outstanding = endpoint.outstanding();
+            if (outstanding < least) {
+                best = index;
+                least = outstanding;
+                if (least == 0) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Releases one request from its key slot once the response observable terminates.
+     */
+    private final class SlotRelease implements Observer<CouchbaseResponse> {
+
+        private final int slot;
+
+        SlotRelease(final int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public void onCompleted() {
+            slots.addAndGet(slot, -ONE_REQUEST);
+        }
+
+        @Override
+        public void onError(final Throwable e) {
+            slots.addAndGet(slot, -ONE_REQUEST);
+        }
+
+        @Override
+        public void onNext(final CouchbaseResponse response) {
+        }
+    }
+}
@@ -5,14 +5,17 @@ import com.couchbase.client.core.message.CouchbaseRequest;
 import com.couchbase.client.core.service.SelectionStrategy;
 import com.couchbase.client.core.state.LifecycleState;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class RandomSelectionStrategy implements SelectionStrategy {
 
-    private volatile short next;
+    private final AtomicInteger next = new AtomicInteger();
 
     @Override
     public Endpoint select(CouchbaseRequest request, Endpoint[] endpoints) {
+        int start = next.getAndIncrement() & Integer.MAX_VALUE;
         for (int i = 0; i < endpoints.length; i++) {
-            Endpoint endpoint = endpoints[next++ % endpoints.length];
+            Endpoint endpoint = endpoints[(start + i) % endpoints.length];
             if (endpoint.isState(LifecycleState.CONNECTED)) {
                 return endpoint;
             }
@@ -30,6 +30,9 @@ import java.util.List;
  * <p>Note that this class is designed to be extended, especially because both the binary and ascii protocol
  * require different treatment of their messages. Since the content chunk writing is the same for both, the encoder
  * abstracts this right away.</p>
+ * <p/>
+ * <p>A {@link ByteBuf} written while no content is expected is treated as a frame encoded further up the pipeline
+ * and passed on as is.</p>
  */
 public abstract class AbstractMemcacheObjectEncoder<M extends MemcacheMessage> extends MessageToMessageEncoder<Object> {
 
@@ -47,6 +50,12 @@ public abstract class AbstractMemcacheObjectEncoder<M extends MemcacheMessage> e
             out.add(encodeMessage(ctx, m));
         }
 
+        if (msg instanceof ByteBuf && !expectingMoreContent) {
+            // a frame which has been encoded further up the pipeline already.
+            out.add(((ByteBuf) msg).retain());
+            return;
+        }
+
         if (msg instanceof MemcacheContent || msg instanceof ByteBuf || msg instanceof FileRegion) {
             int contentLength = contentLength(msg);
             if (contentLength > 0) {
@@ -157,8 +157,13 @@ public class BinaryMemcacheObjectAggregator extends AbstractMemcacheObjectAggreg
     }
 
     private static FullBinaryMemcacheResponse toFullResponse(BinaryMemcacheResponse response, ByteBuf content) {
+        // the header message and its extras are released once decoded, so the full response keeps its own reference.
+        ByteBuf extras = response.getExtras();
+        if (extras != null) {
+            extras.retain();
+        }
         FullBinaryMemcacheResponse fullResponse = new DefaultFullBinaryMemcacheResponse(response.getKey(),
-            response.getExtras(), content);
+            extras, content);
 
         fullResponse.setMagic(response.getMagic());
         fullResponse.setOpcode(response.getOpcode());
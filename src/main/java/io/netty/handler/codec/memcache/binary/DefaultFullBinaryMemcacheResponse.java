@@ -63,29 +63,38 @@ public class DefaultFullBinaryMemcacheResponse extends DefaultBinaryMemcacheResp
 
     @Override
     public FullBinaryMemcacheResponse retain() {
+        super.retain();
         content.retain();
         return this;
     }
 
     @Override
     public FullBinaryMemcacheResponse retain(final int increment) {
+        super.retain(increment);
         content.retain(increment);
         return this;
     }
 
+    /**
+     * Releases the content together with the extras, since a full response owns both.
+     */
     @Override
     public boolean release() {
+        super.release();
         return content.release();
     }
 
     @Override
     public boolean release(final int decrement) {
+        super.release(decrement);
         return content.release(decrement);
     }
 
     @Override
     public FullBinaryMemcacheResponse copy() {
-        return new DefaultFullBinaryMemcacheResponse(getKey(), getExtras(), content().copy());
+        ByteBuf extras = getExtras();
+        return new DefaultFullBinaryMemcacheResponse(getKey(), extras == null ? null : extras.copy(),
+            content().copy());
     }
 
     @Override
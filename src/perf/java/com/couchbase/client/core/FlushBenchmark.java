@@ -0,0 +1,222 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.config.ClusterConfig;
+import com.couchbase.client.core.env.CouchbaseEnvironment;
+import com.couchbase.client.core.message.AbstractCouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.internal.AddServiceRequest;
+import com.couchbase.client.core.message.internal.RemoveServiceRequest;
+import com.couchbase.client.core.message.internal.SignalFlush;
+import com.couchbase.client.core.node.Node;
+import com.couchbase.client.core.node.locate.Locator;
+import com.couchbase.client.core.service.Service;
+import com.couchbase.client.core.service.ServiceType;
+import com.couchbase.client.core.state.AbstractStateMachine;
+import com.couchbase.client.core.state.LifecycleState;
+import com.lmax.disruptor.EventHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import rx.Observable;
+
+import java.net.InetAddress;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes until every write of a batch spread over several nodes has been flushed.
+ *
+ * The "lastNode" strategy only flushes the nodes of the event which ends the batch, so the writes to all other nodes
+ * wait for later batches which happen to end on them. Those later batches are simulated with single requests going
+ * round robin over the nodes. The "dirtyNodes" strategy flushes every node written during the batch right away.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FlushBenchmark {
+
+    private static final int BATCH = 64;
+
+    @Param({"lastNode", "dirtyNodes"})
+    public String strategy;
+
+    @Param({"2", "8"})
+    public int nodes;
+
+    /**
+     * CPU cost of writing a request into a node.
+     */
+    @Param({"100"})
+    public long writeTokens;
+
+    private final TargetedRequest[] requests = new TargetedRequest[BATCH];
+    private CountingNode[] targets;
+    private EventHandler<RequestEvent> consumer;
+    private final RequestEvent event = new RequestEvent();
+    private long sequence;
+    private int nextTick;
+
+    @Setup
+    public void setup() {
+        targets = new CountingNode[nodes];
+        for (int i = 0; i < nodes; i++) {
+            targets[i] = new CountingNode(writeTokens);
+        }
+        for (int i = 0; i < BATCH; i++) {
+            requests[i] = new TargetedRequest(i % nodes);
+        }
+
+        final RequestHandler handler = new TargetingRequestHandler(targets);
+        if ("lastNode".equals(strategy)) {
+            consumer = new EventHandler<RequestEvent>() {
+                @Override
+                public void onEvent(RequestEvent event, long sequence, boolean endOfBatch) throws Exception {
+                    Node[] found = handler.dispatch(event.getRequest());
+                    if (endOfBatch) {
+                        for (int i = 0; i < found.length; i++) {
+                            found[i].send(SignalFlush.INSTANCE);
+                        }
+                    }
+                }
+            };
+        } else {
+            consumer = new RequestWorker(handler, 0, 1);
+        }
+    }
+
+    @Benchmark
+    public int measureTimeUntilFlushed() throws Exception {
+        for (int i = 0; i < BATCH; i++) {
+            consumer.onEvent(event.setRequest(requests[i]), sequence++, i == BATCH - 1);
+        }
+
+        int ticks = 0;
+        while (hasUnflushedWrites()) {
+            consumer.onEvent(event.setRequest(requests[nextTick]), sequence++, true);
+            nextTick = (nextTick + 1) % nodes;
+            ticks++;
+        }
+        return ticks;
+    }
+
+    private boolean hasUnflushedWrites() {
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i].unflushed > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static class TargetedRequest extends AbstractCouchbaseRequest {
+        final int target;
+
+        TargetedRequest(int target) {
+            super(null, null);
+            this.target = target;
+        }
+    }
+
+    static class TargetingRequestHandler extends RequestHandler {
+
+        private final Node[][] located;
+
+        private final Locator locator = new Locator() {
+            @Override
+            public Node[] locate(CouchbaseRequest request, Set<Node> nodes, ClusterConfig config) {
+                return located[((TargetedRequest) request).target];
+            }
+        };
+
+        TargetingRequestHandler(Node[] targets) {
+            super(new CouchbaseEnvironment(), Observable.<ClusterConfig>empty(), null, null);
+            located = new Node[targets.length][];
+            for (int i = 0; i < targets.length; i++) {
+                located[i] = new Node[] { targets[i] };
+            }
+        }
+
+        @Override
+        protected Locator locator(CouchbaseRequest request) {
+            return locator;
+        }
+    }
+
+    static class CountingNode extends AbstractStateMachine<LifecycleState> implements Node {
+
+        private final long tokens;
+        int unflushed;
+
+        CountingNode(long tokens) {
+            super(LifecycleState.CONNECTED);
+            this.tokens = tokens;
+        }
+
+        @Override
+        public void send(CouchbaseRequest request) {
+            if (request instanceof SignalFlush) {
+                unflushed = 0;
+            } else {
+                unflushed++;
+                Blackhole.consumeCPU(tokens);
+            }
+        }
+
+        @Override
+        public InetAddress hostname() {
+            return null;
+        }
+
+        @Override
+        public boolean hasService(ServiceType type, String bucket) {
+            return true;
+        }
+
+        @Override
+        public Observable<LifecycleState> connect() {
+            return Observable.just(LifecycleState.CONNECTED);
+        }
+
+        @Override
+        public Observable<LifecycleState> disconnect() {
+            return Observable.just(LifecycleState.DISCONNECTED);
+        }
+
+        @Override
+        public Observable<Service> addService(AddServiceRequest request) {
+            return Observable.empty();
+        }
+
+        @Override
+        public Observable<Service> removeService(RemoveServiceRequest request) {
+            return Observable.empty();
+        }
+    }
+}
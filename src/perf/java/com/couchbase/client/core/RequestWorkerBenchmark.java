@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.config.ClusterConfig;
+import com.couchbase.client.core.env.CouchbaseEnvironment;
+import com.couchbase.client.core.env.Environment;
+import com.couchbase.client.core.message.AbstractCouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.internal.AddServiceRequest;
+import com.couchbase.client.core.message.internal.RemoveServiceRequest;
+import com.couchbase.client.core.node.Node;
+import com.couchbase.client.core.node.locate.Locator;
+import com.couchbase.client.core.service.Service;
+import com.couchbase.client.core.service.ServiceType;
+import com.couchbase.client.core.state.AbstractStateMachine;
+import com.couchbase.client.core.state.LifecycleState;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import rx.Observable;
+
+import java.net.InetAddress;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how request dispatch throughput scales with the number of {@link RequestWorker}s.
+ *
+ * The nodes burn a configurable amount of CPU per request to stand in for locating, service lookup and the
+ * channel write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RequestWorkerBenchmark {
+
+    private static final int BATCH = 1024;
+    private static final Environment ENVIRONMENT = new CouchbaseEnvironment();
+
+    @Param({"1", "2", "4", "8"})
+    public int workers;
+
+    @Param({"100", "1000"})
+    public long dispatchTokens;
+
+    private final CouchbaseRequest[] requests = new CouchbaseRequest[BATCH];
+    private ExecutorService executor;
+    private Disruptor<RequestEvent> disruptor;
+    private RingBuffer<RequestEvent> ringBuffer;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < BATCH; i++) {
+            requests[i] = new DummyRequest();
+        }
+
+        RequestHandler handler = new DummyLocatorRequestHandler();
+        handler.addNode(new BusyNode(dispatchTokens)).toBlocking().single();
+
+        executor = Executors.newFixedThreadPool(workers);
+        disruptor = new Disruptor<RequestEvent>(
+            new RequestEventFactory(),
+            ENVIRONMENT.requestBufferSize(),
+            executor,
+            ProducerType.MULTI,
+            ENVIRONMENT.requestWaitStrategy()
+        );
+        if (workers == 1) {
+            disruptor.handleEventsWith(handler);
+        } else {
+            disruptor.handleEventsWith(RequestWorker.create(handler, workers));
+        }
+        ringBuffer = disruptor.start();
+    }
+
+    @TearDown
+    public void teardown() {
+        disruptor.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void measureDispatch() {
+        long last = 0;
+        for (int i = 0; i < BATCH; i++) {
+            last = ringBuffer.next();
+            ringBuffer.get(last).setRequest(requests[i]);
+            ringBuffer.publish(last);
+        }
+        while (ringBuffer.getMinimumGatingSequence() < last) {
+            // spin until every worker caught up
+        }
+    }
+
+    static class DummyRequest extends AbstractCouchbaseRequest {
+        DummyRequest() {
+            super(null, null);
+        }
+    }
+
+    static class DummyLocatorRequestHandler extends RequestHandler {
+
+        private final Locator locator = new Locator() {
+            @Override
+            public Node[] locate(CouchbaseRequest request, Set<Node> nodes, ClusterConfig config) {
+                return new Node[] { nodes.iterator().next() };
+            }
+        };
+
+        DummyLocatorRequestHandler() {
+            super(ENVIRONMENT, Observable.<ClusterConfig>empty(), null, null);
+        }
+
+        @Override
+        protected Locator locator(CouchbaseRequest request) {
+            return locator;
+        }
+    }
+
+    static class BusyNode extends AbstractStateMachine<LifecycleState> implements Node {
+
+        private final long tokens;
+
+        BusyNode(long tokens) {
+            super(LifecycleState.CONNECTED);
+            this.tokens = tokens;
+        }
+
+        @Override
+        public void send(CouchbaseRequest request) {
+            Blackhole.consumeCPU(tokens);
+        }
+
+        @Override
+        public InetAddress hostname() {
+            return null;
+        }
+
+        @Override
+        public boolean hasService(ServiceType type, String bucket) {
+            return true;
+        }
+
+        @Override
+        public Observable<LifecycleState> connect() {
+            return Observable.just(LifecycleState.CONNECTED);
+        }
+
+        @Override
+        public Observable<LifecycleState> disconnect() {
+            return Observable.just(LifecycleState.DISCONNECTED);
+        }
+
+        @Override
+        public Observable<Service> addService(AddServiceRequest request) {
+            return Observable.empty();
+        }
+
+        @Override
+        public Observable<Service> removeService(RemoveServiceRequest request) {
+            return Observable.empty();
+        }
+    }
+}
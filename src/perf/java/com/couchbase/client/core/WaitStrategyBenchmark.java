@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.env.CouchbaseEnvironment;
+import com.couchbase.client.core.env.Environment;
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.typesafe.config.ConfigFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hand-off latency of the wait strategies configurable for the request and response ringbuffers.
+ *
+ * Every invocation publishes one event and spins until the consumer has seen it, so the result is the
+ * wakeup cost of the consumer side for the given strategy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WaitStrategyBenchmark {
+
+    @Param({"blocking", "sleeping", "yielding", "busySpin", "phasedBackoff"})
+    public String strategy;
+
+    private final Sequence consumed = new Sequence();
+    private ExecutorService executor;
+    private Disruptor<LongEvent> disruptor;
+    private RingBuffer<LongEvent> ringBuffer;
+
+    @Setup
+    public void setup() {
+        ConfigFactory.invalidateCaches();
+        Environment environment = new CouchbaseEnvironment(ConfigFactory
+            .parseMap(Collections.singletonMap("com.couchbase.client.requestWaitStrategy", strategy))
+            .withFallback(ConfigFactory.load()));
+
+        executor = Executors.newSingleThreadExecutor();
+        disruptor = new Disruptor<LongEvent>(
+            new LongEventFactory(),
+            environment.requestBufferSize(),
+            executor,
+            ProducerType.MULTI,
+            environment.requestWaitStrategy()
+        );
+        disruptor.handleEventsWith(new EventHandler<LongEvent>() {
+            @Override
+            public void onEvent(LongEvent event, long sequence, boolean endOfBatch) throws Exception {
+                consumed.set(sequence);
+            }
+        });
+        ringBuffer = disruptor.start();
+        environment.shutdown().toBlocking().single();
+    }
+
+    @TearDown
+    public void teardown() {
+        disruptor.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public long measureHandoff() {
+        long sequence = ringBuffer.next();
+        ringBuffer.get(sequence).value = sequence;
+        ringBuffer.publish(sequence);
+        while (consumed.get() < sequence) {
+            // spin until the consumer caught up
+        }
+        return sequence;
+    }
+
+    static class LongEvent {
+        long value;
+    }
+
+    static class LongEventFactory implements EventFactory<LongEvent> {
+        @Override
+        public LongEvent newInstance() {
+            return new LongEvent();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.endpoint.binary;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.memcache.binary.BinaryMemcacheOpcodes;
+import io.netty.handler.codec.memcache.binary.BinaryMemcacheRequest;
+import io.netty.handler.codec.memcache.binary.BinaryMemcacheRequestEncoder;
+import io.netty.handler.codec.memcache.binary.DefaultBinaryMemcacheRequest;
+import io.netty.handler.codec.memcache.binary.DefaultFullBinaryMemcacheRequest;
+import io.netty.handler.codec.memcache.binary.FullBinaryMemcacheRequest;
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares encoding key-value requests through intermediate memcache messages and the memcache encoder with
+ * writing them directly through the {@link BinaryRequestEncoder}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BinaryEncodeBenchmark {
+
+    @Param({"16", "1024", "102400"})
+    public int valueSize;
+
+    private static final String KEY = "benchmark::document::key";
+
+    private final byte[] key = KEY.getBytes(CharsetUtil.UTF_8);
+    private final ByteBufAllocator alloc = PooledByteBufAllocator.DEFAULT;
+
+    private ExposedEncoder messageEncoder;
+    private ChannelHandlerContext ctx;
+    private ByteBuf value;
+
+    @Setup
+    public void setup() {
+        messageEncoder = new ExposedEncoder();
+        ChannelHandlerAdapter handler = new ChannelHandlerAdapter() { };
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        channel.config().setAllocator(alloc);
+        ctx = channel.pipeline().context(handler);
+
+        value = alloc.buffer(valueSize);
+        for (int i = 0; i < valueSize; i++) {
+            value.writeByte('a');
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        value.release();
+    }
+
+    @Benchmark
+    public int measureGetThroughMessage() {
+        BinaryMemcacheRequest msg = new DefaultBinaryMemcacheRequest();
+        msg.setKey(KEY);
+        msg.setOpcode(BinaryMemcacheOpcodes.GET);
+        msg.setKeyLength((short) key.length);
+        msg.setTotalBodyLength(key.length);
+        msg.setReserved((short) 512);
+        msg.setOpaque(1);
+
+        ByteBuf header = messageEncoder.encode(ctx, msg);
+        int written = header.readableBytes();
+        header.release();
+        return written;
+    }
+
+    @Benchmark
+    public int measureGetDirect() {
+        ByteBuf frame = BinaryRequestEncoder.encode(alloc, BinaryMemcacheOpcodes.GET, key, (short) 512, 1, 0);
+        int written = frame.readableBytes();
+        frame.release();
+        return written;
+    }
+
+    @Benchmark
+    public int measureUpsertThroughMessage() {
+        ByteBuf extras = alloc.buffer(8);
+        extras.writeInt(0);
+        extras.writeInt(0);
+
+        ByteBuf content = value.retain();
+        FullBinaryMemcacheRequest msg = new DefaultFullBinaryMemcacheRequest(null, extras, content);
+        msg.setKey(KEY);
+        msg.setOpcode(BinaryMemcacheOpcodes.SET);
+        msg.setKeyLength((short) key.length);
+        msg.setTotalBodyLength(key.length + content.readableBytes() + extras.readableBytes());
+        msg.setReserved((short) 512);
+        msg.setExtrasLength((byte) extras.readableBytes());
+        msg.setOpaque(1);
+
+        // the memcache encoder writes the header and passes on the retained content.
+        ByteBuf header = messageEncoder.encode(ctx, msg);
+        ByteBuf body = msg.content().retain();
+        msg.release();
+        int written = header.readableBytes() + body.readableBytes();
+        header.release();
+        body.release();
+        return written;
+    }
+
+    @Benchmark
+    public int measureUpsertDirect() {
+        ByteBuf frame = BinaryRequestEncoder.encode(alloc, BinaryMemcacheOpcodes.SET, (byte) 0, key, (short) 512,
+            1, 0, 0, 0, value.retain());
+        int written = frame.readableBytes();
+        frame.release();
+        return written;
+    }
+
+    /**
+     * Exposes the message encoding of the memcache encoder without going through a pipeline.
+     */
+    static class ExposedEncoder extends BinaryMemcacheRequestEncoder {
+
+        ByteBuf encode(final ChannelHandlerContext ctx, final BinaryMemcacheRequest msg) {
+            return encodeMessage(ctx, msg);
+        }
+    }
+}
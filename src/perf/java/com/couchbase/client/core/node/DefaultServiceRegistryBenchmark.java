@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.node;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.binary.GetRequest;
+import com.couchbase.client.core.message.config.BucketConfigRequest;
+import com.couchbase.client.core.service.BucketServiceMapping;
+import com.couchbase.client.core.service.Service;
+import com.couchbase.client.core.service.ServiceType;
+import com.couchbase.client.core.state.AbstractStateMachine;
+import com.couchbase.client.core.state.LifecycleState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import rx.Observable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per request lookup cost of the {@link DefaultServiceRegistry} and the cost of changing it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DefaultServiceRegistryBenchmark {
+
+    @Param({"1", "8"})
+    public int buckets;
+
+    private ServiceRegistry registry;
+    private CouchbaseRequest localRequest;
+    private CouchbaseRequest globalRequest;
+
+    @Setup
+    public void setup() {
+        registry = new DefaultServiceRegistry();
+        registry.addService(new DummyService(ServiceType.CONFIG), null);
+        registry.addService(new DummyService(ServiceType.VIEW), null);
+        for (int i = 0; i < buckets; i++) {
+            registry.addService(new DummyService(ServiceType.BINARY), "bucket" + i);
+        }
+
+        // a fresh string, so the lookup can not rely on reference equality.
+        String lastBucket = new String("bucket" + (buckets - 1));
+        localRequest = new GetRequest("key", lastBucket);
+        globalRequest = new BucketConfigRequest("/pools", null, lastBucket, null);
+    }
+
+    @Benchmark
+    public Service measureLocateLocalService() {
+        return registry.locate(localRequest);
+    }
+
+    @Benchmark
+    public Service measureLocateGlobalService() {
+        return registry.locate(globalRequest);
+    }
+
+    @Benchmark
+    public Service measureAddAndRemoveLocalService() {
+        Service service = new DummyService(ServiceType.BINARY);
+        registry.addService(service, "other");
+        return registry.removeService(service, "other");
+    }
+
+    static class DummyService extends AbstractStateMachine<LifecycleState> implements Service {
+
+        private final ServiceType type;
+
+        DummyService(final ServiceType type) {
+            super(LifecycleState.CONNECTED);
+            this.type = type;
+        }
+
+        @Override
+        public void send(CouchbaseRequest request) {
+        }
+
+        @Override
+        public BucketServiceMapping mapping() {
+            return type.mapping();
+        }
+
+        @Override
+        public ServiceType type() {
+            return type;
+        }
+
+        @Override
+        public Observable<LifecycleState> connect() {
+            return Observable.from(LifecycleState.CONNECTED);
+        }
+
+        @Override
+        public Observable<LifecycleState> disconnect() {
+            return Observable.from(LifecycleState.DISCONNECTED);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.node.locate;
+
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookup cost of the {@link KetamaContinuum} for growing numbers of nodes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KetamaBenchmark {
+
+    private static final int KEYS = 1024;
+
+    @Param({"16", "128", "512"})
+    public int nodes;
+
+    private final byte[][] keys = new byte[KEYS][];
+    private final long[] hashes = new long[KEYS];
+    private KetamaContinuum continuum;
+
+    @Setup
+    public void setup() {
+        String[] members = new String[nodes];
+        for (int i = 0; i < nodes; i++) {
+            members[i] = "10.0." + (i / 256) + "." + (i % 256) + ":11210";
+        }
+        continuum = KetamaContinuum.build(members);
+
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = ("user::" + i).getBytes(CharsetUtil.UTF_8);
+            hashes[i] = KetamaContinuum.hash(keys[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void measureOwnerLookup(Blackhole blackhole) {
+        for (int i = 0; i < KEYS; i++) {
+            blackhole.consume(continuum.owner(hashes[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void measureHashAndLookup(Blackhole blackhole) {
+        for (int i = 0; i < KEYS; i++) {
+            blackhole.consume(continuum.owner(KetamaContinuum.hash(keys[i])));
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.service.strategies;
+
+import com.couchbase.client.core.endpoint.Endpoint;
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.binary.GetRequest;
+import com.couchbase.client.core.service.SelectionStrategy;
+import com.couchbase.client.core.state.AbstractStateMachine;
+import com.couchbase.client.core.state.LifecycleState;
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import rx.Observable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of selecting the endpoint for a binary request with the different strategies.
+ *
+ * Every invocation creates and completes a request, since the key ordered strategy tracks requests until their
+ * observable terminates. The endpoints report a skewed number of outstanding requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SelectionStrategyBenchmark {
+
+    private static final int KEYS = 1024;
+
+    @Param({"partition", "random", "leastOutstanding", "leastOutstandingKeyOrdered"})
+    public String strategy;
+
+    @Param({"3", "8"})
+    public int endpoints;
+
+    private final byte[][] keys = new byte[KEYS][];
+    private SelectionStrategy selection;
+    private Endpoint[] targets;
+    private int next;
+
+    @Setup
+    public void setup() {
+        if ("partition".equals(strategy)) {
+            selection = new PartitionSelectionStrategy();
+        } else if ("random".equals(strategy)) {
+            selection = new RandomSelectionStrategy();
+        } else {
+            selection = new LeastOutstandingSelectionStrategy("leastOutstandingKeyOrdered".equals(strategy));
+        }
+
+        targets = new Endpoint[endpoints];
+        for (int i = 0; i < endpoints; i++) {
+            targets[i] = new LoadedEndpoint((i * 7) % 11);
+        }
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = ("user::" + i).getBytes(CharsetUtil.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public Endpoint measureSelect() {
+        int key = next++ & (KEYS - 1);
+        GetRequest request = new GetRequest(keys[key], "default");
+        request.partition((short) key);
+        Endpoint endpoint = selection.select(request, targets);
+        request.observable().onCompleted();
+        return endpoint;
+    }
+
+    static class LoadedEndpoint extends AbstractStateMachine<LifecycleState> implements Endpoint {
+
+        private final int outstanding;
+
+        LoadedEndpoint(int outstanding) {
+            super(LifecycleState.CONNECTED);
+            this.outstanding = outstanding;
+        }
+
+        @Override
+        public Observable<LifecycleState> connect() {
+            return Observable.just(LifecycleState.CONNECTED);
+        }
+
+        @Override
+        public Observable<LifecycleState> disconnect() {
+            return Observable.just(LifecycleState.DISCONNECTED);
+        }
+
+        @Override
+        public void send(CouchbaseRequest request) {
+        }
+
+        @Override
+        public int outstanding() {
+            return outstanding;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.binary.GetRequest;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
+import org.junit.Test;
+import rx.observers.TestSubscriber;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the functionality of {@link CouchbaseCore}.
+ */
+public class CouchbaseCoreTest {
+
+    @Test
+    public void shouldPublishBatchAsOneRange() {
+        RingBuffer<RequestEvent> ringBuffer = RingBuffer.createMultiProducer(new RequestEventFactory(), 8);
+        ringBuffer.addGatingSequences(new Sequence());
+        List<CouchbaseRequest> batch = requests(5);
+
+        CouchbaseCore.publishBatch(ringBuffer, batch);
+
+        assertEquals(4, ringBuffer.getCursor());
+        for (int i = 0; i < 5; i++) {
+            assertSame(batch.get(i), ringBuffer.get(i).getRequest());
+        }
+    }
+
+    @Test
+    public void shouldRejectRequestsWhichDoNotFit() {
+        RingBuffer<RequestEvent> ringBuffer = RingBuffer.createMultiProducer(new RequestEventFactory(), 4);
+        ringBuffer.addGatingSequences(new Sequence());
+        List<CouchbaseRequest> batch = requests(6);
+        List<TestSubscriber<CouchbaseResponse>> subscribers = new ArrayList<TestSubscriber<CouchbaseResponse>>();
+        for (CouchbaseRequest request : batch) {
+            TestSubscriber<CouchbaseResponse> subscriber = new TestSubscriber<CouchbaseResponse>();
+            request.observable().subscribe(subscriber);
+            subscribers.add(subscriber);
+        }
+
+        CouchbaseCore.publishBatch(ringBuffer, batch);
+
+        assertEquals(3, ringBuffer.getCursor());
+        for (int i = 0; i < 4; i++) {
+            assertSame(batch.get(i), ringBuffer.get(i).getRequest());
+            assertEquals(0, subscribers.get(i).getOnErrorEvents().size());
+        }
+        for (int i = 4; i < 6; i++) {
+            assertEquals(1, subscribers.get(i).getOnErrorEvents().size());
+            assertTrue(subscribers.get(i).getOnErrorEvents().get(0) instanceof BackpressureException);
+        }
+    }
+
+    private static List<CouchbaseRequest> requests(final int size) {
+        List<CouchbaseRequest> requests = new ArrayList<CouchbaseRequest>(size);
+        for (int i = 0; i < size; i++) {
+            requests.add(new GetRequest("key" + i, "bucket"));
+        }
+        return requests;
+    }
+
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.message.binary.GetRequest;
+import com.couchbase.client.core.message.binary.GetResponse;
+import com.couchbase.client.core.message.document.CoreDocument;
+import com.couchbase.client.core.service.ServiceType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.junit.Test;
+import rx.observers.TestSubscriber;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the functionality of {@link GetCoalescer}.
+ */
+public class GetCoalescerTest {
+
+    private final Timer timer = mock(Timer.class);
+    private final TimeoutTracker tracker = new TimeoutTracker(timer, new long[ServiceType.values().length]);
+
+    @Test
+    public void shouldShareOneWireRequestAndFanOutResponse() {
+        GetCoalescer coalescer = new GetCoalescer(tracker);
+        GetRequest first = new GetRequest("key", "bucket");
+        GetRequest second = new GetRequest("key", "bucket");
+        TestSubscriber<CouchbaseResponse> firstSubscriber = subscribe(first);
+        TestSubscriber<CouchbaseResponse> secondSubscriber = subscribe(second);
+
+        CouchbaseRequest wire = coalescer.coalesce(first);
+        assertNotNull(wire);
+        assertNull(coalescer.coalesce(second));
+        assertEquals(1, coalescer.hits());
+
+        ByteBuf content = Unpooled.copiedBuffer("content", CharsetUtil.UTF_8);
+        complete(wire, content);
+
+        GetResponse firstResponse = (GetResponse) firstSubscriber.getOnNextEvents().get(0);
+        GetResponse secondResponse = (GetResponse) secondSubscriber.getOnNextEvents().get(0);
+        assertSame(first, firstResponse.request());
+        assertSame(second, secondResponse.request());
+        assertEquals("content", firstResponse.document().content().toString(CharsetUtil.UTF_8));
+        assertEquals("content", secondResponse.document().content().toString(CharsetUtil.UTF_8));
+
+        assertEquals(2, content.refCnt());
+        firstResponse.document().content().release();
+        secondResponse.document().content().release();
+        assertEquals(0, content.refCnt());
+    }
+
+    @Test
+    public void shouldStartNewFlightOnceCompleted() {
+        GetCoalescer coalescer = new GetCoalescer(tracker);
+        CouchbaseRequest wire = coalescer.coalesce(new GetRequest("key", "bucket"));
+        complete(wire, Unpooled.EMPTY_BUFFER);
+
+        assertNotNull(coalescer.coalesce(new GetRequest("key", "bucket")));
+        assertEquals(0, coalescer.hits());
+    }
+
+    @Test
+    public void shouldNotCoalesceDifferentDocuments() {
+        GetCoalescer coalescer = new GetCoalescer(tracker);
+        assertNotNull(coalescer.coalesce(new GetRequest("key", "bucket")));
+        assertNotNull(coalescer.coalesce(new GetRequest("other", "bucket")));
+        assertNotNull(coalescer.coalesce(new GetRequest("key", "otherBucket")));
+        assertEquals(0, coalescer.hits());
+    }
+
+    @Test
+    public void shouldSendKeyAndPasswordOfFirstRequest() {
+        GetCoalescer coalescer = new GetCoalescer(tracker);
+        byte[] key = "key".getBytes(CharsetUtil.UTF_8);
+        GetRequest wire = (GetRequest) coalescer.coalesce(new GetRequest(key, "bucket", "secret"));
+
+        assertSame(key, wire.keyBytes());
+        assertEquals("secret", wire.password());
+    }
+
+    @Test
+    public void shouldArmWireTimeoutWithLongestWaiterTimeout() {
+        Timeout first = mock(Timeout.class);
+        Timeout second = mock(Timeout.class);
+        when(timer.newTimeout(any(TimerTask.class), eq(100L), eq(TimeUnit.MILLISECONDS))).thenReturn(first);
+        when(timer.newTimeout(any(TimerTask.class), eq(5000L), eq(TimeUnit.MILLISECONDS))).thenReturn(second);
+        GetCoalescer coalescer = new GetCoalescer(tracker);
+
+        CouchbaseRequest wire = coalescer.coalesce((GetRequest) new GetRequest("key", "bucket").timeout(100));
+        assertNull(coalescer.coalesce((GetRequest) new GetRequest("key", "bucket").timeout(5000)));
+        assertNull(coalescer.coalesce((GetRequest) new GetRequest("key", "bucket").timeout(50)));
+
+        assertEquals(5000, wire.timeout());
+        verify(first).cancel();
+        verify(second, never()).cancel();
+        verify(timer, never()).newTimeout(any(TimerTask.class), eq(50L), any(TimeUnit.class));
+    }
+
+    @Test
+    public void shouldFanOutErrors() {
+        GetCoalescer coalescer = new GetCoalescer(tracker);
+        GetRequest first = new GetRequest("key", "bucket");
+        GetRequest second = new GetRequest("key", "bucket");
+        TestSubscriber<CouchbaseResponse> firstSubscriber = subscribe(first);
+        TestSubscriber<CouchbaseResponse> secondSubscriber = subscribe(second);
+
+        CouchbaseRequest wire = coalescer.coalesce(first);
+        coalescer.coalesce(second);
+        wire.observable().onError(new BackpressureException());
+
+        assertTrue(firstSubscriber.getOnErrorEvents().get(0) instanceof BackpressureException);
+        assertTrue(secondSubscriber.getOnErrorEvents().get(0) instanceof BackpressureException);
+    }
+
+    private static TestSubscriber<CouchbaseResponse> subscribe(final CouchbaseRequest request) {
+        TestSubscriber<CouchbaseResponse> subscriber = new TestSubscriber<CouchbaseResponse>();
+        request.observable().subscribe(subscriber);
+        return subscriber;
+    }
+
+    private static void complete(final CouchbaseRequest wire, final ByteBuf content) {
+        CoreDocument document = new CoreDocument("key", content, 0, 0, 1234, false, ResponseStatus.SUCCESS);
+        wire.observable().onNext(new GetResponse(document, "bucket", wire));
+        wire.observable().onCompleted();
+    }
+
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.config.ClusterConfig;
+import com.couchbase.client.core.config.CouchbaseBucketConfig;
+import com.couchbase.client.core.config.MemcacheBucketConfig;
+import com.couchbase.client.core.env.Environment;
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.message.binary.GetRequest;
+import com.couchbase.client.core.message.binary.GetResponse;
+import com.couchbase.client.core.message.binary.ReplicaGetRequest;
+import com.couchbase.client.core.message.binary.ReplicaMode;
+import com.couchbase.client.core.message.binary.UpsertRequest;
+import com.couchbase.client.core.message.document.CoreDocument;
+import com.couchbase.client.core.service.ServiceType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import rx.functions.Action1;
+import rx.observers.TestSubscriber;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the functionality of the {@link Hedger}.
+ */
+public class HedgerTest {
+
+    private final BlockingQueue<CouchbaseRequest> hedges = new LinkedBlockingQueue<CouchbaseRequest>();
+    private Hedger hedger;
+
+    @Before
+    public void setup() {
+        Environment environment = mock(Environment.class);
+        when(environment.hedgingPercentile()).thenReturn(50);
+        when(environment.hedgingMinDelay()).thenReturn(1L);
+        ClusterConfig config = mock(ClusterConfig.class);
+        CouchbaseBucketConfig bucket = mock(CouchbaseBucketConfig.class);
+        when(bucket.numberOfReplicas()).thenReturn(1);
+        when(config.bucketConfig("bucket")).thenReturn(bucket);
+        when(config.bucketConfig("memcache")).thenReturn(mock(MemcacheBucketConfig.class));
+        hedger = new Hedger(environment, Observable.just(config), new Action1<CouchbaseRequest>() {
+            @Override
+            public void call(CouchbaseRequest request) {
+                hedges.add(request);
+            }
+        });
+    }
+
+    @After
+    public void teardown() {
+        hedger.shutdown();
+    }
+
+    @Test
+    public void shouldNotHedgeWithoutLatencies() {
+        GetRequest request = new GetRequest("key", "bucket");
+        assertSame(request, hedger.hedge(request));
+        assertEquals(-1, hedger.hedgeDelay(ServiceType.BINARY));
+
+        UpsertRequest upsert = new UpsertRequest(
+            new CoreDocument("key", Unpooled.EMPTY_BUFFER, 0, 0, 0, false, null), "bucket");
+        assertSame(upsert, hedger.hedge(upsert));
+        assertEquals(1, hedger.candidates(ServiceType.BINARY));
+    }
+
+    @Test
+    public void shouldCompleteWithHedgeIfPrimaryIsSlow() throws Exception {
+        warmup();
+        GetRequest request = new GetRequest("key", "bucket");
+        TestSubscriber<CouchbaseResponse> subscriber = subscribe(request);
+
+        CouchbaseRequest primary = hedger.hedge(request);
+        assertNotSame(request, primary);
+        CouchbaseRequest hedge = hedges.poll(1, TimeUnit.SECONDS);
+        assertTrue(hedge instanceof ReplicaGetRequest);
+        assertSame(ReplicaMode.ANY, ((ReplicaGetRequest) hedge).mode());
+
+        ByteBuf replica = content();
+        ByteBuf master = content();
+        complete(hedge, replica, ResponseStatus.SUCCESS);
+        complete(primary, master, ResponseStatus.SUCCESS);
+
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        assertEquals(1, subscriber.getOnCompletedEvents().size());
+        assertSame(replica, ((GetResponse) subscriber.getOnNextEvents().get(0)).document().content());
+        assertEquals(0, master.refCnt());
+        assertTrue(primary.timedOut());
+        assertFalse(hedge.timedOut());
+        assertEquals(1, hedger.hedged(ServiceType.BINARY));
+        assertEquals(1, hedger.wins(ServiceType.BINARY));
+        replica.release();
+    }
+
+    @Test
+    public void shouldNotLetUnsuccessfulHedgeWin() throws Exception {
+        warmup();
+        GetRequest request = new GetRequest("key", "bucket");
+        TestSubscriber<CouchbaseResponse> subscriber = subscribe(request);
+
+        CouchbaseRequest primary = hedger.hedge(request);
+        CouchbaseRequest hedge = hedges.poll(1, TimeUnit.SECONDS);
+
+        ByteBuf replica = content();
+        complete(hedge, replica, ResponseStatus.NOT_EXISTS);
+        assertEquals(0, subscriber.getOnNextEvents().size());
+        ByteBuf master = content();
+        complete(primary, master, ResponseStatus.SUCCESS);
+
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        assertEquals(ResponseStatus.SUCCESS, subscriber.getOnNextEvents().get(0).status());
+        assertEquals(0, replica.refCnt());
+        assertEquals(0, hedger.wins(ServiceType.BINARY));
+        master.release();
+    }
+
+    @Test
+    public void shouldNotHedgeIfPrimaryAnswersInTime() throws Exception {
+        warmup();
+        GetRequest request = new GetRequest("key", "bucket");
+        TestSubscriber<CouchbaseResponse> subscriber = subscribe(request);
+
+        CouchbaseRequest primary = hedger.hedge(request);
+        ByteBuf master = content();
+        complete(primary, master, ResponseStatus.SUCCESS);
+
+        assertNull(hedges.poll(50, TimeUnit.MILLISECONDS));
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        assertEquals(0, hedger.hedged(ServiceType.BINARY));
+        master.release();
+    }
+
+    @Test
+    public void shouldCancelHedgeIfPrimaryWins() throws Exception {
+        warmup();
+        GetRequest request = new GetRequest("key", "bucket");
+        TestSubscriber<CouchbaseResponse> subscriber = subscribe(request);
+
+        CouchbaseRequest primary = hedger.hedge(request);
+        CouchbaseRequest hedge = hedges.poll(1, TimeUnit.SECONDS);
+        ByteBuf master = content();
+        complete(primary, master, ResponseStatus.SUCCESS);
+
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        assertTrue(hedge.timedOut());
+        master.release();
+    }
+
+    @Test
+    public void shouldNotHedgeGetsWithoutReplicas() throws Exception {
+        warmup();
+        GetRequest memcache = new GetRequest("key", "memcache");
+        assertSame(memcache, hedger.hedge(memcache));
+        GetRequest unknown = new GetRequest("key", "unknown");
+        assertSame(unknown, hedger.hedge(unknown));
+        assertNull(hedges.poll(50, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void shouldCarryPasswordAndTimeoutToCopies() throws Exception {
+        warmup();
+        GetRequest request = new GetRequest("key".getBytes(CharsetUtil.UTF_8), "bucket", "password");
+        request.timeout(5000);
+        TestSubscriber<CouchbaseResponse> subscriber = subscribe(request);
+
+        CouchbaseRequest primary = hedger.hedge(request);
+        CouchbaseRequest hedge = hedges.poll(1, TimeUnit.SECONDS);
+        assertEquals("password", primary.password());
+        assertEquals(5000, primary.timeout());
+        assertEquals("password", hedge.password());
+        assertEquals(5000, hedge.timeout());
+
+        ByteBuf master = content();
+        complete(primary, master, ResponseStatus.SUCCESS);
+        complete(hedge, content(), ResponseStatus.SUCCESS);
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        master.release();
+    }
+
+    @Test
+    public void shouldFailIfPrimaryFailsBeforeHedge() throws Exception {
+        warmup();
+        GetRequest request = new GetRequest("key", "bucket");
+        TestSubscriber<CouchbaseResponse> subscriber = subscribe(request);
+
+        CouchbaseRequest primary = hedger.hedge(request);
+        primary.observable().onError(new BackpressureException());
+
+        assertTrue(subscriber.getOnErrorEvents().get(0) instanceof BackpressureException);
+        assertNull(hedges.poll(50, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Fills the first latency window with fast gets, so the hedge delay drops to the minimum.
+     */
+    private void warmup() {
+        for (int i = 0; i < 1024; i++) {
+            GetRequest request = new GetRequest("key", "bucket");
+            assertSame(request, hedger.hedge(request));
+            ByteBuf content = content();
+            complete(request, content, ResponseStatus.SUCCESS);
+            content.release();
+        }
+        assertEquals(1000, hedger.hedgeDelay(ServiceType.BINARY));
+    }
+
+    private static ByteBuf content() {
+        return Unpooled.copiedBuffer("content", CharsetUtil.UTF_8);
+    }
+
+    private static TestSubscriber<CouchbaseResponse> subscribe(final CouchbaseRequest request) {
+        TestSubscriber<CouchbaseResponse> subscriber = new TestSubscriber<CouchbaseResponse>();
+        request.observable().subscribe(subscriber);
+        return subscriber;
+    }
+
+    private static void complete(final CouchbaseRequest request, final ByteBuf content, final ResponseStatus status) {
+        CoreDocument document = new CoreDocument("key", content, 0, 0, 1234, false, status);
+        request.observable().onNext(new GetResponse(document, "bucket", null));
+        request.observable().onCompleted();
+    }
+
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.message.binary.GetRequest;
+import com.couchbase.client.core.message.binary.GetResponse;
+import com.couchbase.client.core.message.binary.ReplicaGetRequest;
+import com.couchbase.client.core.message.binary.ReplicaMode;
+import com.couchbase.client.core.message.document.CoreDocument;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+import rx.observers.TestSubscriber;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the functionality of {@link ReplicaFanOut}.
+ */
+public class ReplicaFanOutTest {
+
+    @Test
+    public void shouldSplitIntoOneRequestPerCopy() {
+        List<CouchbaseRequest> all = ReplicaFanOut.split(new ReplicaGetRequest("key", "bucket", ReplicaMode.ALL), 2);
+        assertEquals(2, all.size());
+        assertSame(ReplicaMode.FIRST, ((ReplicaGetRequest) all.get(0)).mode());
+        assertSame(ReplicaMode.SECOND, ((ReplicaGetRequest) all.get(1)).mode());
+
+        List<CouchbaseRequest> withMaster = ReplicaFanOut.split(
+            new ReplicaGetRequest("key", "bucket", ReplicaMode.MASTER_AND_ALL), 1);
+        assertEquals(2, withMaster.size());
+        assertTrue(withMaster.get(0) instanceof GetRequest);
+        assertSame(ReplicaMode.FIRST, ((ReplicaGetRequest) withMaster.get(1)).mode());
+    }
+
+    @Test
+    public void shouldCopyPasswordAndTimeout() {
+        ReplicaGetRequest request = new ReplicaGetRequest("key".getBytes(CharsetUtil.UTF_8), "bucket", "secret",
+            ReplicaMode.MASTER_AND_ALL);
+        request.timeout(1234);
+
+        for (CouchbaseRequest copy : ReplicaFanOut.split(request, 2)) {
+            assertEquals("secret", copy.password());
+            assertEquals(1234, copy.timeout());
+        }
+    }
+
+    @Test
+    public void shouldCancelOutstandingCopiesOnceDone() {
+        ReplicaGetRequest request = new ReplicaGetRequest("key", "bucket", ReplicaMode.ALL);
+        TestSubscriber<CouchbaseResponse> subscriber = subscribe(request);
+        List<CouchbaseRequest> copies = ReplicaFanOut.split(request, 2);
+
+        ByteBuf winner = content("winner");
+        complete(copies.get(0), winner, ResponseStatus.SUCCESS);
+
+        assertEquals(1, subscriber.getOnCompletedEvents().size());
+        assertTrue(copies.get(1).timedOut());
+        winner.release();
+    }
+
+    @Test
+    public void shouldCompleteWithFirstSuccessAndReleaseOthers() {
+        ReplicaGetRequest request = new ReplicaGetRequest("key", "bucket", ReplicaMode.MASTER_AND_ALL);
+        TestSubscriber<CouchbaseResponse> subscriber = subscribe(request);
+        List<CouchbaseRequest> copies = ReplicaFanOut.split(request, 2);
+
+        ByteBuf missing = content("missing");
+        ByteBuf winner = content("winner");
+        ByteBuf late = content("late");
+        complete(copies.get(1), missing, ResponseStatus.NOT_EXISTS);
+        assertEquals(0, subscriber.getOnNextEvents().size());
+        complete(copies.get(2), winner, ResponseStatus.SUCCESS);
+        complete(copies.get(0), late, ResponseStatus.SUCCESS);
+
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        assertEquals(1, subscriber.getOnCompletedEvents().size());
+        assertSame(winner, ((GetResponse) subscriber.getOnNextEvents().get(0)).document().content());
+        assertEquals(1, winner.refCnt());
+        assertEquals(0, missing.refCnt());
+        assertEquals(0, late.refCnt());
+        winner.release();
+    }
+
+    @Test
+    public void shouldCompleteWithLastFailureIfNoCopySucceeds() {
+        ReplicaGetRequest request = new ReplicaGetRequest("key", "bucket", ReplicaMode.ALL);
+        TestSubscriber<CouchbaseResponse> subscriber = subscribe(request);
+        List<CouchbaseRequest> copies = ReplicaFanOut.split(request, 2);
+
+        ByteBuf first = content("first");
+        copies.get(0).observable().onError(new BackpressureException());
+        complete(copies.get(1), first, ResponseStatus.NOT_EXISTS);
+
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        assertEquals(ResponseStatus.NOT_EXISTS, subscriber.getOnNextEvents().get(0).status());
+        assertEquals(1, first.refCnt());
+        first.release();
+    }
+
+    @Test
+    public void shouldFailIfEveryCopyFails() {
+        ReplicaGetRequest request = new ReplicaGetRequest("key", "bucket", ReplicaMode.ALL);
+        TestSubscriber<CouchbaseResponse> subscriber = subscribe(request);
+        List<CouchbaseRequest> copies = ReplicaFanOut.split(request, 1);
+
+        copies.get(0).observable().onError(new BackpressureException());
+
+        assertTrue(subscriber.getOnErrorEvents().get(0) instanceof BackpressureException);
+    }
+
+    @Test
+    public void shouldFailWithoutReplicas() {
+        ReplicaGetRequest request = new ReplicaGetRequest("key", "bucket", ReplicaMode.ALL);
+        TestSubscriber<CouchbaseResponse> subscriber = subscribe(request);
+
+        assertTrue(ReplicaFanOut.split(request, 0).isEmpty());
+        assertTrue(subscriber.getOnErrorEvents().get(0) instanceof CouchbaseException);
+    }
+
+    private static ByteBuf content(final String content) {
+        return Unpooled.copiedBuffer(content, CharsetUtil.UTF_8);
+    }
+
+    private static TestSubscriber<CouchbaseResponse> subscribe(final CouchbaseRequest request) {
+        TestSubscriber<CouchbaseResponse> subscriber = new TestSubscriber<CouchbaseResponse>();
+        request.observable().subscribe(subscriber);
+        return subscriber;
+    }
+
+    private static void complete(final CouchbaseRequest copy, final ByteBuf content, final ResponseStatus status) {
+        CoreDocument document = new CoreDocument("key", content, 0, 0, 1234, false, status);
+        copy.observable().onNext(new GetResponse(document, "bucket", null));
+        copy.observable().onCompleted();
+    }
+
+}
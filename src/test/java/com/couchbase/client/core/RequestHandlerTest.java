@@ -27,10 +27,13 @@ import com.couchbase.client.core.config.ClusterConfig;
 import com.couchbase.client.core.env.CouchbaseEnvironment;
 import com.couchbase.client.core.env.Environment;
 import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.binary.ReplicaGetRequest;
+import com.couchbase.client.core.message.binary.ReplicaMode;
 import com.couchbase.client.core.message.internal.SignalFlush;
 import com.couchbase.client.core.node.Node;
 import com.couchbase.client.core.node.locate.Locator;
 import com.couchbase.client.core.state.LifecycleState;
+import com.lmax.disruptor.RingBuffer;
 import org.junit.Test;
 import rx.Observable;
 
@@ -39,6 +42,7 @@ import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -55,7 +59,7 @@ public class RequestHandlerTest {
     @Test
     public void shouldAddNodes() {
         Set<Node> nodes = new HashSet<Node>();
-        RequestHandler handler = new RequestHandler(nodes, environment, configObservable, null);
+        RequestHandler handler = new RequestHandler(nodes, environment, configObservable, null, null);
 
         assertEquals(0, nodes.size());
         Node nodeMock = mock(Node.class);
@@ -67,7 +71,7 @@ public class RequestHandlerTest {
     @Test
     public void shouldIgnoreAlreadyAddedNode() throws Exception {
         Set<Node> nodes = new HashSet<Node>();
-        RequestHandler handler = new RequestHandler(nodes, environment, configObservable, null);
+        RequestHandler handler = new RequestHandler(nodes, environment, configObservable, null, null);
 
         assertEquals(0, nodes.size());
         Node nodeMock = mock(Node.class);
@@ -81,7 +85,7 @@ public class RequestHandlerTest {
     @Test
     public void shouldRemoveNodes() {
         Set<Node> nodes = new HashSet<Node>();
-        RequestHandler handler = new RequestHandler(nodes, environment, configObservable, null);
+        RequestHandler handler = new RequestHandler(nodes, environment, configObservable, null, null);
 
         Node node1 = mock(Node.class);
         when(node1.connect()).thenReturn(Observable.just(LifecycleState.CONNECTED));
@@ -115,7 +119,7 @@ public class RequestHandlerTest {
     @Test
     public void shouldRemoveNodeEvenIfNotDisconnected() throws Exception {
         Set<Node> nodes = new HashSet<Node>();
-        RequestHandler handler = new RequestHandler(nodes, environment, configObservable, null);
+        RequestHandler handler = new RequestHandler(nodes, environment, configObservable, null, null);
 
         Node node1 = mock(Node.class);
         when(node1.connect()).thenReturn(Observable.just(LifecycleState.CONNECTED));
@@ -127,6 +131,18 @@ public class RequestHandlerTest {
         assertEquals(0, nodes.size());
     }
 
+    @Test
+    public void shouldRetryReplicaReadWithoutConfig() throws Exception {
+        RingBuffer<ResponseEvent> responseBuffer = RingBuffer.createSingleProducer(new ResponseEventFactory(), 8);
+        RequestHandler handler = new RequestHandler(new HashSet<Node>(), environment, configObservable,
+            responseBuffer, null);
+
+        ReplicaGetRequest request = new ReplicaGetRequest("key", "bucket", ReplicaMode.ALL);
+        assertEquals(0, handler.dispatch(request).length);
+        assertEquals(0, responseBuffer.getCursor());
+        assertSame(request, responseBuffer.get(0).getMessage());
+    }
+
     @Test
     public void shouldRouteEventToNode() throws Exception {
         RequestHandler handler = new DummyLocatorClusterNodeHandler(environment);
@@ -150,7 +166,7 @@ public class RequestHandlerTest {
         private Locator LOCATOR = new DummyLocator();
 
         DummyLocatorClusterNodeHandler(Environment environment) {
-            super(environment, configObservable, null);
+            super(environment, configObservable, null, null);
         }
 
         @Override
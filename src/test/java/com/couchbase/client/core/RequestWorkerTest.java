@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.binary.GetRequest;
+import com.couchbase.client.core.message.binary.RemoveRequest;
+import com.couchbase.client.core.message.internal.SignalFlush;
+import com.couchbase.client.core.node.Node;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the functionality of {@link RequestWorker}.
+ */
+public class RequestWorkerTest {
+
+    @Test
+    public void shouldOnlyDispatchOwnSequences() throws Exception {
+        RequestHandler handler = mock(RequestHandler.class);
+        CouchbaseRequest own = mock(CouchbaseRequest.class);
+        CouchbaseRequest foreign = mock(CouchbaseRequest.class);
+        when(handler.dispatch(own)).thenReturn(new Node[0]);
+
+        RequestWorker worker = new RequestWorker(handler, 1, 2);
+        RequestEvent ownEvent = new RequestEvent();
+        ownEvent.setRequest(own);
+        RequestEvent foreignEvent = new RequestEvent();
+        foreignEvent.setRequest(foreign);
+
+        worker.onEvent(foreignEvent, 4, false);
+        worker.onEvent(ownEvent, 5, false);
+
+        verify(handler, times(1)).dispatch(own);
+        verify(handler, never()).dispatch(foreign);
+        assertNull(ownEvent.getRequest());
+        assertEquals(foreign, foreignEvent.getRequest());
+    }
+
+    @Test
+    public void shouldFlushPendingNodesWhenForeignEventEndsBatch() throws Exception {
+        RequestHandler handler = mock(RequestHandler.class);
+        Node node = mock(Node.class);
+        CouchbaseRequest own = mock(CouchbaseRequest.class);
+        when(handler.dispatch(own)).thenReturn(new Node[] { node });
+
+        RequestWorker worker = new RequestWorker(handler, 0, 2);
+        RequestEvent ownEvent = new RequestEvent();
+        ownEvent.setRequest(own);
+        RequestEvent foreignEvent = new RequestEvent();
+        foreignEvent.setRequest(mock(CouchbaseRequest.class));
+
+        worker.onEvent(ownEvent, 0, false);
+        verify(node, never()).send(SignalFlush.INSTANCE);
+        worker.onEvent(foreignEvent, 1, true);
+        verify(node, times(1)).send(SignalFlush.INSTANCE);
+
+        worker.onEvent(foreignEvent, 3, true);
+        verify(node, times(1)).send(SignalFlush.INSTANCE);
+    }
+
+    @Test
+    public void shouldFlushEveryNodeWrittenDuringBatchOnce() throws Exception {
+        RequestHandler handler = mock(RequestHandler.class);
+        Node first = mock(Node.class);
+        Node second = mock(Node.class);
+        Node idle = mock(Node.class);
+        CouchbaseRequest toFirst = mock(CouchbaseRequest.class);
+        CouchbaseRequest toSecond = mock(CouchbaseRequest.class);
+        when(handler.dispatch(toFirst)).thenReturn(new Node[] { first });
+        when(handler.dispatch(toSecond)).thenReturn(new Node[] { second });
+
+        RequestWorker worker = new RequestWorker(handler, 0, 1);
+        RequestEvent event = new RequestEvent();
+        worker.onEvent(event.setRequest(toFirst), 0, false);
+        worker.onEvent(event.setRequest(toSecond), 1, false);
+        worker.onEvent(event.setRequest(toFirst), 2, true);
+
+        verify(first, times(1)).send(SignalFlush.INSTANCE);
+        verify(second, times(1)).send(SignalFlush.INSTANCE);
+        verify(idle, never()).send(SignalFlush.INSTANCE);
+
+        worker.onEvent(event.setRequest(toSecond), 3, true);
+        verify(first, times(1)).send(SignalFlush.INSTANCE);
+        verify(second, times(2)).send(SignalFlush.INSTANCE);
+    }
+
+    @Test
+    public void shouldDispatchSameKeyOnSameWorker() throws Exception {
+        int workers = 4;
+        boolean[] used = new boolean[workers];
+        for (int k = 0; k < 64; k++) {
+            String key = "key" + k;
+            int owner = RequestWorker.ownerOf(new GetRequest(key, "bucket"), 0, workers);
+            for (long sequence = 1; sequence < 8; sequence++) {
+                assertEquals(owner, RequestWorker.ownerOf(new RemoveRequest(key, "bucket"),
+                    sequence, workers));
+            }
+            used[owner] = true;
+        }
+        for (boolean worker : used) {
+            assertTrue(worker);
+        }
+    }
+
+}
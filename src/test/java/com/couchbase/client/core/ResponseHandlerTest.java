@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.config.ConfigurationProvider;
+import com.couchbase.client.core.env.CouchbaseEnvironment;
+import com.couchbase.client.core.env.Environment;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.ResponseStatus;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Test;
+import rx.subjects.ReplaySubject;
+import rx.subjects.Subject;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the functionality of {@link ResponseHandler}.
+ */
+public class ResponseHandlerTest {
+
+    @Test
+    public void shouldCompleteInlineByDefault() throws Exception {
+        ConfigFactory.invalidateCaches();
+        ResponseHandler handler = new ResponseHandler(new CouchbaseEnvironment(), mock(ClusterFacade.class),
+            mock(ConfigurationProvider.class));
+
+        Subject<CouchbaseResponse, CouchbaseResponse> observable = ReplaySubject.create();
+        CouchbaseResponse response = responseWith(ResponseStatus.SUCCESS);
+        handler.onEvent(eventFor(response, observable), 0, true);
+
+        assertEquals(response, observable.toBlocking().single());
+    }
+
+    @Test
+    public void shouldKeepChunkOrderWithCompletionWorkers() throws Exception {
+        ConfigFactory.invalidateCaches();
+        Environment environment = new CouchbaseEnvironment(ConfigFactory
+            .parseMap(Collections.singletonMap("com.couchbase.client.responseCompletionWorkers", 4))
+            .withFallback(ConfigFactory.load()));
+        ResponseHandler handler = new ResponseHandler(environment, mock(ClusterFacade.class),
+            mock(ConfigurationProvider.class));
+
+        Subject<CouchbaseResponse, CouchbaseResponse> observable = ReplaySubject.create();
+        CouchbaseResponse[] responses = new CouchbaseResponse[100];
+        for (int i = 0; i < responses.length; i++) {
+            ResponseStatus status = i == responses.length - 1 ? ResponseStatus.SUCCESS : ResponseStatus.CHUNKED;
+            responses[i] = responseWith(status);
+            handler.onEvent(eventFor(responses[i], observable), i, true);
+        }
+
+        List<CouchbaseResponse> received = observable.toList().toBlocking().single();
+        assertEquals(responses.length, received.size());
+        for (int i = 0; i < responses.length; i++) {
+            assertEquals(responses[i], received.get(i));
+        }
+    }
+
+    private static CouchbaseResponse responseWith(final ResponseStatus status) {
+        CouchbaseResponse response = mock(CouchbaseResponse.class);
+        when(response.status()).thenReturn(status);
+        return response;
+    }
+
+    private static ResponseEvent eventFor(final CouchbaseResponse response,
+        final Subject<CouchbaseResponse, CouchbaseResponse> observable) {
+        return new ResponseEvent().setMessage(response).setObservable(observable);
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.binary.GetRequest;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.junit.Test;
+import rx.observers.TestSubscriber;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Verifies the functionality of {@link RetryScheduler}.
+ */
+public class RetrySchedulerTest {
+
+    @Test
+    public void shouldBackoffExponentiallyUpToMaxDelay() {
+        RetryScheduler scheduler = new RetryScheduler(mock(ClusterFacade.class), mock(Timer.class), 2, 100, 0);
+
+        for (int i = 0; i < 100; i++) {
+            assertBetween(1, 2, scheduler.delay(1));
+            assertBetween(2, 4, scheduler.delay(2));
+            assertBetween(4, 8, scheduler.delay(3));
+            assertBetween(50, 100, scheduler.delay(7));
+            assertBetween(50, 100, scheduler.delay(1000));
+        }
+    }
+
+    @Test
+    public void shouldScheduleOnTimerAndCountAttempts() {
+        Timer timer = mock(Timer.class);
+        RetryScheduler scheduler = new RetryScheduler(mock(ClusterFacade.class), timer, 1, 100, 0);
+        CouchbaseRequest request = new GetRequest("key", "bucket");
+
+        assertTrue(scheduler.schedule(request));
+        assertTrue(scheduler.schedule(request));
+        assertEquals(2, request.retryCount());
+        verify(timer, times(2)).newTimeout(any(TimerTask.class), anyLong(), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void shouldFailRequestOnceRetryLimitReached() {
+        Timer timer = mock(Timer.class);
+        RetryScheduler scheduler = new RetryScheduler(mock(ClusterFacade.class), timer, 1, 100, 2);
+        CouchbaseRequest request = new GetRequest("key", "bucket");
+        Timeout timeout = mock(Timeout.class);
+        request.timeoutHandle(timeout);
+        TestSubscriber<CouchbaseResponse> subscriber = new TestSubscriber<CouchbaseResponse>();
+        request.observable().subscribe(subscriber);
+
+        assertTrue(scheduler.schedule(request));
+        assertTrue(scheduler.schedule(request));
+        assertFalse(scheduler.schedule(request));
+
+        verify(timeout).cancel();
+
+        verify(timer, times(2)).newTimeout(any(TimerTask.class), anyLong(), eq(TimeUnit.MILLISECONDS));
+        assertEquals(1, subscriber.getOnErrorEvents().size());
+        assertTrue(subscriber.getOnErrorEvents().get(0) instanceof RetryLimitException);
+    }
+
+    private static void assertBetween(long lower, long upper, long actual) {
+        assertTrue(actual + " not in [" + lower + ", " + upper + "]", actual >= lower && actual <= upper);
+    }
+
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.binary.GetRequest;
+import com.couchbase.client.core.message.view.ViewQueryRequest;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import rx.observers.TestSubscriber;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the functionality of {@link TimeoutTracker}.
+ */
+public class TimeoutTrackerTest {
+
+    /**
+     * Default timeouts in the order of the service types (view, binary, query, config).
+     */
+    private static final long[] DEFAULT_TIMEOUTS = new long[] { 100, 10, 200, 0 };
+
+    @Test
+    public void shouldUseDefaultTimeoutOfServiceType() {
+        TimeoutTracker tracker = new TimeoutTracker(mock(Timer.class), DEFAULT_TIMEOUTS);
+        assertEquals(10, tracker.timeoutFor(new GetRequest("key", "bucket")));
+        assertEquals(100, tracker.timeoutFor(new ViewQueryRequest("design", "view", false, "bucket", "")));
+    }
+
+    @Test
+    public void shouldPreferCustomTimeout() {
+        Timer timer = mock(Timer.class);
+        TimeoutTracker tracker = new TimeoutTracker(timer, DEFAULT_TIMEOUTS);
+
+        tracker.track(new GetRequest("key", "bucket").timeout(50));
+        verify(timer).newTimeout(any(TimerTask.class), eq(50L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void shouldNotTrackWithoutTimeout() {
+        Timer timer = mock(Timer.class);
+        TimeoutTracker tracker = new TimeoutTracker(timer, new long[] { 0, 0, 0, 0 });
+
+        tracker.track(new GetRequest("key", "bucket"));
+        verify(timer, never()).newTimeout(any(TimerTask.class), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    public void shouldFailRequestOnExpiry() throws Exception {
+        Timer timer = mock(Timer.class);
+        Timeout timeout = mock(Timeout.class);
+        when(timeout.isExpired()).thenReturn(true);
+        ArgumentCaptor<TimerTask> task = ArgumentCaptor.forClass(TimerTask.class);
+        when(timer.newTimeout(task.capture(), anyLong(), eq(TimeUnit.MILLISECONDS))).thenReturn(timeout);
+        TimeoutTracker tracker = new TimeoutTracker(timer, DEFAULT_TIMEOUTS);
+
+        CouchbaseRequest request = new GetRequest("key", "bucket");
+        TestSubscriber<CouchbaseResponse> subscriber = new TestSubscriber<CouchbaseResponse>();
+        request.observable().subscribe(subscriber);
+        tracker.track(request);
+        task.getValue().run(timeout);
+
+        assertTrue(request.timedOut());
+        assertEquals(1, subscriber.getOnErrorEvents().size());
+        assertTrue(subscriber.getOnErrorEvents().get(0) instanceof RequestTimeoutException);
+    }
+
+    @Test
+    public void shouldCancelPendingTimeout() {
+        Timer timer = mock(Timer.class);
+        Timeout timeout = mock(Timeout.class);
+        when(timer.newTimeout(any(TimerTask.class), anyLong(), eq(TimeUnit.MILLISECONDS))).thenReturn(timeout);
+        TimeoutTracker tracker = new TimeoutTracker(timer, DEFAULT_TIMEOUTS);
+
+        CouchbaseRequest request = new GetRequest("key", "bucket");
+        tracker.track(request);
+        request.cancelTimeout();
+        verify(timeout).cancel();
+    }
+
+}
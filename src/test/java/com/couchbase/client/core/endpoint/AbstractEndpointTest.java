@@ -25,6 +25,7 @@ import com.couchbase.client.core.env.CouchbaseEnvironment;
 import com.couchbase.client.core.env.Environment;
 import com.couchbase.client.core.message.CouchbaseRequest;
 import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.PriorityRequest;
 import com.couchbase.client.core.state.LifecycleState;
 import com.couchbase.client.core.state.NotConnectedException;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -191,6 +192,21 @@ public class AbstractEndpointTest {
         assertTrue(channel.readOutbound() instanceof CouchbaseRequest);
     }
 
+    @Test
+    public void shouldFlushPriorityMessageRightAway() {
+        BootstrapAdapter bootstrap = mock(BootstrapAdapter.class);
+        when(bootstrap.connect()).thenReturn(channel.newSucceededFuture());
+        Endpoint endpoint = new DummyEndpoint(bootstrap);
+
+        Observable<LifecycleState> observable = endpoint.connect();
+        assertEquals(LifecycleState.CONNECTED, observable.toBlocking().single());
+
+        endpoint.send(mock(PriorityRequest.class));
+
+        assertEquals(1, channel.outboundMessages().size());
+        assertTrue(channel.readOutbound() instanceof PriorityRequest);
+    }
+
     @Test(expected = NotConnectedException.class)
     public void shouldRejectMessageIfNotConnected() {
         BootstrapAdapter bootstrap = mock(BootstrapAdapter.class);
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.endpoint;
+
+import com.couchbase.client.core.ResponseEvent;
+import com.couchbase.client.core.ResponseEventFactory;
+import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.message.binary.GetRequest;
+import com.couchbase.client.core.message.binary.GetResponse;
+import com.couchbase.client.core.message.document.CoreDocument;
+import com.lmax.disruptor.RingBuffer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import io.netty.util.Timeout;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the functionality of the {@link GenericEndpointHandler}.
+ */
+public class GenericEndpointHandlerTest {
+
+    private AbstractEndpoint endpoint;
+    private RingBuffer<ResponseEvent> responseBuffer;
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setup() {
+        endpoint = mock(AbstractEndpoint.class);
+        responseBuffer = RingBuffer.createSingleProducer(new ResponseEventFactory(), 8);
+        channel = new EmbeddedChannel(new GenericEndpointHandler(endpoint, responseBuffer, true));
+    }
+
+    @Test
+    public void shouldPublishResponse() {
+        GetRequest request = new GetRequest("key", "bucket");
+        Timeout timeout = mock(Timeout.class);
+        request.timeoutHandle(timeout);
+        GetResponse response = response(Unpooled.copiedBuffer("content", CharsetUtil.UTF_8));
+
+        channel.writeInbound(new CorrelatedResponse(request, response));
+
+        assertEquals(0, responseBuffer.getCursor());
+        assertSame(response, responseBuffer.get(0).getMessage());
+        verify(timeout).cancel();
+        verify(endpoint).notifyRequestCompleted();
+        assertEquals(1, response.document().content().refCnt());
+        response.document().content().release();
+    }
+
+    @Test
+    public void shouldReleaseLateResponse() {
+        GetRequest request = new GetRequest("key", "bucket");
+        Timeout expired = mock(Timeout.class);
+        when(expired.isExpired()).thenReturn(true);
+        request.timeoutHandle(expired);
+        ByteBuf content = Unpooled.copiedBuffer("content", CharsetUtil.UTF_8);
+
+        channel.writeInbound(new CorrelatedResponse(request, response(content)));
+
+        assertEquals(0, content.refCnt());
+        assertEquals(-1, responseBuffer.getCursor());
+        verify(expired, never()).cancel();
+        verify(endpoint).notifyRequestCompleted();
+    }
+
+    @Test
+    public void shouldNotRetryEvictedRequest() {
+        GetRequest request = new GetRequest("key", "bucket");
+        Timeout expired = mock(Timeout.class);
+        when(expired.isExpired()).thenReturn(true);
+        request.timeoutHandle(expired);
+
+        channel.writeInbound(request);
+
+        assertEquals(-1, responseBuffer.getCursor());
+        verify(endpoint).notifyRequestCompleted();
+    }
+
+    private static GetResponse response(final ByteBuf content) {
+        CoreDocument document = new CoreDocument("key", content, 0, 0, 1234, false, ResponseStatus.SUCCESS);
+        return new GetResponse(document, "bucket", null);
+    }
+
+}
@@ -0,0 +1,320 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.endpoint.binary;
+
+import com.couchbase.client.core.endpoint.CorrelatedResponse;
+import com.couchbase.client.core.env.Environment;
+import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.message.binary.BinaryRequest;
+import com.couchbase.client.core.message.binary.GetRequest;
+import com.couchbase.client.core.message.binary.GetResponse;
+import com.couchbase.client.core.message.binary.RemoveRequest;
+import com.couchbase.client.core.message.binary.RemoveResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderResult;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.memcache.DefaultLastMemcacheContent;
+import io.netty.handler.codec.memcache.binary.BinaryMemcacheObjectAggregator;
+import io.netty.handler.codec.memcache.binary.BinaryMemcacheResponseStatus;
+import io.netty.handler.codec.memcache.binary.DefaultBinaryMemcacheResponse;
+import io.netty.handler.codec.memcache.binary.DefaultFullBinaryMemcacheResponse;
+import io.netty.handler.codec.memcache.binary.FullBinaryMemcacheResponse;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.Timeout;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the functionality of the {@link BinaryCodec}.
+ */
+public class BinaryCodecTest {
+
+    private static final boolean INBOUND = true;
+    private static final boolean OUTBOUND = false;
+
+    private static ResourceLeakDetector.Level leakDetectionLevel;
+
+    private IntObjectMap<BinaryRequest> inFlight;
+    private EmbeddedChannel channel;
+
+    @BeforeClass
+    public static void enableLeakDetection() {
+        leakDetectionLevel = ResourceLeakDetector.getLevel();
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+    }
+
+    @AfterClass
+    public static void resetLeakDetection() {
+        ResourceLeakDetector.setLevel(leakDetectionLevel);
+    }
+
+    @Before
+    public void setup() {
+        inFlight = new IntObjectHashMap<BinaryRequest>();
+        channel = new EmbeddedChannel(new BinaryCodec(mock(Environment.class), inFlight, 0));
+    }
+
+    @Test
+    public void shouldAssignIncreasingOpaques() {
+        GetRequest first = new GetRequest("key1", "bucket");
+        GetRequest second = new GetRequest("key2", "bucket");
+        channel.writeOutbound(first.partition((short) 1), second.partition((short) 2));
+
+        int firstOpaque = opaque(channel.readOutbound());
+        int secondOpaque = opaque(channel.readOutbound());
+        assertEquals(firstOpaque + 1, secondOpaque);
+        assertEquals(2, inFlight.size());
+        assertSame(first, inFlight.get(firstOpaque));
+        assertSame(second, inFlight.get(secondOpaque));
+    }
+
+    @Test
+    public void shouldCorrelateResponsesOutOfOrder() {
+        GetRequest get = new GetRequest("key", "bucket");
+        RemoveRequest remove = new RemoveRequest("key", "bucket");
+        channel.writeOutbound(get.partition((short) 1), remove.partition((short) 1));
+        int getOpaque = opaque(channel.readOutbound());
+        int removeOpaque = opaque(channel.readOutbound());
+
+        channel.writeInbound(response(removeOpaque, BinaryMemcacheResponseStatus.SUCCESS, ""));
+        channel.writeInbound(response(getOpaque, BinaryMemcacheResponseStatus.SUCCESS, "content"));
+
+        CorrelatedResponse removed = (CorrelatedResponse) channel.readInbound();
+        assertSame(remove, removed.request());
+        assertTrue(removed.response() instanceof RemoveResponse);
+
+        CorrelatedResponse got = (CorrelatedResponse) channel.readInbound();
+        assertSame(get, got.request());
+        GetResponse getResponse = (GetResponse) got.response();
+        assertEquals(ResponseStatus.SUCCESS, getResponse.status());
+        assertEquals("key", getResponse.document().id());
+        assertEquals("content", getResponse.document().content().toString(CharsetUtil.UTF_8));
+        getResponse.document().content().release();
+
+        assertTrue(inFlight.isEmpty());
+    }
+
+    @Test
+    public void shouldDropResponseForUnknownOpaque() {
+        GetRequest get = new GetRequest("key", "bucket");
+        channel.writeOutbound(get.partition((short) 1));
+        int opaque = opaque(channel.readOutbound());
+
+        FullBinaryMemcacheResponse unknown = response(opaque + 42, BinaryMemcacheResponseStatus.SUCCESS, "other");
+        channel.writeInbound(unknown);
+        assertNull(channel.readInbound());
+        assertEquals(0, unknown.refCnt());
+        assertSame(get, inFlight.get(opaque));
+
+        channel.writeInbound(response(opaque, BinaryMemcacheResponseStatus.KEY_ENOENT, ""));
+        CorrelatedResponse correlated = (CorrelatedResponse) channel.readInbound();
+        assertSame(get, correlated.request());
+        assertEquals(ResponseStatus.NOT_EXISTS, correlated.response().status());
+    }
+
+    @Test
+    public void shouldHandBackRequestsInFlightOnClose() {
+        GetRequest first = new GetRequest("key1", "bucket");
+        GetRequest second = new GetRequest("key2", "bucket");
+        channel.writeOutbound(first.partition((short) 1), second.partition((short) 2));
+        int opaque = opaque(channel.readOutbound());
+        assertNotEquals(opaque, opaque(channel.readOutbound()));
+
+        channel.close();
+        channel.runPendingTasks();
+
+        HashSet<Object> handedBack = new HashSet<Object>();
+        handedBack.add(channel.readInbound());
+        handedBack.add(channel.readInbound());
+        assertEquals(new HashSet<Object>(Arrays.asList(first, second)), handedBack);
+        assertNull(channel.readInbound());
+        assertTrue(inFlight.isEmpty());
+    }
+
+    @Test
+    public void shouldEvictTimedOutRequestsInFlight() throws Exception {
+        DefaultEventExecutorGroup encodingPool = new DefaultEventExecutorGroup(1);
+        try {
+            channel = new EmbeddedChannel(new ChannelHandlerAdapter() { });
+            channel.pipeline().addFirst(encodingPool, "codec", new BinaryCodec(mock(Environment.class), inFlight, 10));
+            channel.pipeline().fireChannelActive();
+
+            Timeout expired = mock(Timeout.class);
+            when(expired.isExpired()).thenReturn(true);
+            GetRequest timedOut = new GetRequest("key1", "bucket");
+            timedOut.timeoutHandle(expired);
+            GetRequest pending = new GetRequest("key2", "bucket");
+            channel.writeOutbound(timedOut.partition((short) 1));
+            int timedOutOpaque = opaque(await(OUTBOUND));
+            channel.writeOutbound(pending.partition((short) 1));
+            int pendingOpaque = opaque(await(OUTBOUND));
+
+            assertSame(timedOut, await(INBOUND));
+            assertFalse(inFlight.containsKey(timedOutOpaque));
+            assertSame(pending, inFlight.get(pendingOpaque));
+        } finally {
+            encodingPool.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    @Test
+    public void shouldDecodeContentAsRetainedSlice() {
+        GetRequest get = new GetRequest("key", "bucket");
+        channel.writeOutbound(get.partition((short) 1));
+        int opaque = opaque(channel.readOutbound());
+
+        ByteBuf extras = Unpooled.buffer().writeInt(42);
+        ByteBuf body = Unpooled.copiedBuffer("content", CharsetUtil.UTF_8);
+        FullBinaryMemcacheResponse response = new DefaultFullBinaryMemcacheResponse("", extras, body);
+        response.setOpaque(opaque);
+        response.setExtrasLength((byte) extras.readableBytes());
+        response.setTotalBodyLength(extras.readableBytes() + body.readableBytes());
+        channel.writeInbound(response);
+
+        GetResponse getResponse = (GetResponse) ((CorrelatedResponse) channel.readInbound()).response();
+        ByteBuf content = getResponse.document().content();
+        assertEquals("content", content.toString(CharsetUtil.UTF_8));
+        body.setByte(0, 'C');
+        assertEquals("Content", content.toString(CharsetUtil.UTF_8));
+        assertEquals(42, getResponse.document().flags());
+        assertEquals(0, extras.refCnt());
+        assertEquals(1, body.refCnt());
+
+        content.release();
+        assertEquals(0, body.refCnt());
+    }
+
+    @Test
+    public void shouldReadFlagsAndExpirationFromAggregatedExtras() {
+        channel = new EmbeddedChannel(new BinaryMemcacheObjectAggregator(Integer.MAX_VALUE),
+            new BinaryCodec(mock(Environment.class), inFlight, 0));
+        GetRequest get = new GetRequest("key", "bucket");
+        channel.writeOutbound(get.partition((short) 1));
+        int opaque = opaque(channel.readOutbound());
+
+        ByteBuf extras = Unpooled.buffer().writeInt(42).writeInt(3600);
+        ByteBuf body = Unpooled.copiedBuffer("content", CharsetUtil.UTF_8);
+        DefaultBinaryMemcacheResponse header = new DefaultBinaryMemcacheResponse(extras);
+        header.setOpaque(opaque);
+        header.setExtrasLength((byte) extras.readableBytes());
+        header.setTotalBodyLength(extras.readableBytes() + body.readableBytes());
+        channel.writeInbound(header, new DefaultLastMemcacheContent(body));
+
+        GetResponse getResponse = (GetResponse) ((CorrelatedResponse) channel.readInbound()).response();
+        assertEquals(42, getResponse.document().flags());
+        assertEquals(3600, getResponse.document().expiration());
+        assertEquals("content", getResponse.document().content().toString(CharsetUtil.UTF_8));
+        assertEquals(0, extras.refCnt());
+
+        getResponse.document().content().release();
+        assertEquals(0, body.refCnt());
+    }
+
+    @Test
+    public void shouldFailResponseWhichCouldNotBeDecoded() {
+        GetRequest get = new GetRequest("key", "bucket");
+        channel.writeOutbound(get.partition((short) 1));
+        int opaque = opaque(channel.readOutbound());
+
+        FullBinaryMemcacheResponse response = response(opaque, BinaryMemcacheResponseStatus.SUCCESS, "");
+        response.setDecoderResult(DecoderResult.failure(new TooLongFrameException()));
+        channel.writeInbound(response);
+
+        CorrelatedResponse correlated = (CorrelatedResponse) channel.readInbound();
+        assertSame(get, correlated.request());
+        assertEquals(ResponseStatus.FAILURE, correlated.response().status());
+    }
+
+    @Test
+    public void shouldEncodeAndDecodeOnEncodingPool() throws Exception {
+        DefaultEventExecutorGroup encodingPool = new DefaultEventExecutorGroup(1);
+        try {
+            channel = new EmbeddedChannel(new ChannelHandlerAdapter() { });
+            channel.pipeline().addFirst(encodingPool, "codec", new BinaryCodec(mock(Environment.class), inFlight, 0));
+
+            GetRequest get = new GetRequest("key", "bucket");
+            channel.writeOutbound(get.partition((short) 1));
+            int opaque = opaque(await(OUTBOUND));
+
+            channel.writeInbound(response(opaque, BinaryMemcacheResponseStatus.KEY_ENOENT, ""));
+            CorrelatedResponse correlated = (CorrelatedResponse) await(INBOUND);
+            assertSame(get, correlated.request());
+            assertEquals(ResponseStatus.NOT_EXISTS, correlated.response().status());
+        } finally {
+            encodingPool.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    /**
+     * Waits for a message which is written by a handler running outside of the channel's event loop.
+     */
+    private Object await(final boolean inbound) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            channel.runPendingTasks();
+            Object msg = inbound ? channel.readInbound() : channel.readOutbound();
+            if (msg != null) {
+                return msg;
+            }
+            Thread.sleep(1);
+        }
+        throw new AssertionError("No message arrived in time.");
+    }
+
+    private static int opaque(final Object frame) {
+        ByteBuf buf = (ByteBuf) frame;
+        int opaque = buf.getInt(buf.readerIndex() + 12);
+        buf.release();
+        return opaque;
+    }
+
+    private static FullBinaryMemcacheResponse response(int opaque, short status, String content) {
+        ByteBuf body = Unpooled.copiedBuffer(content, CharsetUtil.UTF_8);
+        FullBinaryMemcacheResponse response = new DefaultFullBinaryMemcacheResponse("", Unpooled.EMPTY_BUFFER, body);
+        response.setOpaque(opaque);
+        response.setStatus(status);
+        response.setTotalBodyLength(body.readableBytes());
+        return response;
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.endpoint.binary;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.memcache.binary.BinaryMemcacheResponseStatus;
+import io.netty.handler.codec.memcache.binary.FullBinaryMemcacheResponse;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ResourceLeakDetector;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the functionality of the {@link BinaryFrameDecoder}.
+ */
+public class BinaryFrameDecoderTest {
+
+    private static ResourceLeakDetector.Level leakDetectionLevel;
+
+    private EmbeddedChannel channel;
+
+    @BeforeClass
+    public static void enableLeakDetection() {
+        leakDetectionLevel = ResourceLeakDetector.getLevel();
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+    }
+
+    @AfterClass
+    public static void resetLeakDetection() {
+        ResourceLeakDetector.setLevel(leakDetectionLevel);
+    }
+
+    @Before
+    public void setup() {
+        channel = new EmbeddedChannel(new BinaryFrameDecoder(128));
+    }
+
+    @Test
+    public void shouldDecodeFrameArrivingInPieces() {
+        ByteBuf frame = frame(7, "key", 42, "content");
+        int length = frame.readableBytes();
+        assertFalse(channel.writeInbound(frame.readSlice(10).retain()));
+        assertFalse(channel.writeInbound(frame.readSlice(length - 11).retain()));
+        assertTrue(channel.writeInbound(frame.readSlice(1).retain()));
+        frame.release();
+
+        FullBinaryMemcacheResponse response = (FullBinaryMemcacheResponse) channel.readInbound();
+        assertTrue(response.getDecoderResult().isSuccess());
+        assertEquals(7, response.getOpaque());
+        assertEquals(BinaryMemcacheResponseStatus.SUCCESS, response.getStatus());
+        assertEquals(1234L, response.getCAS());
+        assertEquals("key", response.getKey());
+        assertEquals(42, response.getExtras().getInt(response.getExtras().readerIndex()));
+        assertEquals("content", response.content().toString(CharsetUtil.UTF_8));
+        assertNull(channel.readInbound());
+
+        response.release();
+        assertEquals(0, response.content().refCnt());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void shouldDecodeMultipleFramesFromOneBuffer() {
+        ByteBuf frames = Unpooled.wrappedBuffer(frame(1, "", -1, "first"), frame(2, "", -1, ""));
+        channel.writeInbound(frames);
+
+        FullBinaryMemcacheResponse first = (FullBinaryMemcacheResponse) channel.readInbound();
+        assertEquals(1, first.getOpaque());
+        assertNull(first.getKey());
+        assertNull(first.getExtras());
+        assertEquals("first", first.content().toString(CharsetUtil.UTF_8));
+        first.release();
+
+        FullBinaryMemcacheResponse second = (FullBinaryMemcacheResponse) channel.readInbound();
+        assertEquals(2, second.getOpaque());
+        assertFalse(second.content().isReadable());
+        second.release();
+
+        assertNull(channel.readInbound());
+        assertEquals(0, frames.refCnt());
+    }
+
+    @Test
+    public void shouldSkipFrameExceedingMaximumSize() {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            large.append('a');
+        }
+        ByteBuf tooLong = frame(1, "key", 0, large.toString());
+        int length = tooLong.readableBytes();
+        channel.writeInbound(tooLong.readSlice(50).retain());
+
+        FullBinaryMemcacheResponse failed = (FullBinaryMemcacheResponse) channel.readInbound();
+        assertEquals(1, failed.getOpaque());
+        assertTrue(failed.getDecoderResult().cause() instanceof TooLongFrameException);
+        assertFalse(failed.content().isReadable());
+        failed.release();
+
+        channel.writeInbound(tooLong.readSlice(length - 50).retain());
+        tooLong.release();
+        assertNull(channel.readInbound());
+
+        channel.writeInbound(frame(2, "key", 0, "small"));
+        FullBinaryMemcacheResponse next = (FullBinaryMemcacheResponse) channel.readInbound();
+        assertEquals(2, next.getOpaque());
+        assertTrue(next.getDecoderResult().isSuccess());
+        assertEquals("small", next.content().toString(CharsetUtil.UTF_8));
+        next.release();
+    }
+
+    @Test
+    public void shouldSkipMalformedFrameArrivingInPieces() {
+        ByteBuf malformed = frame(1, "key", 0, "content");
+        malformed.setByte(4, 100);
+        int length = malformed.readableBytes();
+        channel.writeInbound(malformed.readSlice(BinaryFrameDecoder.HEADER_SIZE + 2).retain());
+
+        FullBinaryMemcacheResponse failed = (FullBinaryMemcacheResponse) channel.readInbound();
+        assertEquals(1, failed.getOpaque());
+        assertTrue(failed.getDecoderResult().isFailure());
+        failed.release();
+
+        channel.writeInbound(malformed.readSlice(length - BinaryFrameDecoder.HEADER_SIZE - 2).retain());
+        malformed.release();
+        assertNull(channel.readInbound());
+
+        channel.writeInbound(frame(2, "key", 0, "next"));
+        FullBinaryMemcacheResponse next = (FullBinaryMemcacheResponse) channel.readInbound();
+        assertEquals(2, next.getOpaque());
+        assertEquals("next", next.content().toString(CharsetUtil.UTF_8));
+        next.release();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailOnMaximumSizeSmallerThanHeader() {
+        new BinaryFrameDecoder(BinaryFrameDecoder.HEADER_SIZE - 1);
+    }
+
+    /**
+     * Creates a response frame, with 4 bytes of extras holding the flags unless they are negative.
+     */
+    private static ByteBuf frame(final int opaque, final String key, final int flags, final String content) {
+        byte[] keyBytes = key.getBytes(CharsetUtil.UTF_8);
+        byte[] contentBytes = content.getBytes(CharsetUtil.UTF_8);
+        int extrasLength = flags < 0 ? 0 : 4;
+
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeByte(0x81);
+        frame.writeByte(0x00);
+        frame.writeShort(keyBytes.length);
+        frame.writeByte(extrasLength);
+        frame.writeByte(0);
+        frame.writeShort(BinaryMemcacheResponseStatus.SUCCESS);
+        frame.writeInt(extrasLength + keyBytes.length + contentBytes.length);
+        frame.writeInt(opaque);
+        frame.writeLong(1234L);
+        if (extrasLength > 0) {
+            frame.writeInt(flags);
+        }
+        frame.writeBytes(keyBytes);
+        frame.writeBytes(contentBytes);
+        return frame;
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.endpoint.binary;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.memcache.binary.BinaryMemcacheOpcodes;
+import io.netty.handler.codec.memcache.binary.BinaryMemcacheRequest;
+import io.netty.handler.codec.memcache.binary.BinaryMemcacheRequestEncoder;
+import io.netty.handler.codec.memcache.binary.DefaultBinaryMemcacheRequest;
+import io.netty.handler.codec.memcache.binary.DefaultFullBinaryMemcacheRequest;
+import io.netty.handler.codec.memcache.binary.FullBinaryMemcacheRequest;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that the {@link BinaryRequestEncoder} writes the same frames as the memcache message encoder.
+ */
+public class BinaryRequestEncoderTest {
+
+    private static final UnpooledByteBufAllocator ALLOC = UnpooledByteBufAllocator.DEFAULT;
+
+    @Test
+    public void shouldEncodeRequestWithoutValue() {
+        byte[] key = "key".getBytes(CharsetUtil.UTF_8);
+        ByteBuf frame = BinaryRequestEncoder.encode(ALLOC, BinaryMemcacheOpcodes.DELETE, key, (short) 12, 7, 1234L);
+
+        BinaryMemcacheRequest expected = new DefaultBinaryMemcacheRequest();
+        expected.setKey("key");
+        expected.setOpcode(BinaryMemcacheOpcodes.DELETE);
+        expected.setKeyLength((short) key.length);
+        expected.setTotalBodyLength(key.length);
+        expected.setReserved((short) 12);
+        expected.setOpaque(7);
+        expected.setCAS(1234L);
+
+        assertFrame(expected, frame);
+    }
+
+    @Test
+    public void shouldEncodeRequestWithoutKey() {
+        ByteBuf frame = BinaryRequestEncoder.encode(ALLOC, (byte) 0xb5, null, (short) 0, 1, 0);
+
+        BinaryMemcacheRequest expected = new DefaultBinaryMemcacheRequest();
+        expected.setOpcode((byte) 0xb5);
+        expected.setOpaque(1);
+
+        assertEquals(BinaryRequestEncoder.HEADER_SIZE, frame.readableBytes());
+        assertFrame(expected, frame);
+    }
+
+    @Test
+    public void shouldCopySmallValueIntoFrame() {
+        ByteBuf value = Unpooled.copiedBuffer("{\"small\":true}", CharsetUtil.UTF_8);
+        ByteBuf frame = encodeStore(value);
+
+        assertFalse(frame instanceof CompositeByteBuf);
+        assertEquals(0, value.refCnt());
+        assertFrame(expectedStore(Unpooled.copiedBuffer("{\"small\":true}", CharsetUtil.UTF_8)), frame);
+    }
+
+    @Test
+    public void shouldComposeLargeValueWithFrame() {
+        byte[] content = new byte[BinaryRequestEncoder.COPY_THRESHOLD + 1];
+        Arrays.fill(content, (byte) 'a');
+        ByteBuf value = Unpooled.copiedBuffer(content);
+        ByteBuf frame = encodeStore(value);
+
+        assertTrue(frame instanceof CompositeByteBuf);
+        assertEquals(1, value.refCnt());
+        assertFrame(expectedStore(Unpooled.copiedBuffer(content)), frame);
+        assertEquals(0, value.refCnt());
+    }
+
+    @Test
+    public void shouldPassFramesThroughMemcacheEncoder() {
+        EmbeddedChannel channel = new EmbeddedChannel(new BinaryMemcacheRequestEncoder());
+        ByteBuf frame = encodeStore(Unpooled.copiedBuffer("value", CharsetUtil.UTF_8));
+        channel.writeOutbound(frame, new DefaultBinaryMemcacheRequest());
+
+        ByteBuf passed = (ByteBuf) channel.readOutbound();
+        assertEquals(frame, passed);
+        passed.release();
+        ByteBuf header = (ByteBuf) channel.readOutbound();
+        assertEquals(BinaryRequestEncoder.HEADER_SIZE, header.readableBytes());
+        header.release();
+        assertEquals(0, frame.refCnt());
+    }
+
+    private static ByteBuf encodeStore(final ByteBuf value) {
+        return BinaryRequestEncoder.encode(ALLOC, BinaryMemcacheOpcodes.SET, (byte) 0x01,
+            "key".getBytes(CharsetUtil.UTF_8), (short) 3, 5, 99L, 0xF1, 3600, value);
+    }
+
+    private static BinaryMemcacheRequest expectedStore(final ByteBuf value) {
+        byte[] key = "key".getBytes(CharsetUtil.UTF_8);
+        ByteBuf extras = Unpooled.buffer(8).writeInt(0xF1).writeInt(3600);
+        FullBinaryMemcacheRequest expected = new DefaultFullBinaryMemcacheRequest(null, extras, value);
+        expected.setKey("key");
+        expected.setOpcode(BinaryMemcacheOpcodes.SET);
+        expected.setKeyLength((short) key.length);
+        expected.setExtrasLength((byte) 8);
+        expected.setDataType((byte) 0x01);
+        expected.setTotalBodyLength(8 + key.length + value.readableBytes());
+        expected.setReserved((short) 3);
+        expected.setOpaque(5);
+        expected.setCAS(99L);
+        return expected;
+    }
+
+    /**
+     * Encodes the expected request with the memcache encoder and compares it with the frame, releasing both.
+     */
+    private static void assertFrame(final BinaryMemcacheRequest expected, final ByteBuf frame) {
+        EmbeddedChannel channel = new EmbeddedChannel(new BinaryMemcacheRequestEncoder());
+        channel.writeOutbound(expected);
+        ByteBuf encoded = Unpooled.buffer();
+        ByteBuf part;
+        while ((part = (ByteBuf) channel.readOutbound()) != null) {
+            encoded.writeBytes(part);
+            part.release();
+        }
+
+        assertEquals(encoded, frame);
+        encoded.release();
+        frame.release();
+    }
+}
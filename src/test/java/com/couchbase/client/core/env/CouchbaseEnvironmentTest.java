@@ -1,10 +1,25 @@
 package com.couchbase.client.core.env;
 
+import com.couchbase.client.core.node.locate.LeastOutstandingNodeSelectionStrategy;
+import com.couchbase.client.core.node.locate.PowerOfTwoChoicesNodeSelectionStrategy;
+import com.couchbase.client.core.service.strategies.LeastOutstandingSelectionStrategy;
+import com.couchbase.client.core.service.strategies.PartitionSelectionStrategy;
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.PhasedBackoffWaitStrategy;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class CouchbaseEnvironmentTest {
 
@@ -34,4 +49,172 @@ public class CouchbaseEnvironmentTest {
         CouchbaseEnvironment env = new CouchbaseEnvironment(config);
         env.ioPoolSize();
     }
+
+    @Test
+    public void shouldDefaultToBlockingWaitStrategies() {
+        ConfigFactory.invalidateCaches();
+        CouchbaseEnvironment env = new CouchbaseEnvironment();
+        assertTrue(env.requestWaitStrategy() instanceof BlockingWaitStrategy);
+        assertTrue(env.responseWaitStrategy() instanceof BlockingWaitStrategy);
+    }
+
+    @Test
+    public void shouldLoadCustomWaitStrategies() {
+        Map<String, String> settings = new HashMap<String, String>();
+        settings.put("com.couchbase.client.requestWaitStrategy", "busySpin");
+        settings.put("com.couchbase.client.responseWaitStrategy", "phasedBackoff");
+        ConfigFactory.invalidateCaches();
+        Config config = ConfigFactory.parseMap(settings).withFallback(ConfigFactory.load());
+        CouchbaseEnvironment env = new CouchbaseEnvironment(config);
+
+        assertTrue(env.requestWaitStrategy() instanceof BusySpinWaitStrategy);
+        assertTrue(env.responseWaitStrategy() instanceof PhasedBackoffWaitStrategy);
+        assertNotSame(env.requestWaitStrategy(), env.requestWaitStrategy());
+    }
+
+    @Test(expected = EnvironmentException.class)
+    public void shouldFailOnUnknownWaitStrategy() {
+        ConfigFactory.invalidateCaches();
+        Config config = ConfigFactory
+            .parseMap(Collections.singletonMap("com.couchbase.client.requestWaitStrategy", "napping"))
+            .withFallback(ConfigFactory.load());
+        new CouchbaseEnvironment(config).requestWaitStrategy();
+    }
+
+    @Test
+    public void shouldDefaultToOneRequestBufferShard() {
+        ConfigFactory.invalidateCaches();
+        CouchbaseEnvironment env = new CouchbaseEnvironment();
+        assertEquals(1, env.requestBufferShards());
+    }
+
+    @Test(expected = EnvironmentException.class)
+    public void shouldFailOnZeroRequestBufferShards() {
+        ConfigFactory.invalidateCaches();
+        Config config = ConfigFactory
+            .parseMap(Collections.singletonMap("com.couchbase.client.requestBufferShards", 0))
+            .withFallback(ConfigFactory.load());
+        new CouchbaseEnvironment(config).requestBufferShards();
+    }
+
+    @Test
+    public void shouldLoadDefaultServiceTimeouts() {
+        ConfigFactory.invalidateCaches();
+        CouchbaseEnvironment env = new CouchbaseEnvironment();
+        assertEquals(2500, env.binaryServiceTimeout());
+        assertEquals(75000, env.viewServiceTimeout());
+        assertEquals(75000, env.queryServiceTimeout());
+        assertEquals(0, env.configServiceTimeout());
+    }
+
+    @Test(expected = EnvironmentException.class)
+    public void shouldFailOnNegativeServiceTimeout() {
+        ConfigFactory.invalidateCaches();
+        Config config = ConfigFactory
+            .parseMap(Collections.singletonMap("com.couchbase.client.service.timeouts.binary", -1))
+            .withFallback(ConfigFactory.load());
+        new CouchbaseEnvironment(config).binaryServiceTimeout();
+    }
+
+    @Test
+    public void shouldLoadNodeSelectionStrategies() {
+        ConfigFactory.invalidateCaches();
+        Config config = ConfigFactory
+            .parseMap(Collections.singletonMap("com.couchbase.client.service.balancing.query", "powerOfTwoChoices"))
+            .withFallback(ConfigFactory.load());
+        CouchbaseEnvironment env = new CouchbaseEnvironment(config);
+
+        assertTrue(env.viewNodeSelectionStrategy() instanceof LeastOutstandingNodeSelectionStrategy);
+        assertTrue(env.queryNodeSelectionStrategy() instanceof PowerOfTwoChoicesNodeSelectionStrategy);
+        assertNotSame(env.viewNodeSelectionStrategy(), env.viewNodeSelectionStrategy());
+    }
+
+    @Test(expected = EnvironmentException.class)
+    public void shouldFailOnUnknownNodeSelectionStrategy() {
+        ConfigFactory.invalidateCaches();
+        Config config = ConfigFactory
+            .parseMap(Collections.singletonMap("com.couchbase.client.service.balancing.view", "random"))
+            .withFallback(ConfigFactory.load());
+        new CouchbaseEnvironment(config).viewNodeSelectionStrategy();
+    }
+
+    @Test
+    public void shouldLoadBinarySelectionStrategy() {
+        ConfigFactory.invalidateCaches();
+        assertTrue(new CouchbaseEnvironment().binarySelectionStrategy() instanceof PartitionSelectionStrategy);
+
+        Config config = ConfigFactory
+            .parseMap(Collections.singletonMap("com.couchbase.client.service.selection.binary",
+                "leastOutstandingKeyOrdered"))
+            .withFallback(ConfigFactory.load());
+        CouchbaseEnvironment env = new CouchbaseEnvironment(config);
+        assertTrue(env.binarySelectionStrategy() instanceof LeastOutstandingSelectionStrategy);
+        assertNotSame(env.binarySelectionStrategy(), env.binarySelectionStrategy());
+    }
+
+    @Test
+    public void shouldDisableHedgingByDefault() {
+        ConfigFactory.invalidateCaches();
+        CouchbaseEnvironment env = new CouchbaseEnvironment();
+        assertEquals(false, env.hedgingEnabled());
+        assertEquals(95, env.hedgingPercentile());
+        assertEquals(1, env.hedgingMinDelay());
+    }
+
+    @Test(expected = EnvironmentException.class)
+    public void shouldFailOnInvalidHedgingPercentile() {
+        ConfigFactory.invalidateCaches();
+        Config config = ConfigFactory
+            .parseMap(Collections.singletonMap("com.couchbase.client.hedging.percentile", 100))
+            .withFallback(ConfigFactory.load());
+        new CouchbaseEnvironment(config).hedgingPercentile();
+    }
+
+    @Test
+    public void shouldLoadDefaultBinaryMaxFrameSize() {
+        ConfigFactory.invalidateCaches();
+        CouchbaseEnvironment env = new CouchbaseEnvironment();
+        assertEquals(21495808, env.binaryMaxFrameSize());
+    }
+
+    @Test(expected = EnvironmentException.class)
+    public void shouldFailOnBinaryMaxFrameSizeSmallerThanHeader() {
+        ConfigFactory.invalidateCaches();
+        Config config = ConfigFactory
+            .parseMap(Collections.singletonMap("com.couchbase.client.binaryMaxFrameSize", 10))
+            .withFallback(ConfigFactory.load());
+        new CouchbaseEnvironment(config).binaryMaxFrameSize();
+    }
+
+    @Test
+    public void shouldEncodeOnIoPoolByDefault() {
+        ConfigFactory.invalidateCaches();
+        CouchbaseEnvironment env = new CouchbaseEnvironment();
+        assertEquals(0, env.encodingPoolSize());
+        assertNull(env.encodingPool());
+        env.shutdown().toBlocking().single();
+    }
+
+    @Test
+    public void shouldCreateAndShutdownEncodingPool() {
+        ConfigFactory.invalidateCaches();
+        Config config = ConfigFactory
+            .parseMap(Collections.singletonMap("com.couchbase.client.encodingPoolSize", 2))
+            .withFallback(ConfigFactory.load());
+        CouchbaseEnvironment env = new CouchbaseEnvironment(config);
+        assertEquals(2, env.encodingPoolSize());
+        assertNotNull(env.encodingPool());
+
+        assertTrue(env.shutdown().toBlocking().single());
+        assertTrue(env.encodingPool().isTerminated());
+    }
+
+    @Test(expected = EnvironmentException.class)
+    public void shouldFailOnNegativeEncodingPoolSize() {
+        ConfigFactory.invalidateCaches();
+        Config config = ConfigFactory
+            .parseMap(Collections.singletonMap("com.couchbase.client.encodingPoolSize", -1))
+            .withFallback(ConfigFactory.load());
+        new CouchbaseEnvironment(config);
+    }
 }
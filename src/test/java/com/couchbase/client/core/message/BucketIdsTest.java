@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.message;
+
+import com.couchbase.client.core.message.binary.GetRequest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the correct functionality of {@link BucketIds}.
+ *
+ * @author Michael Nitschinger
+ * @since 1.0
+ */
+public class BucketIdsTest {
+
+    @Test
+    public void shouldInternBucketsOnce() {
+        int id = BucketIds.intern("interned");
+        assertTrue(id >= 0);
+        assertEquals(id, BucketIds.intern(new String("interned")));
+        assertNotEquals(id, BucketIds.intern("other"));
+        assertEquals(-1, BucketIds.intern(null));
+    }
+
+    @Test
+    public void shouldResolveIdWhenRequestIsCreated() {
+        assertEquals(BucketIds.intern("bucket"), new GetRequest("key", "bucket").bucketId());
+    }
+
+}
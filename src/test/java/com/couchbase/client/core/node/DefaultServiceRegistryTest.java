@@ -21,6 +21,7 @@
  */
 package com.couchbase.client.core.node;
 
+import com.couchbase.client.core.message.BucketIds;
 import com.couchbase.client.core.message.binary.BinaryRequest;
 import com.couchbase.client.core.message.config.ConfigRequest;
 import com.couchbase.client.core.service.Service;
@@ -35,6 +36,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -183,6 +185,7 @@ public class DefaultServiceRegistryTest {
 
         ConfigRequest request = mock(ConfigRequest.class);
         when(request.bucket()).thenReturn("bucket");
+        when(request.bucketId()).thenReturn(BucketIds.intern("bucket"));
         Service service = registry.locate(request);
         assertEquals(service1, service);
     }
@@ -198,6 +201,7 @@ public class DefaultServiceRegistryTest {
 
         BinaryRequest request = mock(BinaryRequest.class);
         when(request.bucket()).thenReturn("bucket");
+        when(request.bucketId()).thenReturn(BucketIds.intern("bucket"));
         Service service = registry.locate(request);
         assertEquals(service1, service);
     }
@@ -228,4 +232,53 @@ public class DefaultServiceRegistryTest {
         assertTrue(latch.await(1, TimeUnit.SECONDS));
     }
 
+    @Test
+    public void shouldReturnNullIfBucketHasNoLocalServices() {
+        DefaultServiceRegistry registry = new DefaultServiceRegistry();
+
+        BinaryRequest request = mock(BinaryRequest.class);
+        when(request.bucket()).thenReturn("bucket");
+        when(request.bucketId()).thenReturn(BucketIds.intern("bucket"));
+        assertNull(registry.locate(request));
+        assertNull(registry.serviceBy(ServiceType.BINARY, "bucket"));
+    }
+
+    @Test
+    public void shouldLocateLocalServiceByBucketName() {
+        DefaultServiceRegistry registry = new DefaultServiceRegistry();
+
+        Service service1 = mock(Service.class);
+        when(service1.type()).thenReturn(ServiceType.BINARY);
+        when(service1.mapping()).thenReturn(ServiceType.BINARY.mapping());
+        registry.addService(service1, "bucket1");
+        Service service2 = mock(Service.class);
+        when(service2.type()).thenReturn(ServiceType.BINARY);
+        when(service2.mapping()).thenReturn(ServiceType.BINARY.mapping());
+        registry.addService(service2, "bucket2");
+
+        BinaryRequest request = mock(BinaryRequest.class);
+        when(request.bucket()).thenReturn(new String("bucket2"));
+        when(request.bucketId()).thenReturn(BucketIds.intern(new String("bucket2")));
+        assertEquals(service2, registry.locate(request));
+        assertEquals(service1, registry.serviceBy(ServiceType.BINARY, "bucket1"));
+    }
+
+    @Test
+    public void shouldNotLocateRemovedService() {
+        DefaultServiceRegistry registry = new DefaultServiceRegistry();
+
+        Service service1 = mock(Service.class);
+        when(service1.type()).thenReturn(ServiceType.BINARY);
+        when(service1.mapping()).thenReturn(ServiceType.BINARY.mapping());
+        registry.addService(service1, "bucket");
+        registry.removeService(service1, "bucket");
+        registry.removeService(service1, "bucket");
+
+        BinaryRequest request = mock(BinaryRequest.class);
+        when(request.bucket()).thenReturn("bucket");
+        when(request.bucketId()).thenReturn(BucketIds.intern("bucket"));
+        assertNull(registry.locate(request));
+        assertTrue(registry.services().isEmpty());
+    }
+
 }
@@ -3,14 +3,20 @@ package com.couchbase.client.core.node.locate;
 import com.couchbase.client.core.config.ClusterConfig;
 import com.couchbase.client.core.config.CouchbaseBucketConfig;
 import com.couchbase.client.core.config.DefaultPartition;
+import com.couchbase.client.core.config.MemcacheBucketConfig;
 import com.couchbase.client.core.config.Partition;
 import com.couchbase.client.core.message.binary.GetRequest;
+import com.couchbase.client.core.message.binary.ReplicaGetRequest;
+import com.couchbase.client.core.message.binary.ReplicaMode;
 import com.couchbase.client.core.node.Node;
+import com.couchbase.client.core.state.LifecycleState;
 import org.junit.Test;
 
 import java.net.InetAddress;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
@@ -53,6 +59,59 @@ public class BinaryLocatorTest {
         assertEquals(node1Mock, foundNodes[0]);
     }
 
+    @Test
+    public void shouldPreferReplicaInLocalGroup() throws Exception {
+        Map<String, String> groups = new HashMap<String, String>();
+        groups.put("192.168.56.101", "zone-a");
+        groups.put("192.168.56.102", "zone-a");
+        groups.put("192.168.56.103", "zone-b");
+        NodeLocality locality = new NodeLocality("zone-b", groups);
+        Locator locator = new BinaryLocator(locality);
+
+        Node master = replicaNode("192.168.56.101");
+        Node remote = replicaNode("192.168.56.102");
+        Node local = replicaNode("192.168.56.103");
+        Set<Node> nodes = new HashSet<Node>(Arrays.asList(master, remote, local));
+        ClusterConfig configMock = mock(ClusterConfig.class);
+        CouchbaseBucketConfig bucketMock = mock(CouchbaseBucketConfig.class);
+        when(configMock.bucketConfig("bucket")).thenReturn(bucketMock);
+        when(bucketMock.numberOfReplicas()).thenReturn(2);
+        when(bucketMock.partitions()).thenReturn(Arrays.asList(
+            (Partition) new DefaultPartition((short) 0, new short[] {1, 2}),
+            (Partition) new DefaultPartition((short) 0, new short[] {1, 2})
+        ));
+        when(bucketMock.partitionHosts()).thenReturn(Arrays.asList(
+            "192.168.56.101",
+            "192.168.56.102",
+            "192.168.56.103"
+        ));
+
+        ReplicaGetRequest request = new ReplicaGetRequest("key", "bucket", ReplicaMode.ANY);
+        assertEquals(local, locator.locate(request, nodes, configMock)[0]);
+
+        when(local.isState(LifecycleState.CONNECTED)).thenReturn(false);
+        assertEquals(remote, locator.locate(request, nodes, configMock)[0]);
+
+        assertEquals(Long.valueOf(1), locality.traffic().get("zone-a"));
+        assertEquals(Long.valueOf(1), locality.traffic().get("zone-b"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectReplicaReadForMemcacheBucket() {
+        ClusterConfig configMock = mock(ClusterConfig.class);
+        when(configMock.bucketConfig("bucket")).thenReturn(mock(MemcacheBucketConfig.class));
+
+        new BinaryLocator().locate(new ReplicaGetRequest("key", "bucket", ReplicaMode.FIRST), new HashSet<Node>(),
+            configMock);
+    }
+
+    private static Node replicaNode(String address) throws Exception {
+        Node node = mock(Node.class);
+        when(node.hostname()).thenReturn(InetAddress.getByName(address));
+        when(node.isState(LifecycleState.CONNECTED)).thenReturn(true);
+        return node;
+    }
+
     @Test
     public void shouldFanOutBroadcastableRequest() {
 
@@ -0,0 +1,40 @@
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.message.binary.GetRequest;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifies the functionality of {@link Crc32}.
+ */
+public class Crc32Test {
+
+    @Test
+    public void shouldMatchJdkChecksum() {
+        String[] keys = new String[] { "", "key", "user::1234", "k\u00e9y", "\u65e5\u672c\u8a9e\u30ad\u30fc" };
+        for (String key : keys) {
+            byte[] bytes = key.getBytes(CharsetUtil.UTF_8);
+            CRC32 expected = new CRC32();
+            expected.update(bytes);
+            assertEquals(expected.getValue(), Crc32.crc32(bytes));
+        }
+    }
+
+    @Test
+    public void shouldShareEncodedKeyOfRequest() {
+        byte[] key = "k\u00e9y".getBytes(CharsetUtil.UTF_8);
+        GetRequest fromBytes = new GetRequest(key, "bucket");
+        GetRequest fromString = new GetRequest("k\u00e9y", "bucket");
+
+        assertEquals("k\u00e9y", fromBytes.key());
+        assertEquals(4, fromString.keyBytes().length);
+        assertArrayEquals(key, fromString.keyBytes());
+        assertEquals(Crc32.crc32(fromBytes.keyBytes()), Crc32.crc32(fromString.keyBytes()));
+    }
+
+}
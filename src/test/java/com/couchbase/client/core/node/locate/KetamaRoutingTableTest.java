@@ -0,0 +1,111 @@
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.config.MemcacheBucketConfig;
+import com.couchbase.client.core.config.NodeInfo;
+import com.couchbase.client.core.node.Node;
+import com.couchbase.client.core.service.ServiceType;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the functionality of the {@link KetamaRoutingTable} and its {@link KetamaContinuum}.
+ */
+public class KetamaRoutingTableTest {
+
+    @Test
+    public void shouldSpreadKeysOverAllMembers() {
+        KetamaContinuum continuum = KetamaContinuum.build(members(4));
+        int[] owned = new int[4];
+        for (int i = 0; i < 10000; i++) {
+            owned[continuum.owner(KetamaContinuum.hash(("key" + i).getBytes(CharsetUtil.UTF_8)))]++;
+        }
+        for (int i = 0; i < owned.length; i++) {
+            assertTrue("member " + i + " owns " + owned[i], owned[i] > 500 && owned[i] < 5000);
+        }
+    }
+
+    @Test
+    public void shouldOnlyMoveKeysOfAddedMember() {
+        String[] before = members(10);
+        String[] after = members(11);
+        KetamaContinuum small = KetamaContinuum.build(before);
+        KetamaContinuum large = KetamaContinuum.build(after);
+
+        int moved = 0;
+        for (int i = 0; i < 10000; i++) {
+            long hash = KetamaContinuum.hash(("key" + i).getBytes(CharsetUtil.UTF_8));
+            String oldOwner = before[small.owner(hash)];
+            String newOwner = after[large.owner(hash)];
+            if (!oldOwner.equals(newOwner)) {
+                assertEquals(after[10], newOwner);
+                moved++;
+            }
+        }
+        assertTrue("moved " + moved, moved > 0 && moved < 2000);
+    }
+
+    @Test
+    public void shouldLocateManagedNodeAndReuseContinuum() throws Exception {
+        Set<Node> nodes = new HashSet<Node>();
+        List<NodeInfo> infos = new ArrayList<NodeInfo>();
+        for (int i = 1; i <= 3; i++) {
+            InetAddress address = InetAddress.getByName("192.168.56.10" + i);
+            Node node = mock(Node.class);
+            when(node.hostname()).thenReturn(address);
+            nodes.add(node);
+            NodeInfo info = mock(NodeInfo.class);
+            when(info.hostname()).thenReturn(address);
+            when(info.services()).thenReturn(Collections.singletonMap(ServiceType.BINARY, 11210));
+            infos.add(info);
+        }
+        MemcacheBucketConfig config = mock(MemcacheBucketConfig.class);
+        when(config.nodes()).thenReturn(infos);
+
+        KetamaRoutingTable table = KetamaRoutingTable.compile(config, nodes, null);
+        byte[] key = "key".getBytes(CharsetUtil.UTF_8);
+        Node[] found = table.locate(key);
+        assertNotNull(found);
+        assertTrue(nodes.contains(found[0]));
+        assertSame(found, table.locate(key));
+
+        MemcacheBucketConfig reordered = mock(MemcacheBucketConfig.class);
+        List<NodeInfo> reversed = new ArrayList<NodeInfo>(infos);
+        Collections.reverse(reversed);
+        when(reordered.nodes()).thenReturn(reversed);
+        KetamaRoutingTable recompiled = KetamaRoutingTable.compile(reordered, nodes, table);
+        assertSame(table.continuum(), recompiled.continuum());
+        assertSame(found[0], recompiled.locate(key)[0]);
+
+        MemcacheBucketConfig shrunk = mock(MemcacheBucketConfig.class);
+        when(shrunk.nodes()).thenReturn(infos.subList(0, 2));
+        assertNotSame(table.continuum(), KetamaRoutingTable.compile(shrunk, nodes, table).continuum());
+
+        assertTrue(table.isCompiledFrom(config, nodes));
+        assertFalse(table.isCompiledFrom(config, new HashSet<Node>(nodes)));
+    }
+
+    private static String[] members(final int size) {
+        String[] members = new String[size];
+        for (int i = 0; i < size; i++) {
+            members[i] = "10.0.0." + i + ":11210";
+        }
+        return members;
+    }
+
+}
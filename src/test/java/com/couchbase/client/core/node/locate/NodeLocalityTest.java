@@ -0,0 +1,93 @@
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.config.BucketConfig;
+import com.couchbase.client.core.config.ClusterConfig;
+import com.couchbase.client.core.config.DefaultNodeInfo;
+import com.couchbase.client.core.config.NodeInfo;
+import com.couchbase.client.core.node.Node;
+import com.couchbase.client.core.service.ServiceType;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the functionality of the {@link NodeLocality}.
+ */
+public class NodeLocalityTest {
+
+    @Test
+    public void shouldTakeGroupsFromServerGroupsAndConfiguredOverrides() throws Exception {
+        ClusterConfig config = clusterConfig(
+            nodeInfo("10.0.0.1", "Group 1"),
+            nodeInfo("10.0.0.2", "Group 2"),
+            nodeInfo("10.0.0.3", null)
+        );
+        NodeLocality locality = new NodeLocality("Group 2", Collections.singletonMap("10.0.0.1", "Group 2"));
+        locality.update(config);
+
+        assertEquals("Group 2", locality.group(node("10.0.0.1")));
+        assertEquals("Group 2", locality.group(node("10.0.0.2")));
+        assertEquals(NodeLocality.UNKNOWN_GROUP, locality.group(node("10.0.0.3")));
+        assertTrue(locality.isLocal(node("10.0.0.2")));
+        assertFalse(locality.isLocal(node("10.0.0.3")));
+    }
+
+    @Test
+    public void shouldPickUpChangedServerGroups() throws Exception {
+        NodeLocality locality = new NodeLocality("Group 1", new HashMap<String, String>());
+        locality.update(clusterConfig(nodeInfo("10.0.0.1", "Group 1")));
+        assertTrue(locality.isLocal(node("10.0.0.1")));
+
+        locality.update(clusterConfig(nodeInfo("10.0.0.1", "Group 2")));
+        assertFalse(locality.isLocal(node("10.0.0.1")));
+    }
+
+    @Test
+    public void shouldNotPreferAnyNodeWithoutLocalGroup() throws Exception {
+        NodeLocality locality = new NodeLocality("", Collections.singletonMap("10.0.0.1", ""));
+        assertFalse(locality.preferLocal());
+        assertFalse(locality.isLocal(node("10.0.0.1")));
+    }
+
+    @Test
+    public void shouldCountTrafficPerGroup() throws Exception {
+        NodeLocality locality = new NodeLocality("Group 1", Collections.singletonMap("10.0.0.1", "Group 1"));
+        locality.record(node("10.0.0.1"));
+        locality.record(node("10.0.0.1"));
+        locality.record(node("10.0.0.2"));
+
+        Map<String, Long> traffic = locality.traffic();
+        assertEquals(2, traffic.size());
+        assertEquals(Long.valueOf(2), traffic.get("Group 1"));
+        assertEquals(Long.valueOf(1), traffic.get(NodeLocality.UNKNOWN_GROUP));
+    }
+
+    private static Node node(String address) throws Exception {
+        Node node = mock(Node.class);
+        when(node.hostname()).thenReturn(InetAddress.getByName(address));
+        return node;
+    }
+
+    private static NodeInfo nodeInfo(String address, String serverGroup) throws Exception {
+        return new DefaultNodeInfo(null, InetAddress.getByName(address), new HashMap<ServiceType, Integer>(),
+            new HashMap<ServiceType, Integer>(), serverGroup);
+    }
+
+    private static ClusterConfig clusterConfig(NodeInfo... nodes) {
+        BucketConfig bucket = mock(BucketConfig.class);
+        when(bucket.nodes()).thenReturn(Arrays.asList(nodes));
+        ClusterConfig config = mock(ClusterConfig.class);
+        when(config.bucketConfigs()).thenReturn(Collections.singletonMap("bucket", bucket));
+        return config;
+    }
+}
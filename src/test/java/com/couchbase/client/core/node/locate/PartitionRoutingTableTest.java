@@ -0,0 +1,101 @@
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.config.CouchbaseBucketConfig;
+import com.couchbase.client.core.config.DefaultPartition;
+import com.couchbase.client.core.config.Partition;
+import com.couchbase.client.core.node.Node;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the functionality of the {@link PartitionRoutingTable}.
+ */
+public class PartitionRoutingTableTest {
+
+    @Test
+    public void shouldResolveMastersAndReplicas() throws Exception {
+        Node node1 = node("192.168.56.101");
+        Node node2 = node("192.168.56.102");
+        Set<Node> nodes = new HashSet<Node>(Arrays.asList(node1, node2));
+        CouchbaseBucketConfig config = config(
+            new DefaultPartition((short) 0, new short[] {1}),
+            new DefaultPartition((short) 1, new short[] {0}),
+            new DefaultPartition((short) -1, new short[] {-1})
+        );
+
+        PartitionRoutingTable table = PartitionRoutingTable.compile(config, nodes);
+
+        assertEquals(3, table.partitions());
+        assertSame(node1, table.master(0)[0]);
+        assertSame(node2, table.replica(0, 0));
+        assertSame(node2, table.master(1)[0]);
+        assertSame(node1, table.replica(1, 0));
+        assertEquals(0, table.master(2).length);
+        assertNull(table.replica(2, 0));
+        assertNull(table.replica(0, 1));
+        assertSame(table.master(0), table.master(0));
+    }
+
+    @Test
+    public void shouldLeaveUnmanagedNodesUnresolved() throws Exception {
+        Set<Node> nodes = new HashSet<Node>(Arrays.asList(node("192.168.56.101")));
+        CouchbaseBucketConfig config = config(new DefaultPartition((short) 1, new short[] {1}));
+
+        PartitionRoutingTable table = PartitionRoutingTable.compile(config, nodes);
+
+        assertNull(table.master(0));
+        assertNull(table.replica(0, 0));
+    }
+
+    @Test
+    public void shouldDetectOutdatedTable() throws Exception {
+        Set<Node> nodes = new HashSet<Node>(Arrays.asList(node("192.168.56.101")));
+        CouchbaseBucketConfig config = config(new DefaultPartition((short) 0, new short[] {1}));
+        PartitionRoutingTable table = PartitionRoutingTable.compile(config, nodes);
+
+        assertTrue(table.isCompiledFrom(config, nodes));
+        assertFalse(table.isCompiledFrom(config(new DefaultPartition((short) 0, new short[] {1})), nodes));
+        Set<Node> added = new HashSet<Node>(nodes);
+        added.add(node("192.168.56.102"));
+        assertFalse(table.isCompiledFrom(config, added));
+    }
+
+    @Test
+    public void shouldDetectReplacedNode() throws Exception {
+        Set<Node> nodes = new HashSet<Node>(Arrays.asList(node("192.168.56.101")));
+        CouchbaseBucketConfig config = config(new DefaultPartition((short) 0, new short[] {1}));
+        PartitionRoutingTable table = PartitionRoutingTable.compile(config, nodes);
+
+        Set<Node> replaced = new HashSet<Node>(Arrays.asList(node("192.168.56.101")));
+        assertFalse(table.isCompiledFrom(config, replaced));
+        PartitionRoutingTable recompiled = PartitionRoutingTable.compile(config, replaced);
+        assertSame(replaced.iterator().next(), recompiled.master(0)[0]);
+    }
+
+    private static Node node(final String hostname) throws Exception {
+        Node node = mock(Node.class);
+        when(node.hostname()).thenReturn(InetAddress.getByName(hostname));
+        return node;
+    }
+
+    private static CouchbaseBucketConfig config(final Partition... partitions) {
+        CouchbaseBucketConfig config = mock(CouchbaseBucketConfig.class);
+        when(config.partitions()).thenReturn(Arrays.asList(partitions));
+        when(config.partitionHosts()).thenReturn(Arrays.asList("192.168.56.101", "192.168.56.102"));
+        when(config.numberOfReplicas()).thenReturn(1);
+        return config;
+    }
+
+}
@@ -0,0 +1,202 @@
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.message.view.ViewQueryRequest;
+import com.couchbase.client.core.node.Node;
+import com.couchbase.client.core.service.ServiceType;
+import com.couchbase.client.core.state.LifecycleState;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the functionality of the {@link ViewLocator} and the node selection strategies.
+ */
+public class ViewLocatorTest {
+
+    private static Node viewNode(boolean enabled) {
+        Node node = mock(Node.class);
+        when(node.hasService(ServiceType.VIEW, "bucket")).thenReturn(enabled);
+        return node;
+    }
+
+    private static ViewQueryRequest request() {
+        return new ViewQueryRequest("design", "view", false, "bucket", "");
+    }
+
+    @Test
+    public void shouldRoundRobinAcrossViewNodes() {
+        Node node1 = viewNode(true);
+        Node node2 = viewNode(false);
+        Node node3 = viewNode(true);
+        Set<Node> nodes = new LinkedHashSet<Node>(Arrays.asList(node1, node2, node3));
+        Locator locator = new ViewLocator(new RoundRobinNodeSelectionStrategy());
+
+        assertSame(node1, locator.locate(request(), nodes, null)[0]);
+        assertSame(node3, locator.locate(request(), nodes, null)[0]);
+        assertSame(node1, locator.locate(request(), nodes, null)[0]);
+    }
+
+    @Test
+    public void shouldReturnNoNodeIfServiceNotEnabled() {
+        Set<Node> nodes = new LinkedHashSet<Node>(Arrays.asList(viewNode(false), viewNode(false)));
+        Locator locator = new ViewLocator(new LeastOutstandingNodeSelectionStrategy());
+
+        assertEquals(0, locator.locate(request(), nodes, null).length);
+        assertEquals(0, locator.locate(request(), new LinkedHashSet<Node>(), null).length);
+    }
+
+    @Test
+    public void shouldSelectLeastOutstandingNode() {
+        Node node1 = viewNode(true);
+        Node node2 = viewNode(true);
+        Set<Node> nodes = new LinkedHashSet<Node>(Arrays.asList(node1, node2));
+        LeastOutstandingNodeSelectionStrategy strategy = new LeastOutstandingNodeSelectionStrategy();
+        Locator locator = new ViewLocator(strategy);
+
+        ViewQueryRequest first = request();
+        Node busy = locator.locate(first, nodes, null)[0];
+        Node idle = busy == node1 ? node2 : node1;
+        assertEquals(1, strategy.outstanding(busy));
+
+        for (int i = 0; i < 4; i++) {
+            ViewQueryRequest next = request();
+            assertSame(idle, locator.locate(next, nodes, null)[0]);
+            next.observable().onCompleted();
+        }
+        assertEquals(0, strategy.outstanding(idle));
+
+        first.observable().onError(new RuntimeException());
+        assertEquals(0, strategy.outstanding(busy));
+    }
+
+    @Test
+    public void shouldCountRetriedRequestOnce() {
+        Node node1 = viewNode(true);
+        Node node2 = viewNode(true);
+        Set<Node> nodes = new LinkedHashSet<Node>(Arrays.asList(node1, node2));
+        LeastOutstandingNodeSelectionStrategy strategy = new LeastOutstandingNodeSelectionStrategy();
+        Locator locator = new ViewLocator(strategy);
+
+        ViewQueryRequest request = request();
+        Node first = locator.locate(request, nodes, null)[0];
+        Node second = locator.locate(request, nodes, null)[0];
+        assertNotSame(first, second);
+        assertEquals(0, strategy.outstanding(first));
+        assertEquals(1, strategy.outstanding(second));
+
+        request.observable().onCompleted();
+        assertEquals(0, strategy.outstanding(second));
+    }
+
+    @Test
+    public void shouldDropCountsOfRemovedNodes() {
+        Node node1 = viewNode(true);
+        Node node2 = viewNode(true);
+        LeastOutstandingNodeSelectionStrategy strategy = new LeastOutstandingNodeSelectionStrategy();
+        Locator locator = new ViewLocator(strategy);
+
+        ViewQueryRequest request = request();
+        Node busy = locator.locate(request, new LinkedHashSet<Node>(Arrays.asList(node1, node2)), null)[0];
+        Node other = busy == node1 ? node2 : node1;
+        assertEquals(1, strategy.outstanding(busy));
+
+        locator.locate(request(), new LinkedHashSet<Node>(Arrays.asList(other)), null);
+        assertEquals(0, strategy.outstanding(busy));
+        assertEquals(1, strategy.outstanding(other));
+        request.observable().onCompleted();
+        assertEquals(1, strategy.outstanding(other));
+    }
+
+    @Test
+    public void shouldReuseEligibleNodesUntilNodesChange() {
+        Node node1 = viewNode(true);
+        Node node2 = viewNode(false);
+        Set<Node> nodes = new LinkedHashSet<Node>(Arrays.asList(node1, node2));
+        Locator locator = new ViewLocator(new RoundRobinNodeSelectionStrategy());
+
+        Node[] found = locator.locate(request(), nodes, null);
+        assertSame(node1, found[0]);
+        assertSame(found, locator.locate(request(), nodes, null));
+
+        when(node2.hasService(ServiceType.VIEW, "bucket")).thenReturn(true);
+        assertSame(node1, locator.locate(request(), nodes, null)[0]);
+        Set<Node> changed = new LinkedHashSet<Node>(nodes);
+        assertSame(node2, locator.locate(request(), changed, null)[0]);
+    }
+
+    @Test
+    public void shouldPreferLessLoadedOfTwoChoices() {
+        Node node1 = viewNode(true);
+        Node node2 = viewNode(true);
+        Set<Node> nodes = new LinkedHashSet<Node>(Arrays.asList(node1, node2));
+        PowerOfTwoChoicesNodeSelectionStrategy strategy = new PowerOfTwoChoicesNodeSelectionStrategy();
+        Locator locator = new ViewLocator(strategy);
+
+        for (int i = 0; i < 10; i++) {
+            locator.locate(request(), nodes, null);
+        }
+        assertEquals(5, strategy.outstanding(node1));
+        assertEquals(5, strategy.outstanding(node2));
+    }
+
+    @Test
+    public void shouldPreferConnectedNodesInLocalGroup() throws Exception {
+        Node remote = groupedViewNode("10.0.0.1", LifecycleState.CONNECTED);
+        Node local1 = groupedViewNode("10.0.0.2", LifecycleState.CONNECTED);
+        Node local2 = groupedViewNode("10.0.0.3", LifecycleState.CONNECTED);
+        Node down = groupedViewNode("10.0.0.4", LifecycleState.DISCONNECTED);
+        Set<Node> nodes = new LinkedHashSet<Node>(Arrays.asList(remote, local1, local2, down));
+        Map<String, String> groups = new HashMap<String, String>();
+        groups.put("10.0.0.1", "zone-a");
+        groups.put("10.0.0.2", "zone-b");
+        groups.put("10.0.0.3", "zone-b");
+        groups.put("10.0.0.4", "zone-b");
+        NodeLocality locality = new NodeLocality("zone-b", groups);
+        Locator locator = new ViewLocator(new RoundRobinNodeSelectionStrategy(), locality);
+
+        for (int i = 0; i < 10; i++) {
+            Node selected = locator.locate(request(), nodes, null)[0];
+            assertTrue(selected == local1 || selected == local2);
+        }
+        assertEquals(Long.valueOf(10), locality.traffic().get("zone-b"));
+        assertNull(locality.traffic().get("zone-a"));
+    }
+
+    @Test
+    public void shouldFallBackToOtherGroupsIfNoLocalNodeIsConnected() throws Exception {
+        Node remote = groupedViewNode("10.0.0.1", LifecycleState.CONNECTED);
+        Node local = groupedViewNode("10.0.0.2", LifecycleState.DISCONNECTED);
+        Set<Node> nodes = new LinkedHashSet<Node>(Arrays.asList(remote, local));
+        Map<String, String> groups = new HashMap<String, String>();
+        groups.put("10.0.0.1", "zone-a");
+        groups.put("10.0.0.2", "zone-b");
+        NodeLocality locality = new NodeLocality("zone-b", groups);
+        Locator locator = new ViewLocator(new RoundRobinNodeSelectionStrategy(), locality);
+
+        assertSame(remote, locator.locate(request(), nodes, null)[0]);
+        assertSame(local, locator.locate(request(), nodes, null)[0]);
+        assertEquals(Long.valueOf(1), locality.traffic().get("zone-a"));
+        assertEquals(Long.valueOf(1), locality.traffic().get("zone-b"));
+    }
+
+    private static Node groupedViewNode(String address, LifecycleState state) throws Exception {
+        Node node = viewNode(true);
+        when(node.hostname()).thenReturn(InetAddress.getByName(address));
+        when(node.isState(LifecycleState.CONNECTED)).thenReturn(state == LifecycleState.CONNECTED);
+        return node;
+    }
+
+}
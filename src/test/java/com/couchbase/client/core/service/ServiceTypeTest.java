@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2014 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+package com.couchbase.client.core.service;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.RequestType;
+import com.couchbase.client.core.message.binary.BinaryRequest;
+import com.couchbase.client.core.message.binary.RemoveRequest;
+import com.couchbase.client.core.message.config.FlushRequest;
+import com.couchbase.client.core.message.query.GenericQueryRequest;
+import com.couchbase.client.core.message.view.ViewQueryRequest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the functionality of {@link ServiceType#forRequest(CouchbaseRequest)}.
+ */
+public class ServiceTypeTest {
+
+    @Test
+    public void shouldResolveServiceFromRequestType() {
+        assertEquals(ServiceType.BINARY, ServiceType.forRequest(new RemoveRequest("key", 0, "bucket")));
+        assertEquals(ServiceType.VIEW, ServiceType.forRequest(
+            new ViewQueryRequest("design", "view", false, "bucket", null)));
+        assertEquals(ServiceType.QUERY, ServiceType.forRequest(new GenericQueryRequest("select 1", "bucket", null)));
+        assertEquals(ServiceType.CONFIG, ServiceType.forRequest(new FlushRequest("bucket", null)));
+    }
+
+    @Test
+    public void shouldFallBackToClassForUnknownRequestType() {
+        BinaryRequest request = mock(BinaryRequest.class);
+        when(request.requestType()).thenReturn(RequestType.UNKNOWN);
+        assertEquals(ServiceType.BINARY, ServiceType.forRequest(request));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailOnRequestWithoutService() {
+        CouchbaseRequest request = mock(CouchbaseRequest.class);
+        when(request.requestType()).thenReturn(RequestType.SIGNAL_FLUSH);
+        ServiceType.forRequest(request);
+    }
+}
@@ -0,0 +1,96 @@
+package com.couchbase.client.core.service.strategies;
+
+import com.couchbase.client.core.endpoint.Endpoint;
+import com.couchbase.client.core.message.binary.GetRequest;
+import com.couchbase.client.core.service.SelectionStrategy;
+import com.couchbase.client.core.state.LifecycleState;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the functionality of the {@link LeastOutstandingSelectionStrategy}.
+ */
+public class LeastOutstandingSelectionStrategyTest {
+
+    private static Endpoint endpoint(LifecycleState state, int outstanding) {
+        Endpoint endpoint = mock(Endpoint.class);
+        when(endpoint.isState(LifecycleState.CONNECTED)).thenReturn(state == LifecycleState.CONNECTED);
+        when(endpoint.outstanding()).thenReturn(outstanding);
+        return endpoint;
+    }
+
+    @Test
+    public void shouldSelectLeastLoadedConnectedEndpoint() {
+        Endpoint busy = endpoint(LifecycleState.CONNECTED, 10);
+        Endpoint idle = endpoint(LifecycleState.DISCONNECTED, 0);
+        Endpoint light = endpoint(LifecycleState.CONNECTED, 2);
+        Endpoint[] endpoints = new Endpoint[] { busy, idle, light };
+        SelectionStrategy strategy = new LeastOutstandingSelectionStrategy();
+
+        for (int i = 0; i < endpoints.length; i++) {
+            assertSame(light, strategy.select(new GetRequest("key", "bucket"), endpoints));
+        }
+    }
+
+    @Test
+    public void shouldReturnNullIfNoEndpointConnected() {
+        Endpoint[] endpoints = new Endpoint[] {
+            endpoint(LifecycleState.CONNECTING, 0),
+            endpoint(LifecycleState.DISCONNECTED, 0)
+        };
+
+        assertNull(new LeastOutstandingSelectionStrategy().select(new GetRequest("key", "bucket"), endpoints));
+        assertNull(new LeastOutstandingSelectionStrategy(true).select(new GetRequest("key", "bucket"), endpoints));
+    }
+
+    @Test
+    public void shouldKeepKeyOnEndpointWhileInFlight() {
+        Endpoint first = endpoint(LifecycleState.CONNECTED, 0);
+        Endpoint second = endpoint(LifecycleState.CONNECTED, 5);
+        Endpoint[] endpoints = new Endpoint[] { first, second };
+        SelectionStrategy strategy = new LeastOutstandingSelectionStrategy(true);
+
+        GetRequest inFlight = new GetRequest("key", "bucket");
+        assertSame(first, strategy.select(inFlight, endpoints));
+
+        when(first.outstanding()).thenReturn(10);
+        GetRequest sameKey = new GetRequest("key", "bucket");
+        assertSame(first, strategy.select(sameKey, endpoints));
+        assertSame(second, strategy.select(new GetRequest("otherKey", "bucket"), endpoints));
+
+        inFlight.observable().onCompleted();
+        assertSame(first, strategy.select(new GetRequest("key", "bucket"), endpoints));
+        sameKey.observable().onError(new RuntimeException());
+    }
+
+    @Test
+    public void shouldMoveKeyOnceNothingInFlight() {
+        Endpoint first = endpoint(LifecycleState.CONNECTED, 0);
+        Endpoint second = endpoint(LifecycleState.CONNECTED, 5);
+        Endpoint[] endpoints = new Endpoint[] { first, second };
+        SelectionStrategy strategy = new LeastOutstandingSelectionStrategy(true);
+
+        GetRequest request = new GetRequest("key", "bucket");
+        assertSame(first, strategy.select(request, endpoints));
+        request.observable().onCompleted();
+
+        when(first.outstanding()).thenReturn(10);
+        assertSame(second, strategy.select(new GetRequest("key", "bucket"), endpoints));
+    }
+
+    @Test
+    public void shouldNotMovePinnedKeyToOtherEndpointOnDisconnect() {
+        Endpoint first = endpoint(LifecycleState.CONNECTED, 0);
+        Endpoint second = endpoint(LifecycleState.CONNECTED, 5);
+        Endpoint[] endpoints = new Endpoint[] { first, second };
+        SelectionStrategy strategy = new LeastOutstandingSelectionStrategy(true);
+
+        assertSame(first, strategy.select(new GetRequest("key", "bucket"), endpoints));
+        when(first.isState(LifecycleState.CONNECTED)).thenReturn(false);
+        assertNull(strategy.select(new GetRequest("key", "bucket"), endpoints));
+    }
+}